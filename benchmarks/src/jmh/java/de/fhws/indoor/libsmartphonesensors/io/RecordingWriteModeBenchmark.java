@@ -0,0 +1,89 @@
+package de.fhws.indoor.libsmartphonesensors.io;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of writing csv lines to a RecordingSession, with a plain buffered FileOutputStream (STREAM)
+ * and with the chunk-wise preallocated file (PREALLOCATED).
+ * <p>
+ *     writeLines() measures the throughput of a whole (small) recording, including closing it.
+ *     writeEntry() samples the time of single writes, to show the stalls while the file grows
+ *     (see the high percentiles). It starts a new file every ROTATE_LINE_CNT lines, to bound the disk usage.
+ * </p>
+ */
+@State(Scope.Thread)
+public class RecordingWriteModeBenchmark {
+
+    private static final int LINE_CNT = 100_000;
+    private static final int ROTATE_LINE_CNT = 1_000_000;
+
+    @Param({"STREAM", "PREALLOCATED"})
+    public RecordingWriteMode writeMode;
+
+    private final byte[][] lines = new byte[1024][];
+    private File file;
+    private RecordingSession session;
+    private long lineIdx = 0;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(2);
+        for(int i = 0; i < lines.length; ++i) {
+            lines[i] = String.format("%d;%d;%s;%s;%s\n", 1_000_000_000L + i * 10_000_000L, 1 + random.nextInt(5),
+                    random.nextFloat(), random.nextFloat(), random.nextFloat()).getBytes();
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void openFile() throws IOException {
+        file = File.createTempFile("writeModeBenchmark", ".csv");
+        session = RecordingSession.create(0, file, RecordingFormat.CSV, writeMode);
+        lineIdx = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteFile() {
+        session.close();
+        file.delete();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINE_CNT)
+    public void writeLines() throws IOException {
+        // a fresh recording per invocation, the one opened for the iteration is left empty
+        File recordingFile = File.createTempFile("writeModeBenchmark", ".csv");
+        RecordingSession recording = RecordingSession.create(0, recordingFile, RecordingFormat.CSV, writeMode);
+        for(int i = 0; i < LINE_CNT; ++i) {
+            recording.writeEntry(i, lines[i & (lines.length - 1)]);
+        }
+        recording.close();
+        recordingFile.delete();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void writeEntry() throws IOException {
+        session.writeEntry(lineIdx, lines[(int) (lineIdx & (lines.length - 1))]);
+        if(++lineIdx == ROTATE_LINE_CNT) {
+            deleteFile();
+            openFile();
+        }
+    }
+
+}
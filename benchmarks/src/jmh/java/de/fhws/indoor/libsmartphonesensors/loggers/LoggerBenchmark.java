@@ -0,0 +1,60 @@
+package de.fhws.indoor.libsmartphonesensors.loggers;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+
+import de.fhws.indoor.libsmartphonesensors.SensorType;
+import de.fhws.indoor.libsmartphonesensors.io.RecordingSession;
+
+/**
+ * Cost of handing a single sensor event to a running logger (String and primitive path).
+ * The UnorderedLogger uses its default back-pressure policy, so events it can not keep up with are dropped.
+ */
+@State(Scope.Benchmark)
+public class LoggerBenchmark {
+
+    @Param({"TIMED_ORDERED", "UNORDERED"})
+    public String loggerType;
+
+    private File file;
+    private RecordingSession session;
+    private Logger logger;
+    private long timestamp;
+    private final float[] values = {0.0123f, -9.80665f, 0.4711f};
+    private final String csv = "0.0123;-9.80665;0.4711";
+
+    @Setup(Level.Iteration)
+    public void setup() throws IOException {
+        file = File.createTempFile("loggerBenchmark", ".csv");
+        session = RecordingSession.create(0, file);
+        logger = loggerType.equals("UNORDERED") ? new UnorderedLogger(null) : new TimedOrderedLogger(null);
+        logger.start(session, new Logger.FileMetadata("benchmark", "benchmark"));
+        timestamp = 1;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        logger.stop();
+        session.close();
+        file.delete();
+    }
+
+    @Benchmark
+    public void addCSV() {
+        logger.addCSV(SensorType.ACCELEROMETER, timestamp++, csv);
+    }
+
+    @Benchmark
+    public void addFloats() {
+        logger.addFloats(SensorType.ACCELEROMETER, timestamp++, values, values.length);
+    }
+
+}
@@ -0,0 +1,55 @@
+package de.fhws.indoor.libsmartphonesensors.loggers;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import de.fhws.indoor.libsmartphonesensors.SensorType;
+
+/**
+ * Cost per entry of reordering and committing a realistic event stream: 100Hz IMU sensors with
+ * jitter, plus wifi scans that arrive up to 4 seconds late.
+ */
+@State(Scope.Benchmark)
+public class ReorderBufferBenchmark {
+
+    private static final int ENTRY_CNT = 200000;
+    private static final long REORDER_TIMEFRAME_NS = 7L * 1000 * 1000 * 1000;
+
+    private LogEntry[] entries;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        SensorType[] imuSensors = {SensorType.ACCELEROMETER, SensorType.GYROSCOPE, SensorType.MAGNETIC_FIELD, SensorType.GRAVITY};
+        List<LogEntry> trace = new ArrayList<>(ENTRY_CNT);
+        byte[] line = new byte[48];
+        for(long ts = 0; trace.size() < ENTRY_CNT; ts += 10_000_000) {
+            for(SensorType sensor : imuSensors) {
+                trace.add(new LogEntry(ts + random.nextInt(2_000_000), sensor, line));
+            }
+            if(random.nextInt(300) == 0) {
+                trace.add(new LogEntry(ts - random.nextInt(4_000_000) * 1000L, SensorType.WIFI, line));
+            }
+        }
+        entries = trace.toArray(new LogEntry[0]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ENTRY_CNT)
+    public void addAndCommit(final Blackhole blackhole) {
+        ReorderBuffer reorderBuffer = new ReorderBuffer(REORDER_TIMEFRAME_NS, (commitSlice) -> blackhole.consume(commitSlice.size()));
+        for(LogEntry entry : entries) {
+            reorderBuffer.add(entry);
+        }
+        reorderBuffer.flush();
+    }
+
+}
@@ -0,0 +1,123 @@
+package de.fhws.indoor.libsmartphonesensors.loggers;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import de.fhws.indoor.libsmartphonesensors.SensorType;
+
+/**
+ * Replay of a recording-like multi-sensor trace (high-rate IMU streams with delivery jitter, slow
+ * environment sensors, and bursts of wifi results up to 4 seconds late) through ReorderBuffer and
+ * through the former sort-on-commit implementation (SortingReorderBuffer).
+ * <p>
+ *     replay*() measure the cost per entry. add*() sample the time of single add() calls, to show how
+ *     long the logging thread is held by commits (see the high percentiles).
+ * </p>
+ */
+@State(Scope.Thread)
+public class ReorderBufferReplayBenchmark {
+
+    private static final long SECOND_NS = 1000L * 1000 * 1000;
+    // commit configuration of the former sort-based TimedOrderedLogger
+    private static final long UPPER_NS = 10 * SECOND_NS;
+    private static final long LOWER_NS = 7 * SECOND_NS;
+    private static final int ENTRY_CNT = 1_000_000; // ~15 minutes of recording
+
+    private static final SensorType[] SENSORS = {
+            SensorType.ACCELEROMETER, SensorType.GYROSCOPE, SensorType.MAGNETIC_FIELD, SensorType.GRAVITY,
+            SensorType.LINEAR_ACCELERATION, SensorType.GAME_ROTATION_VECTOR, SensorType.PRESSURE, SensorType.LIGHT};
+    private static final long[] INTERVALS_NS = {
+            5000000, 5000000, 10000000, 5000000, 5000000, 5000000, 40000000, 200000000};
+
+    private LogEntry[] entries;
+    private Blackhole blackhole;
+    private final ReorderBuffer.CommitListener consumer = (commitSlice) -> blackhole.consume(commitSlice.size());
+    // state of the add*() benchmarks
+    private ReorderBuffer mergingBuffer;
+    private SortingReorderBuffer sortingBuffer;
+    private int mergingIdx = 0;
+    private int sortingIdx = 0;
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        this.blackhole = blackhole;
+        final Random rnd = new Random(42);
+        final byte[] line = new byte[48];
+        final long[] nextTs = new long[SENSORS.length];
+        long nextWifiScanTs = 0;
+        final List<LogEntry> trace = new ArrayList<>(ENTRY_CNT);
+        while(trace.size() < ENTRY_CNT) {
+            int sensorIdx = 0;
+            for(int i = 1; i < SENSORS.length; ++i) {
+                if(nextTs[i] < nextTs[sensorIdx]) { sensorIdx = i; }
+            }
+            final long ts = nextTs[sensorIdx];
+            nextTs[sensorIdx] += INTERVALS_NS[sensorIdx] + rnd.nextInt(200000);
+            // slight out-of-order delivery of equal-rate sensors, including identical timestamps
+            trace.add(new LogEntry((rnd.nextInt(50) == 0) ? Math.max(0, ts - rnd.nextInt(3) * 1000000L) : ts, SENSORS[sensorIdx], line));
+            if(ts >= nextWifiScanTs) { // wifi scan results arrive in a burst, with timestamps up to 4 seconds old
+                nextWifiScanTs = ts + 3 * SECOND_NS;
+                final int apCnt = 5 + rnd.nextInt(30);
+                for(int i = 0; i < apCnt; ++i) {
+                    trace.add(new LogEntry(Math.max(0, ts - rnd.nextInt(4000) * 1000000L), SensorType.WIFI, line));
+                }
+                // step detections are only known after the step is complete
+                trace.add(new LogEntry(Math.max(0, ts - SECOND_NS), SensorType.STEP_DETECTOR, line));
+            }
+        }
+        entries = trace.subList(0, ENTRY_CNT).toArray(new LogEntry[0]);
+        mergingBuffer = new ReorderBuffer(LOWER_NS, consumer);
+        sortingBuffer = new SortingReorderBuffer(UPPER_NS, LOWER_NS, consumer);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ENTRY_CNT)
+    public void replayMerging() {
+        ReorderBuffer buffer = new ReorderBuffer(LOWER_NS, consumer);
+        for(LogEntry entry : entries) { buffer.add(entry); }
+        buffer.flush();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ENTRY_CNT)
+    public void replaySorting() {
+        SortingReorderBuffer buffer = new SortingReorderBuffer(UPPER_NS, LOWER_NS, consumer);
+        for(LogEntry entry : entries) { buffer.add(entry); }
+        buffer.flush();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void addMerging() {
+        mergingBuffer.add(entries[mergingIdx]);
+        if(++mergingIdx == ENTRY_CNT) { // the trace starts over at timestamp 0
+            mergingIdx = 0;
+            mergingBuffer = new ReorderBuffer(LOWER_NS, consumer);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void addSorting() {
+        sortingBuffer.add(entries[sortingIdx]);
+        if(++sortingIdx == ENTRY_CNT) { // the trace starts over at timestamp 0
+            sortingIdx = 0;
+            sortingBuffer = new SortingReorderBuffer(UPPER_NS, LOWER_NS, consumer);
+        }
+    }
+
+}
@@ -0,0 +1,57 @@
+package de.fhws.indoor.libsmartphonesensors.loggers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The original sort-on-commit reorder buffer of TimedOrderedLogger.
+ * Kept as reference implementation for the benchmarks of ReorderBuffer.
+ */
+class SortingReorderBuffer {
+    private final long timeframeUpperNs;
+    private final long timeframeLowerNs;
+    private long oldestTs = Long.MAX_VALUE;
+    private long newestTs = Long.MIN_VALUE;
+    private ArrayList<LogEntry> reorderBuffer = new ArrayList<>();
+    private ReorderBuffer.CommitListener listener;
+
+    public SortingReorderBuffer(long timeframeUpperNs, long timeframeLowerNs, ReorderBuffer.CommitListener listener) {
+        this.timeframeUpperNs = timeframeUpperNs;
+        this.timeframeLowerNs = timeframeLowerNs;
+        this.listener = listener;
+    }
+
+    public void add(LogEntry logEntry) {
+        if(logEntry.timestamp < oldestTs) { oldestTs = logEntry.timestamp; }
+        if(logEntry.timestamp > newestTs) { newestTs = logEntry.timestamp; }
+        reorderBuffer.add(logEntry);
+        if((newestTs - oldestTs) > timeframeUpperNs) { // commit required
+            Collections.sort(reorderBuffer);
+            long commitEndTs = (newestTs - timeframeLowerNs);
+            int commitEndIdx = 0;
+            for(; commitEndIdx < reorderBuffer.size() && reorderBuffer.get(commitEndIdx).timestamp <= commitEndTs; ++commitEndIdx) {}
+
+            List<LogEntry> commit = reorderBuffer.subList(0, commitEndIdx);
+            this.listener.onCommit(commit);
+            commit.clear();
+
+            if(reorderBuffer.size() > 0) {
+                oldestTs = reorderBuffer.get(0).timestamp;
+                newestTs = reorderBuffer.get(reorderBuffer.size() - 1).timestamp;
+            } else {
+                oldestTs = newestTs;
+            }
+        }
+    }
+
+    public void flush() {
+        Collections.sort(reorderBuffer);
+        this.listener.onCommit(reorderBuffer);
+        reorderBuffer.clear();
+    }
+
+    public int size() {
+        return reorderBuffer.size();
+    }
+}
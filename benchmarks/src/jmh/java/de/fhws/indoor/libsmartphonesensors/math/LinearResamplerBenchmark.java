@@ -0,0 +1,58 @@
+package de.fhws.indoor.libsmartphonesensors.math;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Cost of pushing one 3-dimensional 200Hz sample into a 50Hz resampler (as used by the StepDetector),
+ * one by one with a callback, and in batches of BATCH_SIZE samples (scores are per input sample).
+ */
+@State(Scope.Thread)
+public class LinearResamplerBenchmark {
+
+    private static final long SAMPLE_INTERVAL_NS = 5_000_000;
+    private static final int BATCH_SIZE = 1024;
+
+    private LinearResampler resampler;
+    private final float[] sample = new float[3];
+    private final float[] outSample = new float[3];
+    private long timestamp;
+    private LinearResampler batchResampler;
+    private final long[] batchTimestamps = new long[BATCH_SIZE];
+    private final float[] batchSamples = new float[BATCH_SIZE * 3];
+    private final long[] outTimestamps = new long[BATCH_SIZE];
+    private final float[] outSamples = new float[BATCH_SIZE * 3];
+
+    @Setup
+    public void setup() {
+        resampler = new LinearResampler(3, 50, 0);
+        batchResampler = new LinearResampler(3, 50, 0);
+        timestamp = 0;
+        for(int i = 0; i < BATCH_SIZE; ++i) {
+            batchSamples[i * 3] = (i >> 4) & 0xFF;
+            batchSamples[i * 3 + 1] = -9.81f;
+        }
+    }
+
+    @Benchmark
+    public void pushSample(final Blackhole blackhole) {
+        timestamp += SAMPLE_INTERVAL_NS;
+        sample[0] = (timestamp >> 20) & 0xFF;
+        resampler.pushSample(timestamp, sample, outSample, (timestampNs, resampled) -> blackhole.consume(resampled));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int pushSamplesBatch() {
+        for(int i = 0; i < BATCH_SIZE; ++i) {
+            timestamp += SAMPLE_INTERVAL_NS;
+            batchTimestamps[i] = timestamp;
+        }
+        return batchResampler.pushSamples(batchTimestamps, batchSamples, BATCH_SIZE, outTimestamps, outSamples);
+    }
+
+}
@@ -0,0 +1,31 @@
+package de.fhws.indoor.libsmartphonesensors.math;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cost of one MadgwickFilter update step at 100Hz.
+ */
+@State(Scope.Thread)
+public class MadgwickFilterBenchmark {
+
+    private static final long SAMPLE_INTERVAL_NS = 10_000_000;
+
+    private MadgwickFilter filter;
+    private final Vec3 accel = new Vec3(0.1, 0.2, 9.81);
+    private final Vec3 gyro = new Vec3(0.01, -0.02, 0.03);
+
+    @Setup
+    public void setup() {
+        filter = new MadgwickFilter(0.1);
+    }
+
+    @Benchmark
+    public Quaternion calculate() {
+        filter.calculcate(SAMPLE_INTERVAL_NS, accel, gyro);
+        return filter.getQuaternion();
+    }
+
+}
@@ -0,0 +1,67 @@
+package de.fhws.indoor.libsmartphonesensors.sensors;
+
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+
+import de.fhws.indoor.libsmartphonesensors.SensorDataInterface;
+import de.fhws.indoor.libsmartphonesensors.SensorType;
+
+/**
+ * Reference for PhoneSensorsBenchmark: PhoneSensors.onSensorChanged()'s dispatch as it was before the
+ * per-type route table, one if / else branch per sensor type, in the original order.
+ * Only the dispatch is kept, the orientation update of the magnetometer branch is left out
+ * (the mixed benchmark does not contain magnetometer events).
+ */
+class IfElseSensorDispatcher {
+
+	private final SensorDataInterface sensorDataInterface;
+	private final float[] mGravity = new float[3];
+	private final float[] mGeomagnetic = new float[3];
+	private boolean hasGravity = false;
+	private boolean hasGeomagnetic = false;
+
+	IfElseSensorDispatcher(SensorDataInterface sensorDataInterface) {
+		this.sensorDataInterface = sensorDataInterface;
+	}
+
+	boolean hasGravity() { return hasGravity; }
+	boolean hasGeomagnetic() { return hasGeomagnetic; }
+
+	public void onSensorChanged(SensorEvent event) {
+		if(sensorDataInterface == null) { return; }
+		if(event.sensor.getType() == Sensor.TYPE_ORIENTATION) {
+			emit(event.timestamp, SensorType.ORIENTATION_OLD, event.values, 3);
+		} else if(event.sensor.getType() == Sensor.TYPE_LIGHT) {
+			emit(event.timestamp, SensorType.LIGHT, event.values, 1);
+		} else if(event.sensor.getType() == Sensor.TYPE_AMBIENT_TEMPERATURE) {
+			emit(event.timestamp, SensorType.AMBIENT_TEMPERATURE, event.values, 1);
+		} else if(event.sensor.getType() == Sensor.TYPE_RELATIVE_HUMIDITY) {
+			emit(event.timestamp, SensorType.RELATIVE_HUMIDITY, event.values, 1);
+		} else if(event.sensor.getType() == Sensor.TYPE_ROTATION_VECTOR) {
+			emit(event.timestamp, SensorType.ROTATION_VECTOR, event.values, Math.min(event.values.length, 4));
+		} else if(event.sensor.getType() == Sensor.TYPE_GYROSCOPE) {
+			emit(event.timestamp, SensorType.GYROSCOPE, event.values, 3);
+		} else if(event.sensor.getType() == Sensor.TYPE_PRESSURE) {
+			emit(event.timestamp, SensorType.PRESSURE, event.values, 1);
+		} else if(event.sensor.getType() == Sensor.TYPE_LINEAR_ACCELERATION) {
+			emit(event.timestamp, SensorType.LINEAR_ACCELERATION, event.values, 3);
+		} else if(event.sensor.getType() == Sensor.TYPE_GRAVITY) {
+			emit(event.timestamp, SensorType.GRAVITY, event.values, 3);
+		} else if(event.sensor.getType() == Sensor.TYPE_ACCELEROMETER) {
+			emit(event.timestamp, SensorType.ACCELEROMETER, event.values, 3);
+			System.arraycopy(event.values, 0, mGravity, 0, 3);
+			hasGravity = true;
+		} else if(event.sensor.getType() == Sensor.TYPE_MAGNETIC_FIELD) {
+			emit(event.timestamp, SensorType.MAGNETIC_FIELD, event.values, 3);
+			System.arraycopy(event.values, 0, mGeomagnetic, 0, 3);
+			hasGeomagnetic = true;
+		} else if(event.sensor.getType() == Sensor.TYPE_GAME_ROTATION_VECTOR) {
+			emit(event.timestamp, SensorType.GAME_ROTATION_VECTOR, event.values, 3);
+		}
+	}
+
+	private void emit(final long timestamp, final SensorType sensorType, final float[] values, final int count) {
+		sensorDataInterface.onData(timestamp, sensorType, values, count);
+	}
+
+}
@@ -0,0 +1,42 @@
+package de.fhws.indoor.libsmartphonesensors.sensors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Cost of the StepDetector's long-term percentile calculation, which runs for every sample while walking,
+ * for the default window (100) and a larger one.
+ */
+@State(Scope.Thread)
+public class MovementBufferBenchmark {
+
+    private static final int[] PERCENTS = {25, 75};
+
+    @Param({"100", "1000"})
+    public int windowSize;
+
+    private DoubleHysteresisStepDetector.MovementBuffer buffer;
+    private final Random random = new Random(1);
+    private final double[] result = new double[PERCENTS.length];
+
+    @Setup
+    public void setup() {
+        buffer = new DoubleHysteresisStepDetector.MovementBuffer(windowSize);
+        for(int i = 0; i < windowSize; ++i) {
+            buffer.insert(random.nextGaussian());
+        }
+    }
+
+    @Benchmark
+    public double[] insertAndPercentiles() {
+        buffer.insert(random.nextGaussian());
+        buffer.percentiles(PERCENTS, result);
+        return result;
+    }
+
+}
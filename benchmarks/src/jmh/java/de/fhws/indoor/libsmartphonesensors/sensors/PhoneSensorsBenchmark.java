@@ -0,0 +1,109 @@
+package de.fhws.indoor.libsmartphonesensors.sensors;
+
+import android.app.Activity;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.OutputStream;
+
+import de.fhws.indoor.libsmartphonesensors.SensorDataInterface;
+import de.fhws.indoor.libsmartphonesensors.SensorType;
+
+/**
+ * Cost of PhoneSensors.onSensorChanged() for a 3-axis sensor event, and for a magnetometer event
+ * (which additionally computes the orientation). onSensorChangedMixed() cycles through events of
+ * various sensor types, and consumes the typed values instead of csv, to measure the per-event dispatch.
+ * onSensorChangedMixedIfElse() runs the same events through the former if / else dispatch for comparison.
+ */
+@State(Scope.Thread)
+public class PhoneSensorsBenchmark {
+
+    private PhoneSensors phoneSensors;
+    private PhoneSensors dispatchPhoneSensors;
+    private IfElseSensorDispatcher ifElseDispatcher;
+    private SensorEvent accelerometerEvent;
+    private SensorEvent magnetometerEvent;
+    private SensorEvent[] mixedEvents;
+    private int mixedIdx = 0;
+    private Blackhole blackhole;
+
+    @Setup
+    public void setup(final Blackhole blackhole) {
+        this.blackhole = blackhole;
+        phoneSensors = new PhoneSensors(new SensorDataInterface() {
+            @Override public long getStartTimestamp() { return 0; }
+            @Override public void onData(long timestamp, SensorType id, String csv) { PhoneSensorsBenchmark.this.blackhole.consume(csv); }
+            @Override public OutputStream requestAuxiliaryChannel(String id) { throw new UnsupportedOperationException(); }
+        }, new Activity());
+        accelerometerEvent = new SensorEvent(new Sensor(Sensor.TYPE_ACCELEROMETER), 3);
+        accelerometerEvent.values[0] = 0.0123f;
+        accelerometerEvent.values[1] = -9.80665f;
+        accelerometerEvent.values[2] = 0.4711f;
+        magnetometerEvent = new SensorEvent(new Sensor(Sensor.TYPE_MAGNETIC_FIELD), 3);
+        magnetometerEvent.values[0] = 22.5f;
+        magnetometerEvent.values[1] = -5.25f;
+        magnetometerEvent.values[2] = -40.125f;
+        phoneSensors.onSensorChanged(accelerometerEvent);
+        final int[] mixedTypes = new int[]{
+                Sensor.TYPE_ACCELEROMETER, Sensor.TYPE_GYROSCOPE, Sensor.TYPE_ACCELEROMETER, Sensor.TYPE_LINEAR_ACCELERATION,
+                Sensor.TYPE_ACCELEROMETER, Sensor.TYPE_GRAVITY, Sensor.TYPE_ACCELEROMETER, Sensor.TYPE_ROTATION_VECTOR,
+                Sensor.TYPE_ACCELEROMETER, Sensor.TYPE_GAME_ROTATION_VECTOR, Sensor.TYPE_ACCELEROMETER, Sensor.TYPE_PRESSURE,
+                Sensor.TYPE_ACCELEROMETER, Sensor.TYPE_GYROSCOPE, Sensor.TYPE_ACCELEROMETER, Sensor.TYPE_LIGHT,
+        };
+        final SensorDataInterface dispatchInterface = new SensorDataInterface() {
+            @Override public long getStartTimestamp() { return 0; }
+            @Override public void onData(long timestamp, SensorType id, String csv) { PhoneSensorsBenchmark.this.blackhole.consume(csv); }
+            @Override public void onData(long timestamp, SensorType id, float[] values, int count) {
+                PhoneSensorsBenchmark.this.blackhole.consume(id);
+                PhoneSensorsBenchmark.this.blackhole.consume(values[count - 1]);
+            }
+            @Override public OutputStream requestAuxiliaryChannel(String id) { throw new UnsupportedOperationException(); }
+        };
+        dispatchPhoneSensors = new PhoneSensors(dispatchInterface, new Activity());
+        ifElseDispatcher = new IfElseSensorDispatcher(dispatchInterface);
+        mixedEvents = new SensorEvent[mixedTypes.length];
+        for(int i = 0; i < mixedTypes.length; ++i) {
+            mixedEvents[i] = new SensorEvent(new Sensor(mixedTypes[i]), 4);
+            mixedEvents[i].values[0] = 0.25f * i;
+            mixedEvents[i].values[1] = 9.80665f;
+        }
+    }
+
+    @Benchmark
+    public void onSensorChangedAccelerometer() {
+        accelerometerEvent.timestamp += 10_000_000;
+        accelerometerEvent.values[0] += 0.001f;
+        phoneSensors.onSensorChanged(accelerometerEvent);
+    }
+
+    @Benchmark
+    public void onSensorChangedMagnetometer() {
+        magnetometerEvent.timestamp += 20_000_000;
+        magnetometerEvent.values[0] += 0.001f;
+        phoneSensors.onSensorChanged(magnetometerEvent);
+    }
+
+    @Benchmark
+    public void onSensorChangedMixed() {
+        final SensorEvent event = mixedEvents[mixedIdx];
+        mixedIdx = (mixedIdx + 1) % mixedEvents.length;
+        event.timestamp += 1_000_000;
+        dispatchPhoneSensors.onSensorChanged(event);
+    }
+
+    /** same events as onSensorChangedMixed(), through the if / else chain PhoneSensors used before the route table */
+    @Benchmark
+    public void onSensorChangedMixedIfElse() {
+        final SensorEvent event = mixedEvents[mixedIdx];
+        mixedIdx = (mixedIdx + 1) % mixedEvents.length;
+        event.timestamp += 1_000_000;
+        ifElseDispatcher.onSensorChanged(event);
+    }
+
+}
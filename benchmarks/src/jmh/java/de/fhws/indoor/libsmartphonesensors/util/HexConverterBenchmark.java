@@ -0,0 +1,33 @@
+package de.fhws.indoor.libsmartphonesensors.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Cost of hex-encoding a MAC address (6 bytes) and a typical BLE advertisement payload (31 bytes).
+ */
+@State(Scope.Thread)
+public class HexConverterBenchmark {
+
+    @Param({"6", "31"})
+    public int length;
+
+    private byte[] data;
+
+    @Setup
+    public void setup() {
+        data = new byte[length];
+        new Random(1).nextBytes(data);
+    }
+
+    @Benchmark
+    public String bytesToHex() {
+        return HexConverter.bytesToHex(data);
+    }
+
+}
@@ -0,0 +1,14 @@
+package android.app;
+
+import android.content.Context;
+import android.hardware.SensorManager;
+
+/** Benchmark stub of the android Activity, providing a stub SensorManager. */
+public class Activity extends Context {
+    private final SensorManager sensorManager = new SensorManager();
+
+    @Override
+    public Object getSystemService(String name) {
+        return SENSOR_SERVICE.equals(name) ? sensorManager : null;
+    }
+}
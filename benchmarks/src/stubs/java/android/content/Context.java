@@ -0,0 +1,10 @@
+package android.content;
+
+/** Benchmark stub of the android Context. Only serves system services registered by the benchmark. */
+public abstract class Context {
+    public static final String SENSOR_SERVICE = "sensor";
+
+    public Object getSystemService(String name) {
+        return null;
+    }
+}
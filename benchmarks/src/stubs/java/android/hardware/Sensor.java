@@ -0,0 +1,38 @@
+package android.hardware;
+
+/** Benchmark stub of an android Sensor, that only knows its type. */
+public class Sensor {
+    public static final int TYPE_ACCELEROMETER = 1;
+    public static final int TYPE_MAGNETIC_FIELD = 2;
+    public static final int TYPE_ORIENTATION = 3;
+    public static final int TYPE_GYROSCOPE = 4;
+    public static final int TYPE_LIGHT = 5;
+    public static final int TYPE_PRESSURE = 6;
+    public static final int TYPE_GRAVITY = 9;
+    public static final int TYPE_LINEAR_ACCELERATION = 10;
+    public static final int TYPE_ROTATION_VECTOR = 11;
+    public static final int TYPE_RELATIVE_HUMIDITY = 12;
+    public static final int TYPE_AMBIENT_TEMPERATURE = 13;
+    public static final int TYPE_GAME_ROTATION_VECTOR = 15;
+    public static final int TYPE_HEART_RATE = 21;
+
+    private final int type;
+
+    public Sensor(int type) {
+        this.type = type;
+    }
+
+    public int getType() { return type; }
+    public String getStringType() { return "stub." + type; }
+    public String getVendor() { return "stub"; }
+    public String getName() { return "stub sensor " + type; }
+    public int getVersion() { return 1; }
+    public int getMinDelay() { return 0; }
+    public int getMaxDelay() { return 0; }
+    public float getMaximumRange() { return 0; }
+    public float getPower() { return 0; }
+    public int getReportingMode() { return 0; }
+    public float getResolution() { return 0; }
+    public int getFifoMaxEventCount() { return 0; }
+    public int getFifoReservedEventCount() { return 0; }
+}
@@ -0,0 +1,14 @@
+package android.hardware;
+
+/** Benchmark stub of an android SensorEvent. Unlike on android, it can be constructed freely. */
+public class SensorEvent {
+    public final float[] values;
+    public Sensor sensor;
+    public long timestamp;
+    public int accuracy;
+
+    public SensorEvent(Sensor sensor, int valueCnt) {
+        this.sensor = sensor;
+        this.values = new float[valueCnt];
+    }
+}
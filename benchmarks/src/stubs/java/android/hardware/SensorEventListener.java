@@ -0,0 +1,7 @@
+package android.hardware;
+
+/** Benchmark stub of the android SensorEventListener. */
+public interface SensorEventListener {
+    void onSensorChanged(SensorEvent event);
+    void onAccuracyChanged(Sensor sensor, int accuracy);
+}
@@ -0,0 +1,6 @@
+package android.hardware;
+
+/** Benchmark stub of the android SensorEventListener2. */
+public interface SensorEventListener2 extends SensorEventListener {
+    void onFlushCompleted(Sensor sensor);
+}
@@ -0,0 +1,85 @@
+package android.hardware;
+
+/**
+ * Benchmark stub of the android SensorManager.
+ * Every sensor type is available, but registered listeners never receive events; benchmarks
+ * call the listeners directly.
+ */
+public class SensorManager {
+    public static final int SENSOR_DELAY_FASTEST = 0;
+    public static final int SENSOR_DELAY_GAME = 1;
+
+    public Sensor getDefaultSensor(int type) {
+        return new Sensor(type);
+    }
+
+    public boolean registerListener(SensorEventListener listener, Sensor sensor, int samplingPeriodUs) {
+        return true;
+    }
+
+    public boolean registerListener(SensorEventListener listener, Sensor sensor, int samplingPeriodUs, int maxReportLatencyUs) {
+        return true;
+    }
+
+    public boolean registerListener(SensorEventListener listener, Sensor sensor, int samplingPeriodUs, android.os.Handler handler) {
+        return true;
+    }
+
+    public boolean registerListener(SensorEventListener listener, Sensor sensor, int samplingPeriodUs, int maxReportLatencyUs, android.os.Handler handler) {
+        return true;
+    }
+
+    public void unregisterListener(SensorEventListener listener) {}
+
+    public boolean flush(SensorEventListener listener) {
+        return true;
+    }
+
+    /** Same computation as android's SensorManager.getRotationMatrix(), for 3x3 matrices. */
+    public static boolean getRotationMatrix(float[] R, float[] I, float[] gravity, float[] geomagnetic) {
+        float Ax = gravity[0], Ay = gravity[1], Az = gravity[2];
+        final float normsqA = (Ax * Ax + Ay * Ay + Az * Az);
+        final float g = 9.81f;
+        final float freeFallGravitySquared = 0.01f * g * g;
+        if (normsqA < freeFallGravitySquared) {
+            return false;
+        }
+        final float Ex = geomagnetic[0], Ey = geomagnetic[1], Ez = geomagnetic[2];
+        float Hx = Ey * Az - Ez * Ay;
+        float Hy = Ez * Ax - Ex * Az;
+        float Hz = Ex * Ay - Ey * Ax;
+        final float normH = (float) Math.sqrt(Hx * Hx + Hy * Hy + Hz * Hz);
+        if (normH < 0.1f) {
+            return false;
+        }
+        final float invH = 1.0f / normH;
+        Hx *= invH; Hy *= invH; Hz *= invH;
+        final float invA = 1.0f / (float) Math.sqrt(normsqA);
+        Ax *= invA; Ay *= invA; Az *= invA;
+        final float Mx = Ay * Hz - Az * Hy;
+        final float My = Az * Hx - Ax * Hz;
+        final float Mz = Ax * Hy - Ay * Hx;
+        if (R != null) {
+            R[0] = Hx; R[1] = Hy; R[2] = Hz;
+            R[3] = Mx; R[4] = My; R[5] = Mz;
+            R[6] = Ax; R[7] = Ay; R[8] = Az;
+        }
+        if (I != null) {
+            final float invE = 1.0f / (float) Math.sqrt(Ex * Ex + Ey * Ey + Ez * Ez);
+            final float c = (Ex * Mx + Ey * My + Ez * Mz) * invE;
+            final float s = (Ex * Ax + Ey * Ay + Ez * Az) * invE;
+            I[0] = 1; I[1] = 0; I[2] = 0;
+            I[3] = 0; I[4] = c; I[5] = s;
+            I[6] = 0; I[7] = -s; I[8] = c;
+        }
+        return true;
+    }
+
+    /** Same computation as android's SensorManager.getOrientation(), for 3x3 matrices. */
+    public static float[] getOrientation(float[] R, float[] values) {
+        values[0] = (float) Math.atan2(R[1], R[4]);
+        values[1] = (float) Math.asin(-R[7]);
+        values[2] = (float) Math.atan2(-R[6], R[8]);
+        return values;
+    }
+}
@@ -0,0 +1,11 @@
+package android.os;
+
+/** Benchmark stub of the android Build information. */
+public class Build {
+    public static final String MANUFACTURER = "stub";
+    public static final String MODEL = "stub";
+
+    public static class VERSION {
+        public static final int SDK_INT = 33;
+    }
+}
@@ -0,0 +1,16 @@
+package android.os;
+
+/** Benchmark stub of the android Handler (benchmarks deliver events on the calling thread). */
+public class Handler {
+    public Handler() {}
+
+    public Handler(Looper looper) {}
+
+    public final Looper getLooper() {
+        return null;
+    }
+
+    public final boolean postDelayed(Runnable r, long delayMillis) {
+        return false;
+    }
+}
@@ -0,0 +1,14 @@
+package android.os;
+
+/** Benchmark stub of the android Looper (benchmarks deliver events on the calling thread). */
+public final class Looper {
+    private Looper() {}
+
+    public static Looper getMainLooper() {
+        return null;
+    }
+
+    public static Looper myLooper() {
+        return null;
+    }
+}
@@ -0,0 +1,14 @@
+package android.os;
+
+/** Benchmark stub of the android SystemClock. */
+public final class SystemClock {
+    private SystemClock() {}
+
+    public static long elapsedRealtimeNanos() {
+        return System.nanoTime();
+    }
+
+    public static long elapsedRealtime() {
+        return System.nanoTime() / 1000000;
+    }
+}
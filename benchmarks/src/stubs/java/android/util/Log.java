@@ -0,0 +1,12 @@
+package android.util;
+
+/** Benchmark stub of the android Log. Logging is discarded. */
+public final class Log {
+    private Log() {}
+
+    public static int d(String tag, String msg) { return 0; }
+    public static int i(String tag, String msg) { return 0; }
+    public static int w(String tag, String msg) { return 0; }
+    public static int e(String tag, String msg) { return 0; }
+    public static int e(String tag, String msg, Throwable tr) { return 0; }
+}
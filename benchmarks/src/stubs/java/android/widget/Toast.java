@@ -0,0 +1,4 @@
+package android.widget;
+
+/** Benchmark stub of the android Toast. */
+public class Toast {}
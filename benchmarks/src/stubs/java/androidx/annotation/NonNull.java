@@ -0,0 +1,4 @@
+package androidx.annotation;
+
+/** Benchmark stub of the androidx NonNull annotation. */
+public @interface NonNull {}
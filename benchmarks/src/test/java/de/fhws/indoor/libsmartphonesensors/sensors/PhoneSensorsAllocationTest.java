@@ -0,0 +1,117 @@
+package de.fhws.indoor.libsmartphonesensors.sensors;
+
+import android.app.Activity;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+
+import de.fhws.indoor.libsmartphonesensors.SensorDataInterface;
+import de.fhws.indoor.libsmartphonesensors.SensorType;
+
+public class PhoneSensorsAllocationTest {
+
+    /** Counts the received events per SensorType, without allocating */
+    private static class CountingSensorDataInterface implements SensorDataInterface {
+        final long[] counts = new long[SensorType.values().length];
+        float lastYaw = Float.NaN;
+        @Override public long getStartTimestamp() { return 0; }
+        @Override public void onData(long timestamp, SensorType id, String csv) { fail("unexpected csv event: " + id); }
+        @Override public void onData(long timestamp, SensorType id, float[] values, int count) {
+            counts[id.ordinal()] += 1;
+            if(id == SensorType.ORIENTATION_NEW) { lastYaw = values[0]; }
+        }
+        @Override public OutputStream requestAuxiliaryChannel(String id) { throw new UnsupportedOperationException(); }
+    }
+
+    private static SensorEvent event(int type, float x, float y, float z) {
+        SensorEvent event = new SensorEvent(new Sensor(type), 3);
+        event.values[0] = x;
+        event.values[1] = y;
+        event.values[2] = z;
+        return event;
+    }
+
+    @Test
+    public void orientationIsOnlyComputedOnceBothInputsWereReceived() {
+        CountingSensorDataInterface sink = new CountingSensorDataInterface();
+        PhoneSensors phoneSensors = new PhoneSensors(sink, new Activity());
+        phoneSensors.onResume(null);
+        phoneSensors.onSensorChanged(event(Sensor.TYPE_MAGNETIC_FIELD, 22.5f, -5.25f, -40.125f));
+        assertEquals(0, sink.counts[SensorType.ORIENTATION_NEW.ordinal()]);
+        phoneSensors.onSensorChanged(event(Sensor.TYPE_ACCELEROMETER, 0.1f, 0.2f, 9.81f));
+        assertEquals(0, sink.counts[SensorType.ORIENTATION_NEW.ordinal()]);
+        phoneSensors.onSensorChanged(event(Sensor.TYPE_MAGNETIC_FIELD, 22.5f, -5.25f, -40.125f));
+        assertEquals(1, sink.counts[SensorType.ORIENTATION_NEW.ordinal()]);
+        assertEquals(1, sink.counts[SensorType.ROTATION_MATRIX.ordinal()]);
+        assertFalse(Float.isNaN(sink.lastYaw));
+
+        // resuming starts over
+        phoneSensors.onPause(null);
+        phoneSensors.onResume(null);
+        phoneSensors.onSensorChanged(event(Sensor.TYPE_MAGNETIC_FIELD, 22.5f, -5.25f, -40.125f));
+        assertEquals(1, sink.counts[SensorType.ORIENTATION_NEW.ordinal()]);
+    }
+
+    @Test
+    public void orientationRateIsDecoupledFromMagnetometer() {
+        CountingSensorDataInterface sink = new CountingSensorDataInterface();
+        PhoneSensors.Config config = new PhoneSensors.Config();
+        config.ratesHz.put(SensorType.ORIENTATION_NEW, 10.0f);
+        PhoneSensors phoneSensors = new PhoneSensors(sink, new Activity(), config);
+        phoneSensors.onResume(null);
+        SensorEvent acc = event(Sensor.TYPE_ACCELEROMETER, 0.1f, 0.2f, 9.81f);
+        SensorEvent mag = event(Sensor.TYPE_MAGNETIC_FIELD, 22.5f, -5.25f, -40.125f);
+        // 2 seconds: acc at 100 Hz, mag at 25 Hz
+        for(long ts = 0; ts < 2000000000L; ts += 10000000L) {
+            acc.timestamp = ts;
+            phoneSensors.onSensorChanged(acc);
+            if(ts % 40000000L == 0) {
+                mag.timestamp = ts;
+                phoneSensors.onSensorChanged(mag);
+            }
+        }
+        assertEquals(200, sink.counts[SensorType.ACCELEROMETER.ordinal()]);
+        assertEquals(50, sink.counts[SensorType.MAGNETIC_FIELD.ordinal()]);
+        assertEquals(20, sink.counts[SensorType.ORIENTATION_NEW.ordinal()]);
+        assertEquals(20, sink.counts[SensorType.ROTATION_MATRIX.ordinal()]);
+    }
+
+    @Test
+    public void orientationUpdateDoesNotAllocate() {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+        final long threadId = Thread.currentThread().getId();
+        final int iterations = 100000;
+
+        CountingSensorDataInterface sink = new CountingSensorDataInterface();
+        PhoneSensors phoneSensors = new PhoneSensors(sink, new Activity());
+        phoneSensors.onResume(null);
+        SensorEvent acc = event(Sensor.TYPE_ACCELEROMETER, 0.1f, 0.2f, 9.81f);
+        SensorEvent mag = event(Sensor.TYPE_MAGNETIC_FIELD, 22.5f, -5.25f, -40.125f);
+        long bytes = 0;
+        for(int warmup = 0; warmup < 3; ++warmup) {
+            long start = threadMXBean.getThreadAllocatedBytes(threadId);
+            for(int i = 0; i < iterations; ++i) {
+                acc.timestamp += 10000000L;
+                phoneSensors.onSensorChanged(acc);
+                mag.timestamp = acc.timestamp;
+                mag.values[0] += 0.001f;
+                phoneSensors.onSensorChanged(mag);
+            }
+            bytes = threadMXBean.getThreadAllocatedBytes(threadId) - start;
+        }
+        assertEquals(3L * iterations, sink.counts[SensorType.ORIENTATION_NEW.ordinal()]);
+        // no allocation per event (the allowance covers a few measurement artifacts)
+        assertTrue("allocated " + bytes + " bytes", bytes < 1024);
+    }
+
+}
@@ -0,0 +1,73 @@
+package de.fhws.indoor.libsmartphonesensors.sensors;
+
+import android.app.Activity;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.io.OutputStream;
+
+import de.fhws.indoor.libsmartphonesensors.SensorDataInterface;
+import de.fhws.indoor.libsmartphonesensors.SensorType;
+
+public class PhoneSensorsDispatchTest {
+
+    /** Remembers the last received event */
+    private static class LastEventSensorDataInterface implements SensorDataInterface {
+        SensorType lastType = null;
+        int lastCount = -1;
+        int eventCnt = 0;
+        @Override public long getStartTimestamp() { return 0; }
+        @Override public void onData(long timestamp, SensorType id, String csv) { fail("unexpected csv event: " + id); }
+        @Override public void onData(long timestamp, SensorType id, float[] values, int count) {
+            if(id == SensorType.ORIENTATION_NEW || id == SensorType.ROTATION_MATRIX) { return; }
+            lastType = id;
+            lastCount = count;
+            eventCnt += 1;
+        }
+        @Override public OutputStream requestAuxiliaryChannel(String id) { throw new UnsupportedOperationException(); }
+    }
+
+    private static void assertRoute(PhoneSensors phoneSensors, LastEventSensorDataInterface sink,
+                                    int androidType, int valueCnt, SensorType expectedType, int expectedCount) {
+        SensorEvent event = new SensorEvent(new Sensor(androidType), valueCnt);
+        event.values[0] = 1.0f;
+        phoneSensors.onSensorChanged(event);
+        assertEquals(expectedType, sink.lastType);
+        assertEquals(expectedCount, sink.lastCount);
+    }
+
+    @Test
+    public void eventsAreRoutedToTheirSensorType() {
+        LastEventSensorDataInterface sink = new LastEventSensorDataInterface();
+        PhoneSensors phoneSensors = new PhoneSensors(sink, new Activity());
+        assertRoute(phoneSensors, sink, Sensor.TYPE_ACCELEROMETER, 3, SensorType.ACCELEROMETER, 3);
+        assertRoute(phoneSensors, sink, Sensor.TYPE_GRAVITY, 3, SensorType.GRAVITY, 3);
+        assertRoute(phoneSensors, sink, Sensor.TYPE_GYROSCOPE, 3, SensorType.GYROSCOPE, 3);
+        assertRoute(phoneSensors, sink, Sensor.TYPE_LINEAR_ACCELERATION, 3, SensorType.LINEAR_ACCELERATION, 3);
+        assertRoute(phoneSensors, sink, Sensor.TYPE_MAGNETIC_FIELD, 3, SensorType.MAGNETIC_FIELD, 3);
+        assertRoute(phoneSensors, sink, Sensor.TYPE_PRESSURE, 1, SensorType.PRESSURE, 1);
+        assertRoute(phoneSensors, sink, Sensor.TYPE_ORIENTATION, 3, SensorType.ORIENTATION_OLD, 3);
+        assertRoute(phoneSensors, sink, Sensor.TYPE_RELATIVE_HUMIDITY, 1, SensorType.RELATIVE_HUMIDITY, 1);
+        assertRoute(phoneSensors, sink, Sensor.TYPE_LIGHT, 1, SensorType.LIGHT, 1);
+        assertRoute(phoneSensors, sink, Sensor.TYPE_AMBIENT_TEMPERATURE, 1, SensorType.AMBIENT_TEMPERATURE, 1);
+        assertRoute(phoneSensors, sink, Sensor.TYPE_GAME_ROTATION_VECTOR, 4, SensorType.GAME_ROTATION_VECTOR, 3);
+        // the scalar component of the rotation vector is optional
+        assertRoute(phoneSensors, sink, Sensor.TYPE_ROTATION_VECTOR, 5, SensorType.ROTATION_VECTOR, 4);
+        assertRoute(phoneSensors, sink, Sensor.TYPE_ROTATION_VECTOR, 3, SensorType.ROTATION_VECTOR, 3);
+        assertEquals(13, sink.eventCnt);
+    }
+
+    @Test
+    public void unknownSensorTypesAreIgnored() {
+        LastEventSensorDataInterface sink = new LastEventSensorDataInterface();
+        PhoneSensors phoneSensors = new PhoneSensors(sink, new Activity());
+        phoneSensors.onSensorChanged(new SensorEvent(new Sensor(Sensor.TYPE_HEART_RATE), 1));
+        phoneSensors.onSensorChanged(new SensorEvent(new Sensor(65562), 1));
+        assertEquals(0, sink.eventCnt);
+    }
+
+}
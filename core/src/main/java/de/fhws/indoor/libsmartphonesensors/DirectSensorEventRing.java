@@ -0,0 +1,289 @@
+package de.fhws.indoor.libsmartphonesensors;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Single-producer / single-consumer ring of sensor events in a direct ByteBuffer, using a fixed binary layout.
+ * <p>
+ *     This is meant to hand events to native code (see SensorManagerJni), without creating a String
+ *     per event and without crossing JNI per event. Native code gets the ring's memory once
+ *     (GetDirectBufferAddress) and reads the records from it directly.
+ *
+ *     The head / tail handshake is not part of the shared memory: java 8 (and android below API 26,
+ *     where D8 rejects VarHandle accesses) has no release / acquire accesses to a direct ByteBuffer's
+ *     memory, and plain ByteBuffer writes may become visible to native code in any order. Instead, both
+ *     counters are java volatiles, with the following contract:
+ *     <ul>
+ *       <li>tail: bytes written in total. The producer writes all records, then publishes the tail
+ *       (publish(), a volatile write). A consumer that read a tail (getPublishedTail(), a volatile read)
+ *       sees all records before it completely written.</li>
+ *       <li>head: bytes consumed in total. The consumer reads all records before it, then releases them
+ *       (release(head), a volatile write). The producer reads the head (volatile read) before it reuses
+ *       the space, so it never overwrites a record that is still being read.</li>
+ *     </ul>
+ *     A native consumer gets the tail as argument of SensorManagerJni's onSensorEventsAvailable(tail)
+ *     call and returns the head it consumed up to, so JNI is crossed once per batch. Without that signal,
+ *     it polls getEventRingTail() and releases with releaseEventRing(head). The JNI call itself orders
+ *     the native accesses against the volatile accesses. If native code passes the tail on to another
+ *     thread, it has to do so with release / acquire semantics (e.g. std::atomic) itself.
+ *
+ *     All values are stored in native byte order. Layout:
+ *     <pre>
+ *     header:
+ *       [0]   int32   MAGIC
+ *       [4]   int32   VERSION
+ *       [8]   int32   capacity of the data region in bytes (power of two)
+ *     data region, starting at DATA_OFFSET, record at (position &amp; (capacity - 1)):
+ *       [0]   int32   record length in bytes (including this header and padding, multiple of 8)
+ *       [4]   int32   SensorType id
+ *       [8]   int64   timestamp
+ *       [16]  int32   payload kind (KIND_CSV, KIND_FLOATS, KIND_LONGS, or KIND_WRAP)
+ *       [20]  int32   payload count (floats, longs, or utf-8 bytes)
+ *       [24]  payload (float32 / int64 values, or utf-8 text), padded to 8 bytes
+ *     </pre>
+ *     A record never wraps around the end of the data region. If it does not fit, a KIND_WRAP record
+ *     fills the rest of the region (only its length is valid) and the record starts at the beginning.
+ *     If less than RECORD_PAYLOAD_OFFSET bytes are left in the region, these are always skipped that way.
+ *
+ *     Events that do not fit into the ring (consumer too slow) are dropped and counted.
+ *     Writing is only allowed from a single thread, e.g. the delivery thread of a batched
+ *     SensorDataDispatcher subscription (this class is a SensorDataBatch.Listener for that reason).
+ * </p>
+ */
+public final class DirectSensorEventRing implements SensorDataBatch.Listener {
+
+    public static final int MAGIC = 0x53455652; // "SEVR"
+    public static final int VERSION = 2;
+
+    public static final int MAGIC_OFFSET = 0;
+    public static final int VERSION_OFFSET = 4;
+    public static final int CAPACITY_OFFSET = 8;
+    public static final int DATA_OFFSET = 64;
+
+    public static final int RECORD_LENGTH_OFFSET = 0;
+    public static final int RECORD_SENSOR_OFFSET = 4;
+    public static final int RECORD_TIMESTAMP_OFFSET = 8;
+    public static final int RECORD_KIND_OFFSET = 16;
+    public static final int RECORD_COUNT_OFFSET = 20;
+    public static final int RECORD_PAYLOAD_OFFSET = 24;
+
+    public static final int KIND_CSV = SensorDataBatch.KIND_CSV;
+    public static final int KIND_FLOATS = SensorDataBatch.KIND_FLOATS;
+    public static final int KIND_LONGS = SensorDataBatch.KIND_LONGS;
+    public static final int KIND_WRAP = -1;
+
+    private final ByteBuffer buffer;
+    private final int capacity;
+    private final int mask;
+    // producer-local state
+    private long tail = 0;
+    private long cachedHead = 0;
+    // handshake: bytes written in total (published by the producer) / consumed in total (released by the consumer)
+    private volatile long publishedTail = 0;
+    private volatile long consumedHead = 0;
+    // only written by the producer
+    private volatile long dropped = 0;
+
+    /**
+     * @param capacity Size of the data region in bytes, rounded up to the next power of two.
+     */
+    public DirectSensorEventRing(int capacity) {
+        this.capacity = Integer.highestOneBit(Math.max(64, capacity) - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.buffer = ByteBuffer.allocateDirect(DATA_OFFSET + this.capacity).order(ByteOrder.nativeOrder());
+        buffer.putInt(MAGIC_OFFSET, MAGIC);
+        buffer.putInt(VERSION_OFFSET, VERSION);
+        buffer.putInt(CAPACITY_OFFSET, this.capacity);
+    }
+
+    /** The ring's memory, to be handed to the consumer */
+    public ByteBuffer buffer() { return buffer; }
+    public int capacity() { return capacity; }
+    /** Amount of events dropped, because the ring was full (may be called from any thread) */
+    public long getDroppedCount() { return dropped; }
+
+    /** Bytes written in total, up to which the records are complete. Read by the consumer before the records. */
+    public long getPublishedTail() { return publishedTail; }
+
+    /**
+     * Hand the space of all records before head back to the producer. Called by the consumer after
+     * it is done reading them.
+     * @param head Bytes consumed in total (the tail up to which the records were read)
+     */
+    public void release(long head) {
+        if(head < consumedHead || head > publishedTail) {
+            throw new IllegalArgumentException("head " + head + " outside of [" + consumedHead + ", " + publishedTail + "]");
+        }
+        consumedHead = head;
+    }
+
+    /** Write all events of the given batch, and publish them at once. */
+    @Override
+    public void onBatch(SensorDataBatch batch) {
+        for(int i = 0; i < batch.size(); ++i) {
+            switch (batch.getKind(i)) {
+                case SensorDataBatch.KIND_CSV:
+                    appendCsv(batch.getTimestamp(i), batch.getSensorType(i), batch.getCsv(i));
+                    break;
+                case SensorDataBatch.KIND_FLOATS:
+                    appendFloats(batch.getTimestamp(i), batch.getSensorType(i), batch.getFloatArena(), batch.getOffset(i), batch.getCount(i));
+                    break;
+                case SensorDataBatch.KIND_LONGS:
+                    appendLongs(batch.getTimestamp(i), batch.getSensorType(i), batch.getLongArena(), batch.getOffset(i), batch.getCount(i));
+                    break;
+            }
+        }
+        publish();
+    }
+
+    /**
+     * Append an event (not yet visible to the consumer, see publish()).
+     * @return false if the event was dropped, because the ring is full
+     */
+    public boolean appendFloats(long timestamp, SensorType sensorType, float[] values, int offset, int count) {
+        final int pos = reserve(timestamp, sensorType, KIND_FLOATS, count, count * 4);
+        if(pos < 0) { return false; }
+        for(int i = 0; i < count; ++i) {
+            buffer.putFloat(pos + RECORD_PAYLOAD_OFFSET + i * 4, values[offset + i]);
+        }
+        return true;
+    }
+
+    /** @see #appendFloats(long, SensorType, float[], int, int) */
+    public boolean appendLongs(long timestamp, SensorType sensorType, long[] values, int offset, int count) {
+        final int pos = reserve(timestamp, sensorType, KIND_LONGS, count, count * 8);
+        if(pos < 0) { return false; }
+        for(int i = 0; i < count; ++i) {
+            buffer.putLong(pos + RECORD_PAYLOAD_OFFSET + i * 8, values[offset + i]);
+        }
+        return true;
+    }
+
+    /** @see #appendFloats(long, SensorType, float[], int, int) */
+    public boolean appendCsv(long timestamp, SensorType sensorType, String csv) {
+        final byte[] utf8 = csv.getBytes(StandardCharsets.UTF_8);
+        final int pos = reserve(timestamp, sensorType, KIND_CSV, utf8.length, utf8.length);
+        if(pos < 0) { return false; }
+        for(int i = 0; i < utf8.length; ++i) {
+            buffer.put(pos + RECORD_PAYLOAD_OFFSET + i, utf8[i]);
+        }
+        return true;
+    }
+
+    /**
+     * Make all appended events visible to the consumer.
+     * @return The published tail
+     */
+    public long publish() {
+        // volatile write: all record writes before it are visible to a consumer that reads the tail
+        publishedTail = tail;
+        return tail;
+    }
+
+    /**
+     * Reserve space for a record, and write its header.
+     * @return absolute buffer position of the record, or -1 if it was dropped
+     */
+    private int reserve(long timestamp, SensorType sensorType, int kind, int count, int payloadBytes) {
+        final int recordLength = (RECORD_PAYLOAD_OFFSET + payloadBytes + 7) & ~7;
+        int idx = (int) (tail & mask);
+        final int remaining = capacity - idx;
+        final int required = (recordLength > remaining) ? (recordLength + remaining) : recordLength;
+        if(recordLength > capacity || (tail + required - cachedHead > capacity && tail + required - readHead() > capacity)) {
+            dropped += 1;
+            return -1;
+        }
+        if(recordLength > remaining) { // fill the rest of the region, continue at its beginning
+            buffer.putInt(DATA_OFFSET + idx + RECORD_LENGTH_OFFSET, remaining);
+            if(remaining >= RECORD_KIND_OFFSET + 4) { buffer.putInt(DATA_OFFSET + idx + RECORD_KIND_OFFSET, KIND_WRAP); }
+            tail += remaining;
+            idx = 0;
+        }
+        final int pos = DATA_OFFSET + idx;
+        buffer.putInt(pos + RECORD_LENGTH_OFFSET, recordLength);
+        buffer.putInt(pos + RECORD_SENSOR_OFFSET, sensorType.id());
+        buffer.putLong(pos + RECORD_TIMESTAMP_OFFSET, timestamp);
+        buffer.putInt(pos + RECORD_KIND_OFFSET, kind);
+        buffer.putInt(pos + RECORD_COUNT_OFFSET, count);
+        tail += recordLength;
+        return pos;
+    }
+
+    private long readHead() {
+        // volatile read: the consumer's reads of the released records happened before
+        cachedHead = consumedHead;
+        return cachedHead;
+    }
+
+
+    /**
+     * Java implementation of the consumer side (reference for native consumers, and used on the JVM for testing).
+     * Only a single thread may use a Reader.
+     */
+    public static final class Reader {
+        private final DirectSensorEventRing ring;
+        private final ByteBuffer buffer;
+        private final int capacity;
+        private final int mask;
+        private long head;
+        // reused payload arrays
+        private float[] floats = new float[16];
+        private long[] longs = new long[16];
+        private byte[] utf8 = new byte[64];
+
+        public Reader(DirectSensorEventRing ring) {
+            this.ring = ring;
+            this.buffer = ring.buffer().duplicate().order(ByteOrder.nativeOrder());
+            if(buffer.getInt(MAGIC_OFFSET) != MAGIC) { throw new IllegalArgumentException("Not a DirectSensorEventRing"); }
+            if(buffer.getInt(VERSION_OFFSET) != VERSION) { throw new IllegalArgumentException("Unsupported DirectSensorEventRing version"); }
+            this.capacity = buffer.getInt(CAPACITY_OFFSET);
+            this.mask = capacity - 1;
+            this.head = ring.consumedHead;
+        }
+
+        /**
+         * Consume all currently published events, by feeding them into the given target.
+         * @return amount of consumed events
+         */
+        public int poll(SensorDataInterface target) {
+            final long tail = ring.getPublishedTail();
+            int eventCnt = 0;
+            while(head < tail) {
+                final int pos = DATA_OFFSET + (int) (head & mask);
+                final int recordLength = buffer.getInt(pos + RECORD_LENGTH_OFFSET);
+                if(capacity - (int) (head & mask) < RECORD_PAYLOAD_OFFSET || buffer.getInt(pos + RECORD_KIND_OFFSET) == KIND_WRAP) {
+                    head += recordLength;
+                    continue;
+                }
+                final SensorType sensorType = SensorType.fromId(buffer.getInt(pos + RECORD_SENSOR_OFFSET));
+                final long timestamp = buffer.getLong(pos + RECORD_TIMESTAMP_OFFSET);
+                final int count = buffer.getInt(pos + RECORD_COUNT_OFFSET);
+                final int payloadPos = pos + RECORD_PAYLOAD_OFFSET;
+                switch (buffer.getInt(pos + RECORD_KIND_OFFSET)) {
+                    case KIND_FLOATS:
+                        if(floats.length < count) { floats = new float[count]; }
+                        for(int i = 0; i < count; ++i) { floats[i] = buffer.getFloat(payloadPos + i * 4); }
+                        target.onData(timestamp, sensorType, floats, count);
+                        break;
+                    case KIND_LONGS:
+                        if(longs.length < count) { longs = new long[count]; }
+                        for(int i = 0; i < count; ++i) { longs[i] = buffer.getLong(payloadPos + i * 8); }
+                        target.onData(timestamp, sensorType, longs, count);
+                        break;
+                    case KIND_CSV:
+                        if(utf8.length < count) { utf8 = new byte[count]; }
+                        for(int i = 0; i < count; ++i) { utf8[i] = buffer.get(payloadPos + i); }
+                        target.onData(timestamp, sensorType, new String(utf8, 0, count, StandardCharsets.UTF_8));
+                        break;
+                }
+                head += recordLength;
+                eventCnt += 1;
+            }
+            ring.release(head);
+            return eventCnt;
+        }
+    }
+
+}
@@ -0,0 +1,149 @@
+package de.fhws.indoor.libsmartphonesensors;
+
+/**
+ * Contiguous block of sensor events, as delivered to batched consumers (see SensorDataDispatcher).
+ * <p>
+ *     Events are stored column-wise: one array each for the timestamps, SensorTypes, payload kinds,
+ *     payload offsets and payload counts. Numeric payloads live in a shared float / long arena,
+ *     at [getOffset(i), getOffset(i) + getCount(i)). CSV payloads are stored as Strings.
+ *
+ *     A batch (and its arenas) is reused by its producer, so it is only valid for the duration of
+ *     the callback it was passed to.
+ * </p>
+ */
+public final class SensorDataBatch {
+
+    /** Consumer of batched sensor events. */
+    public interface Listener {
+        void onBatch(SensorDataBatch batch);
+    }
+
+    public static final int KIND_CSV = 0;
+    public static final int KIND_FLOATS = 1;
+    public static final int KIND_LONGS = 2;
+
+    private int size = 0;
+    private long[] timestamps;
+    private SensorType[] sensorTypes;
+    private int[] kinds;
+    private int[] offsets;
+    private int[] counts;
+    private String[] csvs;
+    // time the events were dispatched (System.nanoTime()), used for lag statistics
+    long[] publishNs;
+
+    private float[] floatArena = new float[256];
+    private int floatArenaSize = 0;
+    private long[] longArena = new long[64];
+    private int longArenaSize = 0;
+    // scratch arrays handed out by deliverTo() (only used by the batch's consumer thread)
+    private float[] deliverFloats = new float[16];
+    private long[] deliverLongs = new long[16];
+
+    public SensorDataBatch(int capacity) {
+        timestamps = new long[capacity];
+        sensorTypes = new SensorType[capacity];
+        kinds = new int[capacity];
+        offsets = new int[capacity];
+        counts = new int[capacity];
+        csvs = new String[capacity];
+        publishNs = new long[capacity];
+    }
+
+    /** Amount of events in this batch */
+    public int size() { return size; }
+    public int capacity() { return timestamps.length; }
+    public boolean isEmpty() { return size == 0; }
+
+    public long getTimestamp(int idx) { return timestamps[idx]; }
+    public SensorType getSensorType(int idx) { return sensorTypes[idx]; }
+    /** Payload kind of the given event (KIND_CSV, KIND_FLOATS or KIND_LONGS) */
+    public int getKind(int idx) { return kinds[idx]; }
+    /** Offset of the given event's payload in the float / long arena */
+    public int getOffset(int idx) { return offsets[idx]; }
+    /** Amount of payload values of the given event */
+    public int getCount(int idx) { return counts[idx]; }
+    /** CSV payload of the given event (only for KIND_CSV) */
+    public String getCsv(int idx) { return csvs[idx]; }
+    public float[] getFloatArena() { return floatArena; }
+    public long[] getLongArena() { return longArena; }
+
+    /**
+     * Feed all events in this batch into the given SensorDataInterface, one by one.
+     * The value arrays passed to the target are reused, and only valid for the duration of its onData() call.
+     */
+    public void deliverTo(SensorDataInterface target) {
+        for(int i = 0; i < size; ++i) {
+            switch (kinds[i]) {
+                case KIND_CSV:
+                    target.onData(timestamps[i], sensorTypes[i], csvs[i]);
+                    break;
+                case KIND_FLOATS:
+                    if(deliverFloats.length < counts[i]) { deliverFloats = new float[counts[i]]; }
+                    System.arraycopy(floatArena, offsets[i], deliverFloats, 0, counts[i]);
+                    target.onData(timestamps[i], sensorTypes[i], deliverFloats, counts[i]);
+                    break;
+                case KIND_LONGS:
+                    if(deliverLongs.length < counts[i]) { deliverLongs = new long[counts[i]]; }
+                    System.arraycopy(longArena, offsets[i], deliverLongs, 0, counts[i]);
+                    target.onData(timestamps[i], sensorTypes[i], deliverLongs, counts[i]);
+                    break;
+            }
+        }
+    }
+
+    // ###########
+    // # FILLING
+    // ###########
+    public void clear() {
+        for(int i = 0; i < size; ++i) { csvs[i] = null; }
+        size = 0;
+        floatArenaSize = 0;
+        longArenaSize = 0;
+    }
+
+    public boolean isFull() { return size == timestamps.length; }
+
+    public void addCsv(long timestamp, SensorType sensorType, String csv) {
+        final int idx = beginEvent(timestamp, sensorType, KIND_CSV);
+        csvs[idx] = csv;
+        offsets[idx] = 0;
+        counts[idx] = 0;
+    }
+
+    public void addFloats(long timestamp, SensorType sensorType, float[] values, int count) {
+        final int idx = beginEvent(timestamp, sensorType, KIND_FLOATS);
+        if(floatArenaSize + count > floatArena.length) {
+            float[] newArena = new float[Math.max(2 * floatArena.length, floatArenaSize + count)];
+            System.arraycopy(floatArena, 0, newArena, 0, floatArenaSize);
+            floatArena = newArena;
+        }
+        System.arraycopy(values, 0, floatArena, floatArenaSize, count);
+        offsets[idx] = floatArenaSize;
+        counts[idx] = count;
+        floatArenaSize += count;
+    }
+
+    public void addLongs(long timestamp, SensorType sensorType, long[] values, int count) {
+        final int idx = beginEvent(timestamp, sensorType, KIND_LONGS);
+        if(longArenaSize + count > longArena.length) {
+            long[] newArena = new long[Math.max(2 * longArena.length, longArenaSize + count)];
+            System.arraycopy(longArena, 0, newArena, 0, longArenaSize);
+            longArena = newArena;
+        }
+        System.arraycopy(values, 0, longArena, longArenaSize, count);
+        offsets[idx] = longArenaSize;
+        counts[idx] = count;
+        longArenaSize += count;
+    }
+
+    private int beginEvent(long timestamp, SensorType sensorType, int kind) {
+        if(isFull()) { throw new IllegalStateException("SensorDataBatch is full"); }
+        final int idx = size++;
+        timestamps[idx] = timestamp;
+        sensorTypes[idx] = sensorType;
+        kinds[idx] = kind;
+        return idx;
+    }
+
+}
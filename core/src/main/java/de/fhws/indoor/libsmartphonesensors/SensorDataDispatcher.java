@@ -0,0 +1,394 @@
+package de.fhws.indoor.libsmartphonesensors;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.EnumSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import de.fhws.indoor.libsmartphonesensors.util.MpscRingBuffer;
+import de.fhws.indoor.libsmartphonesensors.util.ObjectPool;
+
+/**
+ * SensorDataInterface that fans all events out to multiple subscribers.
+ * <p>
+ *     This allows e.g. recording to a file, live positioning and the JNI bridge to run off the same
+ *     SensorManager. Every subscriber only receives the SensorTypes it subscribed to, and has its own
+ *     bounded queue and delivery thread. A slow subscriber thus can not delay any other subscriber,
+ *     nor the sensor threads: if its queue is full, new events for this subscriber are dropped (and counted).
+ *
+ *     Sensor threads copy each event into a pooled event object per subscriber, so dispatching does not
+ *     allocate in steady state. Subscribers receive events through the same (typed) onData() methods
+ *     the sensors use, from their delivery thread.
+ *
+ *     Subscribers with a high per-call overhead (e.g. native consumers) can subscribe in batched mode
+ *     instead (see subscribeBatched()). They then receive SensorDataBatches, every maxBatchSize events or
+ *     after maxBatchDelayMs, whichever comes first. This trades latency for per-call overhead.
+ *
+ *     getStartTimestamp() and requestAuxiliaryChannel() are answered by the owner given to the constructor
+ *     (e.g. the recording), since there can only be one answer.
+ * </p>
+ */
+public final class SensorDataDispatcher implements SensorDataInterface {
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 4096;
+    // Maximum time a delivery thread sleeps without being woken up by a producer.
+    private static final long DELIVERY_IDLE_TIMEOUT_NS = 100L * 1000 * 1000;
+
+    private final SensorDataInterface owner;
+    // copy-on-write, so dispatching does not need to lock
+    private volatile Subscription[] subscriptions = new Subscription[0];
+
+    /**
+     * @param owner Provider of the start timestamp and auxiliary channels (may be null, if none of
+     *              the subscribers records anything).
+     */
+    public SensorDataDispatcher(SensorDataInterface owner) {
+        this.owner = owner;
+    }
+
+    /** Subscribe the given consumer to all SensorTypes. */
+    public Subscription subscribe(String name, SensorDataInterface consumer) {
+        return subscribe(name, consumer, EnumSet.allOf(SensorType.class), DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Subscribe the given consumer to the given SensorTypes.
+     * @param name Name of the subscription (used for the delivery thread)
+     * @param consumer Consumer that receives the events on the subscription's delivery thread
+     * @param sensorTypes SensorTypes the consumer is interested in
+     * @param queueCapacity Maximum amount of events queued for this consumer, before new events are dropped
+     */
+    public Subscription subscribe(String name, SensorDataInterface consumer, EnumSet<SensorType> sensorTypes, int queueCapacity) {
+        return addSubscription(new Subscription(name, consumer, null, sensorTypes, queueCapacity, 1, 0));
+    }
+
+    /**
+     * Subscribe the given batch consumer to the given SensorTypes.
+     * <p>
+     *     Events are delivered in batches of up to maxBatchSize events. A batch is delivered as soon as it
+     *     is full, or once its oldest event waited for maxBatchDelayMs, whichever comes first.
+     * </p>
+     * @param name Name of the subscription (used for the delivery thread)
+     * @param listener Consumer that receives the batches on the subscription's delivery thread
+     * @param sensorTypes SensorTypes the consumer is interested in
+     * @param queueCapacity Maximum amount of events queued for this consumer, before new events are dropped
+     * @param maxBatchSize Maximum amount of events per batch
+     * @param maxBatchDelayMs Maximum time an event is held back to fill up its batch
+     */
+    public Subscription subscribeBatched(String name, SensorDataBatch.Listener listener, EnumSet<SensorType> sensorTypes,
+                                         int queueCapacity, int maxBatchSize, long maxBatchDelayMs) {
+        if(maxBatchSize < 1) { throw new IllegalArgumentException("maxBatchSize has to be >= 1"); }
+        return addSubscription(new Subscription(name, null, listener, sensorTypes, queueCapacity, maxBatchSize, maxBatchDelayMs * 1000 * 1000));
+    }
+
+    private synchronized Subscription addSubscription(Subscription subscription) {
+        Subscription[] newSubscriptions = new Subscription[subscriptions.length + 1];
+        System.arraycopy(subscriptions, 0, newSubscriptions, 0, subscriptions.length);
+        newSubscriptions[subscriptions.length] = subscription;
+        subscriptions = newSubscriptions;
+        subscription.deliveryThread.start();
+        return subscription;
+    }
+
+    /**
+     * Remove the given subscription. Events that were already queued for it are still delivered,
+     * before this returns.
+     */
+    public void unsubscribe(Subscription subscription) {
+        synchronized (this) {
+            int idx = -1;
+            for(int i = 0; i < subscriptions.length; ++i) {
+                if(subscriptions[i] == subscription) { idx = i; }
+            }
+            if(idx < 0) { return; }
+            Subscription[] newSubscriptions = new Subscription[subscriptions.length - 1];
+            System.arraycopy(subscriptions, 0, newSubscriptions, 0, idx);
+            System.arraycopy(subscriptions, idx + 1, newSubscriptions, idx, subscriptions.length - idx - 1);
+            subscriptions = newSubscriptions;
+        }
+        subscription.stop();
+    }
+
+    /** Remove all subscriptions (see unsubscribe()). */
+    public void unsubscribeAll() {
+        for(Subscription subscription : subscriptions) {
+            unsubscribe(subscription);
+        }
+    }
+
+    @Override
+    public long getStartTimestamp() {
+        return (owner != null) ? owner.getStartTimestamp() : 0;
+    }
+
+    @Override
+    public OutputStream requestAuxiliaryChannel(String id) throws UnsupportedOperationException, IOException {
+        if(owner == null) { throw new UnsupportedOperationException("SensorDataDispatcher without owner has no auxiliary channels"); }
+        return owner.requestAuxiliaryChannel(id);
+    }
+
+    @Override
+    public void onData(long timestamp, SensorType id, String csv) {
+        for(Subscription subscription : subscriptions) {
+            if(!subscription.accepts(id)) { continue; }
+            Event event = subscription.eventPool.acquire();
+            event.setCsv(timestamp, id, csv);
+            subscription.publish(event);
+        }
+    }
+
+    @Override
+    public void onData(long timestamp, SensorType id, float[] values, int count) {
+        for(Subscription subscription : subscriptions) {
+            if(!subscription.accepts(id)) { continue; }
+            Event event = subscription.eventPool.acquire();
+            event.setFloats(timestamp, id, values, count);
+            subscription.publish(event);
+        }
+    }
+
+    @Override
+    public void onData(long timestamp, SensorType id, long[] values, int count) {
+        for(Subscription subscription : subscriptions) {
+            if(!subscription.accepts(id)) { continue; }
+            Event event = subscription.eventPool.acquire();
+            event.setLongs(timestamp, id, values, count);
+            subscription.publish(event);
+        }
+    }
+
+
+    /**
+     * A single consumer's subscription, with its queue, delivery thread and statistics.
+     */
+    public static final class Subscription {
+        private final String name;
+        private final SensorDataInterface consumer;
+        private final SensorDataBatch.Listener batchListener;
+        private final SensorDataBatch batch;
+        private final long maxBatchDelayNs;
+        private final boolean[] acceptedTypes = new boolean[SensorType.values().length];
+        private final MpscRingBuffer<Event> queue;
+        private final ObjectPool<Event> eventPool;
+        private final DeliveryThread deliveryThread;
+
+        // statistics
+        private final AtomicLong statDelivered = new AtomicLong(0);
+        private final AtomicLong statDropped = new AtomicLong(0);
+        private final AtomicLong statDeliveredBatches = new AtomicLong(0);
+        private final AtomicLong statMaxLagNs = new AtomicLong(0);
+        private volatile long lastLagNs = 0;
+
+        private Subscription(String name, SensorDataInterface consumer, SensorDataBatch.Listener batchListener,
+                             EnumSet<SensorType> sensorTypes, int queueCapacity, int maxBatchSize, long maxBatchDelayNs) {
+            this.name = name;
+            this.consumer = consumer;
+            this.batchListener = batchListener;
+            this.batch = (batchListener != null) ? new SensorDataBatch(maxBatchSize) : null;
+            this.maxBatchDelayNs = maxBatchDelayNs;
+            for(SensorType sensorType : sensorTypes) { acceptedTypes[sensorType.ordinal()] = true; }
+            this.queue = new MpscRingBuffer<>(queueCapacity);
+            this.eventPool = new ObjectPool<>(queueCapacity, new ObjectPool.Factory<Event>() {
+                @Override public Event create() { return new Event(); }
+            });
+            this.deliveryThread = new DeliveryThread();
+        }
+
+        private boolean accepts(SensorType sensorType) {
+            return acceptedTypes[sensorType.ordinal()];
+        }
+
+        private void publish(Event event) {
+            event.publishNs = System.nanoTime();
+            if(!queue.offer(event)) { // consumer can not keep up, drop the new event
+                statDropped.incrementAndGet();
+                eventPool.release(event);
+                return;
+            }
+            if(deliveryThread.idle) {
+                deliveryThread.idle = false;
+                LockSupport.unpark(deliveryThread);
+            }
+        }
+
+        private void stop() {
+            deliveryThread.stopping = true;
+            LockSupport.unpark(deliveryThread);
+            if(Thread.currentThread() == deliveryThread) { return; } // unsubscribed from within the consumer
+            try {
+                deliveryThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        public String getName() { return name; }
+        /** Amount of events delivered to the consumer */
+        public long getDeliveredCount() { return statDelivered.get(); }
+        /** Amount of events dropped, because the consumer's queue was full */
+        public long getDroppedCount() { return statDropped.get(); }
+        /** Amount of events currently waiting for delivery */
+        public int getQueuedCount() { return queue.size(); }
+        /** Amount of batches delivered to the consumer (batched subscriptions only) */
+        public long getDeliveredBatchCount() { return statDeliveredBatches.get(); }
+        /** Time between dispatching and delivering the most recently delivered event, in nanoseconds */
+        public long getLagNs() { return lastLagNs; }
+        /** Longest time between dispatching and delivering an event, in nanoseconds */
+        public long getMaxLagNs() { return statMaxLagNs.get(); }
+
+        private final class DeliveryThread extends Thread {
+            volatile boolean stopping = false;
+            volatile boolean idle = false;
+
+            DeliveryThread() {
+                setName("SensorDataDispatcher-" + name);
+                setDaemon(true);
+            }
+
+            @Override
+            public void run() {
+                while(true) {
+                    boolean wasStopping = stopping;
+                    int drained = (batch != null) ? drainBatched(wasStopping) : drain();
+                    if(drained == 0) {
+                        if(wasStopping && (batch == null || batch.isEmpty())) { break; } // everything queued before stop() was delivered
+                        long sleepNs = DELIVERY_IDLE_TIMEOUT_NS;
+                        if(batch != null && !batch.isEmpty()) { // wake up in time to deliver the pending batch
+                            sleepNs = Math.min(sleepNs, batch.publishNs[0] + maxBatchDelayNs - System.nanoTime());
+                        }
+                        idle = true;
+                        if(queue.size() == 0 && !stopping && sleepNs > 0) {
+                            LockSupport.parkNanos(this, sleepNs);
+                        }
+                        idle = false;
+                    }
+                }
+            }
+
+            private int drain() {
+                int drained = 0;
+                for(Event event = queue.poll(); event != null; event = queue.poll()) {
+                    final long lagNs = System.nanoTime() - event.publishNs;
+                    try {
+                        event.deliverTo(consumer);
+                    } catch (RuntimeException e) {
+                        e.printStackTrace();
+                    }
+                    eventPool.release(event);
+                    statDelivered.incrementAndGet();
+                    updateLag(lagNs);
+                    drained += 1;
+                }
+                return drained;
+            }
+
+            private int drainBatched(boolean flushAll) {
+                int drained = 0;
+                for(Event event = queue.poll(); event != null; event = queue.poll()) {
+                    event.addTo(batch);
+                    eventPool.release(event);
+                    drained += 1;
+                    if(batch.isFull()) { deliverBatch(); }
+                }
+                if(!batch.isEmpty() && (flushAll || System.nanoTime() - batch.publishNs[0] >= maxBatchDelayNs)) {
+                    deliverBatch();
+                }
+                return drained;
+            }
+
+            private void deliverBatch() {
+                final long deliveryNs = System.nanoTime();
+                try {
+                    batchListener.onBatch(batch);
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+                statDelivered.addAndGet(batch.size());
+                statDeliveredBatches.incrementAndGet();
+                updateLag(deliveryNs - batch.publishNs[0]); // oldest event waited the longest
+                batch.clear();
+            }
+
+            private void updateLag(long lagNs) {
+                lastLagNs = lagNs;
+                if(lagNs > statMaxLagNs.get()) { statMaxLagNs.set(lagNs); } // single writer
+            }
+        }
+    }
+
+    /**
+     * Pooled copy of a single event, as queued for one subscriber.
+     */
+    private static final class Event {
+        private static final int KIND_CSV = 0;
+        private static final int KIND_FLOATS = 1;
+        private static final int KIND_LONGS = 2;
+
+        int kind;
+        long timestamp;
+        SensorType sensorType;
+        String csv;
+        float[] floats = new float[16];
+        long[] longs = new long[0];
+        int count;
+        long publishNs;
+
+        void setCsv(long timestamp, SensorType sensorType, String csv) {
+            this.kind = KIND_CSV;
+            this.timestamp = timestamp;
+            this.sensorType = sensorType;
+            this.csv = csv;
+        }
+
+        void setFloats(long timestamp, SensorType sensorType, float[] values, int count) {
+            this.kind = KIND_FLOATS;
+            this.timestamp = timestamp;
+            this.sensorType = sensorType;
+            if(floats.length < count) { floats = new float[count]; }
+            System.arraycopy(values, 0, floats, 0, count);
+            this.count = count;
+        }
+
+        void setLongs(long timestamp, SensorType sensorType, long[] values, int count) {
+            this.kind = KIND_LONGS;
+            this.timestamp = timestamp;
+            this.sensorType = sensorType;
+            if(longs.length < count) { longs = new long[Math.max(count, 16)]; }
+            System.arraycopy(values, 0, longs, 0, count);
+            this.count = count;
+        }
+
+        void addTo(SensorDataBatch batch) {
+            switch (kind) {
+                case KIND_CSV:
+                    batch.addCsv(timestamp, sensorType, csv);
+                    csv = null;
+                    break;
+                case KIND_FLOATS:
+                    batch.addFloats(timestamp, sensorType, floats, count);
+                    break;
+                case KIND_LONGS:
+                    batch.addLongs(timestamp, sensorType, longs, count);
+                    break;
+            }
+            batch.publishNs[batch.size() - 1] = publishNs;
+        }
+
+        void deliverTo(SensorDataInterface consumer) {
+            switch (kind) {
+                case KIND_CSV:
+                    consumer.onData(timestamp, sensorType, csv);
+                    csv = null;
+                    break;
+                case KIND_FLOATS:
+                    consumer.onData(timestamp, sensorType, floats, count);
+                    break;
+                case KIND_LONGS:
+                    consumer.onData(timestamp, sensorType, longs, count);
+                    break;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,79 @@
+package de.fhws.indoor.libsmartphonesensors;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Interface used to handle the communication channel between sensor and the
+ * consumer of sensor data (in other words: the SensorDataInterface provider).
+ */
+public interface SensorDataInterface {
+
+    /**
+     * Get this recording's timestamp offset.
+     * Timestamps written to the file need to be offset by the recording's start timestamp.
+     * This method can be helpful if a sensor event's data contains a timestamp that needs to be
+     * manually corrected by the sensor.
+     * @return This recording's start timestamp.
+     */
+    long getStartTimestamp();
+
+    /**
+     * Called by Sensor to notify SensorDataInterface provider about new timestamped event
+     * in the SensorReadout csv format.
+     * @param timestamp Event timestamp
+     *                  WARNING: This is not what will be written to the file. This timestamp will
+     *                  be offset by this recording's start timestamp (this - startTimestamp), before
+     *                  writing it to the file.
+     * @param id Event identifier (see SensorType)
+     * @param csv csv data to append
+     */
+    void onData(final long timestamp, final SensorType id, final String csv);
+
+    /**
+     * Called by Sensor to notify SensorDataInterface provider about new timestamped event
+     * with a purely numeric (float) payload.
+     * <p>
+     *     Providers that can consume the values directly (e.g. Logger.addFloats()) should override
+     *     this, to avoid formatting the values to text and parsing them back. The default
+     *     implementation renders the values in the SensorReadout csv format (Float.toString() joined
+     *     by ';') and forwards them to {@link #onData(long, SensorType, String)}.
+     *     The values array is only valid for the duration of this call, senders are allowed to reuse it.
+     * </p>
+     * @param timestamp Event timestamp (see {@link #onData(long, SensorType, String)})
+     * @param id Event identifier (see SensorType)
+     * @param values Payload values
+     * @param count Amount of values (starting at index 0) that belong to this event
+     */
+    default void onData(final long timestamp, final SensorType id, final float[] values, final int count) {
+        final StringBuilder csv = new StringBuilder(count * 12);
+        for(int i = 0; i < count; ++i) {
+            if(i != 0) { csv.append(';'); }
+            csv.append(values[i]);
+        }
+        onData(timestamp, id, csv.toString());
+    }
+
+    /**
+     * Called by Sensor to notify SensorDataInterface provider about new timestamped event
+     * with a purely numeric (integral) payload.
+     * @see #onData(long, SensorType, float[], int)
+     */
+    default void onData(final long timestamp, final SensorType id, final long[] values, final int count) {
+        final StringBuilder csv = new StringBuilder(count * 8);
+        for(int i = 0; i < count; ++i) {
+            if(i != 0) { csv.append(';'); }
+            csv.append(values[i]);
+        }
+        onData(timestamp, id, csv.toString());
+    }
+
+    /**
+     * Request an auxiliary data channel from the SensorDataInterface provider.
+     * @param id Identifying string for this auxiliary channel.
+     * @return A writeable OutputStream that the requesting sensor can write
+     * data at will. It's the provider's responsibility to close this channel!
+     */
+    OutputStream requestAuxiliaryChannel(String id) throws UnsupportedOperationException, IOException;
+
+}
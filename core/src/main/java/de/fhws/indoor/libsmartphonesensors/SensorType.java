@@ -50,4 +50,26 @@ public enum SensorType {
 
     public final int id() {return id;}
 
+    // SensorType lookup by id
+    private static final int ID_OFFSET;
+    private static final SensorType[] BY_ID;
+    static {
+        int minId = 0, maxId = 0;
+        for(SensorType sensorType : SensorType.values()) {
+            minId = Math.min(minId, sensorType.id);
+            maxId = Math.max(maxId, sensorType.id);
+        }
+        ID_OFFSET = -minId;
+        BY_ID = new SensorType[maxId - minId + 1];
+        for(SensorType sensorType : SensorType.values()) {
+            BY_ID[sensorType.id + ID_OFFSET] = sensorType;
+        }
+    }
+
+    /** Get the SensorType with the given id, or null if there is none. */
+    public static SensorType fromId(final int id) {
+        final int idx = id + ID_OFFSET;
+        return (idx >= 0 && idx < BY_ID.length) ? BY_ID[idx] : null;
+    }
+
 }
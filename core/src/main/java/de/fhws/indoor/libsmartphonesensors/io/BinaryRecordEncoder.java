@@ -0,0 +1,117 @@
+package de.fhws.indoor.libsmartphonesensors.io;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Reusable encoder for the record bodies of the binary recording format.
+ * <p>
+ *     A record body consists of the zigzag-varint encoded sensor id, a payload type byte and the
+ *     payload itself (see BinaryRecordingWriter for the complete file layout).
+ *
+ *     Instances are NOT thread-safe. Use one encoder per producing thread.
+ * </p>
+ */
+public final class BinaryRecordEncoder {
+
+    /** Payload: UTF-8 encoded csv text (everything that was not logged using primitives) */
+    public static final byte TYPE_TEXT = 0;
+    /** Payload: raw little-endian IEEE-754 float32 values */
+    public static final byte TYPE_FLOAT32 = 1;
+    /** Payload: zigzag-varint encoded int64 values */
+    public static final byte TYPE_INT64 = 2;
+    /** Payload: UTF-8 encoded remark, appended when closing the recording */
+    public static final byte TYPE_REMARK = 3;
+
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private byte[] buffer;
+    private int length = 0;
+
+    public BinaryRecordEncoder() {
+        this(64);
+    }
+    public BinaryRecordEncoder(int initialCapacity) {
+        this.buffer = new byte[Math.max(16, initialCapacity)];
+    }
+
+    public BinaryRecordEncoder reset() {
+        length = 0;
+        return this;
+    }
+
+    /** Start a new record body for the given sensor and payload type (implicitly resets the encoder) */
+    public BinaryRecordEncoder beginRecord(int sensorId, byte payloadType) {
+        reset();
+        appendZigZag(sensorId);
+        return appendByte(payloadType);
+    }
+
+    public BinaryRecordEncoder appendByte(byte value) {
+        ensureCapacity(1);
+        buffer[length++] = value;
+        return this;
+    }
+
+    /** Append an unsigned LEB128 varint */
+    public BinaryRecordEncoder appendVarLong(long value) {
+        ensureCapacity(10);
+        while((value & ~0x7FL) != 0) {
+            buffer[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[length++] = (byte) value;
+        return this;
+    }
+
+    /** Append a signed value as zigzag encoded varint */
+    public BinaryRecordEncoder appendZigZag(long value) {
+        return appendVarLong((value << 1) ^ (value >> 63));
+    }
+
+    public BinaryRecordEncoder appendFloat32(float value) {
+        ensureCapacity(4);
+        int bits = Float.floatToRawIntBits(value);
+        buffer[length++] = (byte) bits;
+        buffer[length++] = (byte) (bits >>> 8);
+        buffer[length++] = (byte) (bits >>> 16);
+        buffer[length++] = (byte) (bits >>> 24);
+        return this;
+    }
+
+    public BinaryRecordEncoder appendFloats32(float[] values, int count) {
+        for(int i = 0; i < count; ++i) { appendFloat32(values[i]); }
+        return this;
+    }
+
+    public BinaryRecordEncoder appendZigZags(long[] values, int count) {
+        for(int i = 0; i < count; ++i) { appendZigZag(values[i]); }
+        return this;
+    }
+
+    public BinaryRecordEncoder appendBytes(byte[] data, int offset, int count) {
+        ensureCapacity(count);
+        System.arraycopy(data, offset, buffer, length, count);
+        length += count;
+        return this;
+    }
+
+    public BinaryRecordEncoder appendUtf8(String str) {
+        byte[] data = str.getBytes(UTF8);
+        return appendBytes(data, 0, data.length);
+    }
+
+    public int length() { return length; }
+
+    /** Direct access to the internal buffer. Only the first length() bytes are valid. */
+    public byte[] array() { return buffer; }
+
+    public byte[] toByteArray() { return Arrays.copyOf(buffer, length); }
+
+    private void ensureCapacity(int additional) {
+        if(length + additional > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + additional));
+        }
+    }
+
+}
@@ -0,0 +1,227 @@
+package de.fhws.indoor.libsmartphonesensors.io;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import de.fhws.indoor.libsmartphonesensors.SensorType;
+
+/**
+ * Streaming reader for recordings in the binary recording format (see BinaryRecordingWriter).
+ * <p>
+ *     Usage: iterate over all records using next(), and access the current record's content
+ *     using the getters. The getters only refer to the current record, all buffers are reused.
+ * </p>
+ */
+public final class BinaryRecordingReader implements Closeable {
+
+    private final InputStream inputStream;
+    private final UUID recordingId;
+    private final String metadataCsv;
+    private final HashMap<Integer, String> sensorTable = new HashMap<>();
+
+    // current record
+    private byte[] record = new byte[256];
+    private int recordLength = 0;
+    private int payloadOffset = 0;
+    private int cursor = 0;
+    private long timestamp = 0;
+    private int sensorId = 0;
+    private byte payloadType = 0;
+    private long[] longs = new long[16];
+    private int longCnt = 0;
+
+    public BinaryRecordingReader(InputStream inputStream) throws IOException {
+        this.inputStream = (inputStream instanceof BufferedInputStream) ? inputStream : new BufferedInputStream(inputStream, 64 * 1024);
+        byte[] magic = new byte[BinaryRecordingWriter.MAGIC.length];
+        readFully(magic, magic.length);
+        if(!Arrays.equals(magic, BinaryRecordingWriter.MAGIC)) { throw new IOException("Not a binary recording"); }
+        int version = this.inputStream.read();
+        if(version != BinaryRecordingWriter.VERSION) { throw new IOException("Unsupported binary recording version: " + version); }
+        long msb = 0, lsb = 0;
+        for(int i = 0; i < 8; ++i) { msb = (msb << 8) | readByte(); }
+        for(int i = 0; i < 8; ++i) { lsb = (lsb << 8) | readByte(); }
+        recordingId = new UUID(msb, lsb);
+        metadataCsv = readString();
+        long sensorCnt = readVarLong();
+        for(long i = 0; i < sensorCnt; ++i) {
+            int id = (int) zigZagDecode(readVarLong());
+            sensorTable.put(id, readString());
+        }
+    }
+
+    public UUID getRecordingId() { return recordingId; }
+
+    /** Recording metadata, in the same format as the FILE_METADATA line of csv recordings */
+    public String getMetadataCsv() { return metadataCsv; }
+
+    /** Mapping of sensor ids to SensorType names, as stored in the recording's header */
+    public Map<Integer, String> getSensorTable() { return Collections.unmodifiableMap(sensorTable); }
+
+    /**
+     * Advance to the next record.
+     * @return false if the end of the recording was reached
+     */
+    public boolean next() throws IOException {
+        long length;
+        try {
+            length = readVarLong();
+        } catch (EOFException e) {
+            return false;
+        }
+        if(length > Integer.MAX_VALUE) { throw new IOException("Corrupt record length"); }
+        recordLength = (int) length;
+        if(record.length < recordLength) { record = new byte[Math.max(recordLength, record.length * 2)]; }
+        readFully(record, recordLength);
+
+        cursor = 0;
+        timestamp += zigZagDecode(decodeVarLong());
+        sensorId = (int) zigZagDecode(decodeVarLong());
+        payloadType = record[cursor++];
+        payloadOffset = cursor;
+        longCnt = 0;
+        if(payloadType == BinaryRecordEncoder.TYPE_INT64) {
+            while(cursor < recordLength) {
+                if(longCnt == longs.length) { longs = Arrays.copyOf(longs, longs.length * 2); }
+                longs[longCnt++] = zigZagDecode(decodeVarLong());
+            }
+        }
+        return true;
+    }
+
+    /** Timestamp of the current record, relative to the recording start */
+    public long getTimestamp() { return timestamp; }
+
+    public int getSensorId() { return sensorId; }
+
+    /** Payload type of the current record (see BinaryRecordEncoder.TYPE_*) */
+    public byte getPayloadType() { return payloadType; }
+
+    /** Amount of values in the current record's payload (TYPE_FLOAT32 and TYPE_INT64 only) */
+    public int getValueCount() {
+        switch (payloadType) {
+            case BinaryRecordEncoder.TYPE_FLOAT32: return (recordLength - payloadOffset) / 4;
+            case BinaryRecordEncoder.TYPE_INT64: return longCnt;
+            default: return 0;
+        }
+    }
+
+    public float getFloat(int idx) {
+        int offset = payloadOffset + idx * 4;
+        int bits = (record[offset] & 0xFF) | ((record[offset + 1] & 0xFF) << 8)
+                | ((record[offset + 2] & 0xFF) << 16) | ((record[offset + 3] & 0xFF) << 24);
+        return Float.intBitsToFloat(bits);
+    }
+
+    public long getLong(int idx) { return longs[idx]; }
+
+    /** Text of the current record (TYPE_TEXT and TYPE_REMARK only) */
+    public String getText() {
+        return new String(record, payloadOffset, recordLength - payloadOffset, BinaryRecordEncoder.UTF8);
+    }
+
+    /** Append the current record's payload in its csv representation */
+    public void appendCsvPayload(StringBuilder sb) {
+        switch (payloadType) {
+            case BinaryRecordEncoder.TYPE_FLOAT32:
+                for(int i = 0; i < getValueCount(); ++i) {
+                    if(i != 0) { sb.append(';'); }
+                    sb.append(getFloat(i));
+                }
+                break;
+            case BinaryRecordEncoder.TYPE_INT64:
+                for(int i = 0; i < longCnt; ++i) {
+                    if(i != 0) { sb.append(';'); }
+                    sb.append(longs[i]);
+                }
+                break;
+            default:
+                sb.append(getText());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        inputStream.close();
+    }
+
+    /**
+     * Convert the binary recording read from the given stream back into the csv recording format.
+     * The result is identical to what a csv RecordingSession would have produced.
+     */
+    public static void convertToCsv(InputStream binaryRecording, OutputStream csvRecording) throws IOException {
+        BinaryRecordingReader reader = new BinaryRecordingReader(binaryRecording);
+        StringBuilder sb = new StringBuilder(256);
+        sb.append("0;").append(SensorType.FILE_METADATA.id()).append(';').append(reader.getMetadataCsv()).append('\n');
+        sb.append("0;").append(SensorType.RECORDING_ID.id()).append(';').append(reader.getRecordingId()).append('\n');
+        csvRecording.write(sb.toString().getBytes(BinaryRecordEncoder.UTF8));
+        while(reader.next()) {
+            sb.setLength(0);
+            if(reader.getPayloadType() == BinaryRecordEncoder.TYPE_REMARK) {
+                RecordingSession.appendRemark(sb, reader.getText());
+            } else {
+                sb.append(reader.getTimestamp()).append(';').append(reader.getSensorId()).append(';');
+                reader.appendCsvPayload(sb);
+                sb.append('\n');
+            }
+            csvRecording.write(sb.toString().getBytes(BinaryRecordEncoder.UTF8));
+        }
+        csvRecording.flush();
+    }
+
+    // ###########
+    // # DECODING
+    // ###########
+    private static long zigZagDecode(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private long decodeVarLong() {
+        long value = 0;
+        for(int shift = 0; ; shift += 7) {
+            byte b = record[cursor++];
+            value |= (long) (b & 0x7F) << shift;
+            if((b & 0x80) == 0) { return value; }
+        }
+    }
+
+    private int readByte() throws IOException {
+        int b = inputStream.read();
+        if(b < 0) { throw new EOFException(); }
+        return b;
+    }
+
+    private long readVarLong() throws IOException {
+        long value = 0;
+        for(int shift = 0; ; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if((b & 0x80) == 0) { return value; }
+        }
+    }
+
+    private String readString() throws IOException {
+        int length = (int) readVarLong();
+        byte[] data = new byte[length];
+        readFully(data, length);
+        return new String(data, BinaryRecordEncoder.UTF8);
+    }
+
+    private void readFully(byte[] dst, int length) throws IOException {
+        int read = 0;
+        while(read < length) {
+            int cnt = inputStream.read(dst, read, length - read);
+            if(cnt < 0) { throw new EOFException(); }
+            read += cnt;
+        }
+    }
+
+}
@@ -0,0 +1,83 @@
+package de.fhws.indoor.libsmartphonesensors.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.UUID;
+
+import de.fhws.indoor.libsmartphonesensors.SensorType;
+
+/**
+ * Writer for the compact binary recording format.
+ * <p>
+ *     File layout (all varints are unsigned LEB128, signed values are zigzag encoded):
+ *     <pre>
+ *     header:  "SLSR" | version (1 byte)
+ *              | recordingId (16 bytes, msb first)
+ *              | varint length | metadata csv (UTF-8, as in the FILE_METADATA line of csv recordings)
+ *              | varint sensorCnt | sensorCnt * (zigzag sensorId | varint length | SensorType name)
+ *     records: varint length | zigzag (timestamp - previous record's timestamp) | record body
+ *     </pre>
+ *     The record body is produced by BinaryRecordEncoder. Timestamps are relative to the
+ *     recording start, like in the csv format.
+ *
+ *     Instances are NOT thread-safe.
+ * </p>
+ */
+public final class BinaryRecordingWriter {
+
+    static final byte[] MAGIC = new byte[]{'S', 'L', 'S', 'R'};
+    static final byte VERSION = 1;
+
+    private final OutputStream outputStream;
+    private final BinaryRecordEncoder scratch = new BinaryRecordEncoder(32);
+    private long lastTimestamp = 0;
+
+    public BinaryRecordingWriter(OutputStream outputStream) {
+        this.outputStream = outputStream;
+    }
+
+    public void writeHeader(UUID recordingId, String metadataCsv) throws IOException {
+        scratch.reset();
+        scratch.appendBytes(MAGIC, 0, MAGIC.length);
+        scratch.appendByte(VERSION);
+        long msb = recordingId.getMostSignificantBits(), lsb = recordingId.getLeastSignificantBits();
+        for(int i = 7; i >= 0; --i) { scratch.appendByte((byte) (msb >>> (i * 8))); }
+        for(int i = 7; i >= 0; --i) { scratch.appendByte((byte) (lsb >>> (i * 8))); }
+        appendString(metadataCsv);
+        SensorType[] sensorTypes = SensorType.values();
+        scratch.appendVarLong(sensorTypes.length);
+        for(SensorType sensorType : sensorTypes) {
+            scratch.appendZigZag(sensorType.id());
+            appendString(sensorType.name());
+        }
+        outputStream.write(scratch.array(), 0, scratch.length());
+    }
+
+    /**
+     * Write a single record.
+     * @param timestamp Timestamp relative to the recording start
+     * @param body Record body as produced by BinaryRecordEncoder
+     */
+    public void writeRecord(long timestamp, byte[] body, int offset, int length) throws IOException {
+        scratch.reset();
+        scratch.appendZigZag(timestamp - lastTimestamp);
+        int deltaLength = scratch.length();
+        scratch.appendVarLong(deltaLength + length);
+        outputStream.write(scratch.array(), deltaLength, scratch.length() - deltaLength);
+        outputStream.write(scratch.array(), 0, deltaLength);
+        outputStream.write(body, offset, length);
+        lastTimestamp = timestamp;
+    }
+
+    public void writeRemark(String remark) throws IOException {
+        BinaryRecordEncoder body = new BinaryRecordEncoder().beginRecord(0, BinaryRecordEncoder.TYPE_REMARK).appendUtf8(remark);
+        writeRecord(lastTimestamp, body.array(), 0, body.length());
+    }
+
+    private void appendString(String str) {
+        byte[] data = str.getBytes(BinaryRecordEncoder.UTF8);
+        scratch.appendVarLong(data.length);
+        scratch.appendBytes(data, 0, data.length);
+    }
+
+}
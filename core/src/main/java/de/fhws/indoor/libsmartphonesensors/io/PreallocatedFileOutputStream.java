@@ -0,0 +1,114 @@
+package de.fhws.indoor.libsmartphonesensors.io;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * OutputStream that writes a file through a FileChannel, using a large direct buffer.
+ * <p>
+ *     Written data is collected in a direct ByteBuffer and handed to the channel in large blocks,
+ *     so long recordings only cause a few large write syscalls. The file is grown in large chunks
+ *     ahead of the written data, instead of growing with every write. On close(), the file is
+ *     truncated to the amount of bytes actually written.
+ *
+ *     If the process dies before close(), the file keeps its preallocated length, and the
+ *     remainder of the last chunk is filled with zero bytes.
+ *
+ *     Instances are NOT thread-safe.
+ * </p>
+ */
+final class PreallocatedFileOutputStream extends OutputStream {
+
+    static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+    static final long DEFAULT_PREALLOCATION_CHUNK_SIZE = 16L * 1024 * 1024;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final long preallocationChunkSize;
+    // amount of bytes handed to the channel
+    private long position = 0;
+    private long allocatedLength = 0;
+    private boolean closed = false;
+
+    PreallocatedFileOutputStream(File file) throws FileNotFoundException {
+        this(file, DEFAULT_BUFFER_SIZE, DEFAULT_PREALLOCATION_CHUNK_SIZE);
+    }
+
+    PreallocatedFileOutputStream(File file, int bufferSize, long preallocationChunkSize) throws FileNotFoundException {
+        this.file = new RandomAccessFile(file, "rw");
+        this.channel = this.file.getChannel();
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        this.preallocationChunkSize = preallocationChunkSize;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if(!buffer.hasRemaining()) { flushBuffer(); }
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] data, int offset, int length) throws IOException {
+        if(length >= buffer.capacity()) { // too large to be worth copying, write directly
+            flushBuffer();
+            writeToChannel(ByteBuffer.wrap(data, offset, length));
+            return;
+        }
+        while(length > 0) {
+            if(!buffer.hasRemaining()) { flushBuffer(); }
+            final int chunkLength = Math.min(length, buffer.remaining());
+            buffer.put(data, offset, chunkLength);
+            offset += chunkLength;
+            length -= chunkLength;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if(closed) { return; } // like FileOutputStream, flushing a closed stream is a no-op
+        flushBuffer();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if(closed) { return; }
+        try {
+            flushBuffer();
+            channel.truncate(position);
+        } finally {
+            closed = true;
+            file.close();
+        }
+    }
+
+    /** Amount of bytes written so far */
+    long length() {
+        return position + buffer.position();
+    }
+
+    private void flushBuffer() throws IOException {
+        if(closed) { throw new IOException("Stream closed"); }
+        if(buffer.position() == 0) { return; }
+        buffer.flip();
+        writeToChannel(buffer);
+        buffer.clear();
+    }
+
+    private void writeToChannel(ByteBuffer data) throws IOException {
+        final long endPosition = position + data.remaining();
+        if(endPosition > allocatedLength) {
+            allocatedLength = (endPosition / preallocationChunkSize + 1) * preallocationChunkSize;
+            file.setLength(allocatedLength);
+        }
+        while(data.hasRemaining()) {
+            position += channel.write(data, position);
+        }
+    }
+
+}
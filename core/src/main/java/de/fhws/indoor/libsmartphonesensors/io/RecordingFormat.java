@@ -0,0 +1,31 @@
+package de.fhws.indoor.libsmartphonesensors.io;
+
+/**
+ * On-disk formats a RecordingSession can be written in.
+ */
+public enum RecordingFormat {
+
+    /** Semicolon separated text lines: <code>relTS;sensorId;csv</code> */
+    CSV(".csv"),
+    /** Compact binary records, see BinaryRecordingWriter */
+    BINARY(".bin"),
+
+    ;
+
+    private final String fileExtension;
+
+    RecordingFormat(String fileExtension) {
+        this.fileExtension = fileExtension;
+    }
+
+    public String fileExtension() { return fileExtension; }
+
+    /** Determine the format of the given recording file by its extension (null if unknown) */
+    public static RecordingFormat fromFileName(String fileName) {
+        for(RecordingFormat format : values()) {
+            if(fileName.endsWith(format.fileExtension)) { return format; }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,135 @@
+package de.fhws.indoor.libsmartphonesensors.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Sparse timestamp / offset index of a csv recording.
+ * <p>
+ *     The recording is split into blocks of (roughly) blockSize bytes, each starting at a line
+ *     boundary. For every block, the index stores its file offset, the smallest and largest
+ *     timestamp it contains and a bitmask of the contained sensors (see RecordingReader.sensorMask()).
+ *     Since recordings of the UnorderedLogger are not sorted, blocks are never assumed to be sorted.
+ *
+ *     The index is persisted next to the recording (recording file name + ".idx"), together with
+ *     the recording's length and modification time, to detect outdated index files.
+ * </p>
+ */
+final class RecordingIndex {
+
+    private static final int MAGIC = 0x534C5249; // "SLRI"
+    private static final int VERSION = 1;
+
+    final int blockSize;
+    private final long sourceLength;
+    private final long sourceLastModified;
+    private int blockCnt = 0;
+    private long[] offsets = new long[64];
+    private long[] minTs = new long[64];
+    private long[] maxTs = new long[64];
+    private long[] sensorMasks = new long[64];
+
+    RecordingIndex(int blockSize, long sourceLength, long sourceLastModified) {
+        this.blockSize = blockSize;
+        this.sourceLength = sourceLength;
+        this.sourceLastModified = sourceLastModified;
+    }
+
+    static File indexFileFor(File recording) {
+        return new File(recording.getPath() + ".idx");
+    }
+
+    int blockCount() { return blockCnt; }
+
+    long offset(int blockIdx) { return offsets[blockIdx]; }
+
+    /** Whether the given block may contain entries within [fromTs, toTs] of one of the sensors in sensorMask */
+    boolean mayContain(int blockIdx, long fromTs, long toTs, long sensorMask) {
+        return (sensorMasks[blockIdx] & sensorMask) != 0 && maxTs[blockIdx] >= fromTs && minTs[blockIdx] <= toTs;
+    }
+
+    /** Index of the first block at or after startBlockIdx that may contain matching entries, or -1 */
+    int findBlock(int startBlockIdx, long fromTs, long toTs, long sensorMask) {
+        for(int i = startBlockIdx; i < blockCnt; ++i) {
+            if(mayContain(i, fromTs, toTs, sensorMask)) { return i; }
+        }
+        return -1;
+    }
+
+    // ###########
+    // # BUILDING
+    // ###########
+    void startBlock(long offset) {
+        if(blockCnt == offsets.length) {
+            final int newLength = offsets.length * 2;
+            offsets = Arrays.copyOf(offsets, newLength);
+            minTs = Arrays.copyOf(minTs, newLength);
+            maxTs = Arrays.copyOf(maxTs, newLength);
+            sensorMasks = Arrays.copyOf(sensorMasks, newLength);
+        }
+        offsets[blockCnt] = offset;
+        minTs[blockCnt] = Long.MAX_VALUE;
+        maxTs[blockCnt] = Long.MIN_VALUE;
+        sensorMasks[blockCnt] = 0;
+        blockCnt += 1;
+    }
+
+    /** Add an entry to the last started block */
+    void addEntry(long timestamp, long sensorMask) {
+        final int blockIdx = blockCnt - 1;
+        if(timestamp < minTs[blockIdx]) { minTs[blockIdx] = timestamp; }
+        if(timestamp > maxTs[blockIdx]) { maxTs[blockIdx] = timestamp; }
+        sensorMasks[blockIdx] |= sensorMask;
+    }
+
+    // ###########
+    // # PERSISTENCE
+    // ###########
+    void save(File indexFile) throws IOException {
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(blockSize);
+            out.writeLong(sourceLength);
+            out.writeLong(sourceLastModified);
+            out.writeInt(blockCnt);
+            for(int i = 0; i < blockCnt; ++i) {
+                out.writeLong(offsets[i]);
+                out.writeLong(minTs[i]);
+                out.writeLong(maxTs[i]);
+                out.writeLong(sensorMasks[i]);
+            }
+        }
+    }
+
+    /**
+     * Load the persisted index of the given recording.
+     * @return the index, or null if there is no (valid and up-to-date) index for the recording
+     */
+    static RecordingIndex load(File indexFile, File recording, int blockSize) {
+        if(!indexFile.isFile()) { return null; }
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if(in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != blockSize) { return null; }
+            RecordingIndex index = new RecordingIndex(blockSize, in.readLong(), in.readLong());
+            if(index.sourceLength != recording.length() || index.sourceLastModified != recording.lastModified()) { return null; }
+            final int blockCnt = in.readInt();
+            for(int i = 0; i < blockCnt; ++i) {
+                index.startBlock(in.readLong());
+                index.minTs[i] = in.readLong();
+                index.maxTs[i] = in.readLong();
+                index.sensorMasks[i] = in.readLong();
+            }
+            return index;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,430 @@
+package de.fhws.indoor.libsmartphonesensors.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import de.fhws.indoor.libsmartphonesensors.SensorType;
+
+/**
+ * Streaming reader for csv recordings (<code>relTS;sensorId;csv</code> lines).
+ * <p>
+ *     Lines are read into a reused buffer and split into fields in-place: the reader only
+ *     remembers where each field starts and ends. Integers are parsed directly from the buffer,
+ *     floating point values too, as long as they can be converted exactly without the JDK's
+ *     parser (which is the case for the vast majority of logged values). Only getField() creates
+ *     Strings. Empty lines and comment lines (remarks, see RecordingSession.closeWithRemark()) are skipped.
+ *
+ *     When opened, the reader loads the recording's sparse timestamp / offset index (see RecordingIndex),
+ *     or builds it with one pass over the file and persists it next to the recording. select() uses this
+ *     index to only read the parts of the file that can contain entries of the requested time range
+ *     and sensor.
+ *
+ *     Binary recordings are read with BinaryRecordingReader.
+ *
+ *     Instances are NOT thread-safe.
+ * </p>
+ */
+public final class RecordingReader implements Closeable {
+
+    static final int DEFAULT_INDEX_BLOCK_SIZE = 64 * 1024;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int SENSOR_MASK_OTHER_BIT = 63;
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private RecordingIndex index;
+    private boolean indexLoaded = false;
+
+    // read buffer
+    private byte[] buffer = new byte[READ_BUFFER_SIZE];
+    private long bufferOffset = 0; // file offset of buffer[0]
+    private int bufferLength = 0;
+    private int readPos = 0;
+    private boolean eof = false;
+
+    // current line
+    private long lineOffset = 0;
+    private int fieldCnt = 0;
+    private int[] fieldStarts = new int[16];
+    private int[] fieldEnds = new int[16];
+    private long timestamp;
+    private int sensorId;
+
+    // selection
+    private long selectFromTs = Long.MIN_VALUE;
+    private long selectToTs = Long.MAX_VALUE;
+    private SensorType selectSensorType = null;
+    private long selectSensorMask = -1L;
+    private int nextBlockIdx = 0;
+    private boolean exhausted = false;
+
+    private RecordingReader(File recording) throws IOException {
+        this.file = new RandomAccessFile(recording, "r");
+        this.channel = file.getChannel();
+    }
+
+    /**
+     * Open the given csv recording.
+     * Loads the recording's index, or builds (and tries to persist) it, if there is no up-to-date index yet.
+     */
+    public static RecordingReader open(File recording) throws IOException {
+        return open(recording, DEFAULT_INDEX_BLOCK_SIZE);
+    }
+
+    static RecordingReader open(File recording, int indexBlockSize) throws IOException {
+        RecordingReader reader = new RecordingReader(recording);
+        try {
+            File indexFile = RecordingIndex.indexFileFor(recording);
+            reader.index = RecordingIndex.load(indexFile, recording, indexBlockSize);
+            reader.indexLoaded = (reader.index != null);
+            if(reader.index == null) {
+                reader.index = reader.buildIndex(new RecordingIndex(indexBlockSize, recording.length(), recording.lastModified()));
+                try {
+                    reader.index.save(indexFile);
+                } catch (IOException e) { // e.g. read-only storage, keep the in-memory index
+                    indexFile.delete();
+                }
+            }
+            reader.selectAll();
+            return reader;
+        } catch (IOException e) {
+            reader.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    /** Whether the index was loaded from disk (instead of being built on open) */
+    public boolean isIndexLoaded() { return indexLoaded; }
+
+    public int getIndexBlockCount() { return index.blockCount(); }
+
+    // ###########
+    // # SELECTION
+    // ###########
+
+    /** Iterate over all entries of the recording (from the beginning) */
+    public void selectAll() {
+        select(Long.MIN_VALUE, Long.MAX_VALUE, null);
+    }
+
+    /**
+     * Iterate only over the entries with a timestamp within [fromTs, toTs] (starting at the beginning).
+     * This is effectively a seek to fromTs.
+     */
+    public void select(long fromTs, long toTs) {
+        select(fromTs, toTs, null);
+    }
+
+    /**
+     * Iterate only over the entries of the given sensor, with a timestamp within [fromTs, toTs] (starting at the beginning).
+     * Entries are returned in file order.
+     * @param sensorType Sensor to iterate, or null for all sensors
+     */
+    public void select(long fromTs, long toTs, SensorType sensorType) {
+        selectFromTs = fromTs;
+        selectToTs = toTs;
+        selectSensorType = sensorType;
+        selectSensorMask = (sensorType == null) ? -1L : sensorMask(sensorType.id());
+        final int firstBlockIdx = index.findBlock(0, fromTs, toTs, selectSensorMask);
+        exhausted = (firstBlockIdx < 0);
+        nextBlockIdx = Math.max(0, firstBlockIdx);
+        seekTo(exhausted ? 0 : index.offset(firstBlockIdx));
+    }
+
+    // ###########
+    // # ITERATION
+    // ###########
+
+    /**
+     * Advance to the next selected entry.
+     * @return false if there are no more selected entries
+     */
+    public boolean next() throws IOException {
+        while(!exhausted && readLine()) {
+            if(!enterBlock()) { continue; }
+            if(!parseLine()) { continue; }
+            if(timestamp < selectFromTs || timestamp > selectToTs) { continue; }
+            if(selectSensorType != null && sensorId != selectSensorType.id()) { continue; }
+            return true;
+        }
+        return false;
+    }
+
+    /** File offset of the current entry's line */
+    public long getLineOffset() { return lineOffset; }
+
+    /** Timestamp of the current entry (relative to the recording start) */
+    public long getTimestamp() { return timestamp; }
+
+    public int getSensorId() { return sensorId; }
+
+    /** SensorType of the current entry, or null if the id is unknown */
+    public SensorType getSensorType() { return SensorType.fromId(sensorId); }
+
+    /** Amount of payload fields (fields after the sensor id) of the current entry */
+    public int getFieldCount() { return fieldCnt - 2; }
+
+    /** Complete payload (all fields after the sensor id) of the current entry, as String */
+    public String getPayload() {
+        return new String(buffer, fieldStarts[2], fieldEnds[fieldCnt - 1] - fieldStarts[2], BinaryRecordEncoder.UTF8);
+    }
+
+    /** Payload field with the given index, as String */
+    public String getField(int idx) {
+        final int fieldIdx = payloadFieldIdx(idx);
+        return new String(buffer, fieldStarts[fieldIdx], fieldEnds[fieldIdx] - fieldStarts[fieldIdx], BinaryRecordEncoder.UTF8);
+    }
+
+    /** Payload field with the given index, parsed as long */
+    public long getLong(int idx) {
+        final int fieldIdx = payloadFieldIdx(idx);
+        return parseLong(buffer, fieldStarts[fieldIdx], fieldEnds[fieldIdx]);
+    }
+
+    /** Payload field with the given index, parsed as double (same result as Double.parseDouble()) */
+    public double getDouble(int idx) {
+        final int fieldIdx = payloadFieldIdx(idx);
+        final double value = parseDoubleFast(buffer, fieldStarts[fieldIdx], fieldEnds[fieldIdx]);
+        if(Double.isNaN(value)) { return Double.parseDouble(getField(idx)); }
+        return value;
+    }
+
+    /** Payload field with the given index, parsed as float (same result as Float.parseFloat()) */
+    public float getFloat(int idx) {
+        final int fieldIdx = payloadFieldIdx(idx);
+        final double value = parseDoubleFast(buffer, fieldStarts[fieldIdx], fieldEnds[fieldIdx]);
+        // Rounding the (correctly rounded) double to float again is only exact, if the double does
+        // not lie exactly between two floats. Outside of the normal float range, let the JDK decide.
+        final double absValue = Math.abs(value);
+        if(Double.isNaN(value) || (value != 0 && (absValue < Float.MIN_NORMAL || absValue > Float.MAX_VALUE))
+                || (Double.doubleToRawLongBits(value) & 0x1FFFFFFFL) == 0x10000000L) {
+            return Float.parseFloat(getField(idx));
+        }
+        return (float) value;
+    }
+
+    // ###########
+    // # INTERNALS
+    // ###########
+
+    private int payloadFieldIdx(int idx) {
+        if(idx < 0 || idx + 2 >= fieldCnt) { throw new IllegalArgumentException("Out of range"); }
+        return idx + 2;
+    }
+
+    private RecordingIndex buildIndex(RecordingIndex newIndex) throws IOException {
+        seekTo(0);
+        long blockOffset = Long.MIN_VALUE;
+        while(readLine()) {
+            if(blockOffset == Long.MIN_VALUE || lineOffset - blockOffset >= newIndex.blockSize) {
+                blockOffset = lineOffset;
+                newIndex.startBlock(blockOffset);
+            }
+            if(parseLine()) {
+                newIndex.addEntry(timestamp, sensorMask(sensorId));
+            }
+        }
+        return newIndex;
+    }
+
+    /**
+     * Track the index block of the current line.
+     * @return false if the current line's block can not contain selected entries (the reader then
+     * already skipped to the next block that can)
+     */
+    private boolean enterBlock() {
+        if(nextBlockIdx >= index.blockCount() || lineOffset < index.offset(nextBlockIdx)) { return true; }
+        int blockIdx = nextBlockIdx;
+        while(blockIdx + 1 < index.blockCount() && lineOffset >= index.offset(blockIdx + 1)) { blockIdx += 1; }
+        nextBlockIdx = blockIdx + 1;
+        if(index.mayContain(blockIdx, selectFromTs, selectToTs, selectSensorMask)) { return true; }
+        final int candidateBlockIdx = index.findBlock(blockIdx + 1, selectFromTs, selectToTs, selectSensorMask);
+        if(candidateBlockIdx < 0) {
+            exhausted = true;
+        } else {
+            nextBlockIdx = candidateBlockIdx;
+            seekTo(index.offset(candidateBlockIdx));
+        }
+        return false;
+    }
+
+    private void seekTo(long offset) {
+        bufferOffset = offset;
+        bufferLength = 0;
+        readPos = 0;
+        eof = false;
+    }
+
+    /** Read the next raw line and split it into fields */
+    private boolean readLine() throws IOException {
+        int scanPos = readPos;
+        while(true) {
+            for(; scanPos < bufferLength; ++scanPos) {
+                if(buffer[scanPos] == '\n') {
+                    splitLine(readPos, scanPos);
+                    readPos = scanPos + 1;
+                    return true;
+                }
+            }
+            if(eof) {
+                if(readPos == bufferLength) { return false; }
+                splitLine(readPos, bufferLength); // last line without trailing newline
+                readPos = bufferLength;
+                return true;
+            }
+            scanPos -= fill();
+        }
+    }
+
+    /**
+     * Read more data from the file, after moving the unread rest of the buffer to its beginning.
+     * @return the amount of bytes the unread rest was moved by
+     */
+    private int fill() throws IOException {
+        final int shift = readPos;
+        if(shift > 0) {
+            System.arraycopy(buffer, readPos, buffer, 0, bufferLength - readPos);
+            bufferOffset += shift;
+            bufferLength -= shift;
+            readPos = 0;
+        }
+        if(bufferLength == buffer.length) { // line longer than the buffer
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        final int readCnt = channel.read(ByteBuffer.wrap(buffer, bufferLength, buffer.length - bufferLength), bufferOffset + bufferLength);
+        if(readCnt < 0) {
+            eof = true;
+        } else {
+            bufferLength += readCnt;
+        }
+        return shift;
+    }
+
+    private void splitLine(int start, int end) {
+        lineOffset = bufferOffset + start;
+        if(end > start && buffer[end - 1] == '\r') { end -= 1; }
+        fieldCnt = 0;
+        if(end == start || buffer[start] == '#') { return; } // empty or comment line
+        int fieldStart = start;
+        for(int i = start; i <= end; ++i) {
+            if(i == end || buffer[i] == ';') {
+                if(fieldCnt == fieldStarts.length) {
+                    fieldStarts = Arrays.copyOf(fieldStarts, fieldCnt * 2);
+                    fieldEnds = Arrays.copyOf(fieldEnds, fieldCnt * 2);
+                }
+                fieldStarts[fieldCnt] = fieldStart;
+                fieldEnds[fieldCnt] = i;
+                fieldCnt += 1;
+                fieldStart = i + 1;
+            }
+        }
+    }
+
+    /** @return false if the current line is no entry (empty, comment or malformed) */
+    private boolean parseLine() {
+        if(fieldCnt < 3) { return false; }
+        try {
+            timestamp = parseLong(buffer, fieldStarts[0], fieldEnds[0]);
+            sensorId = (int) parseLong(buffer, fieldStarts[1], fieldEnds[1]);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        return true;
+    }
+
+    /** Bit of the given sensor in the index's sensor masks (unknown sensors and overflow share one bit) */
+    static long sensorMask(int sensorId) {
+        SensorType sensorType = SensorType.fromId(sensorId);
+        if(sensorType == null || sensorType.ordinal() >= SENSOR_MASK_OTHER_BIT) { return 1L << SENSOR_MASK_OTHER_BIT; }
+        return 1L << sensorType.ordinal();
+    }
+
+    static long parseLong(byte[] data, int start, int end) {
+        if(start == end) { throw new NumberFormatException("Empty field"); }
+        final boolean negative = (data[start] == '-');
+        int i = (negative || data[start] == '+') ? start + 1 : start;
+        if(i == end) { throw new NumberFormatException("No digits"); }
+        long value = 0; // accumulated negatively, to cover Long.MIN_VALUE
+        for(; i < end; ++i) {
+            final int digit = data[i] - '0';
+            if(digit < 0 || digit > 9) { throw new NumberFormatException("Invalid digit"); }
+            if(value < (Long.MIN_VALUE + digit) / 10) { throw new NumberFormatException("Out of range"); }
+            value = value * 10 - digit;
+        }
+        if(!negative) {
+            if(value == Long.MIN_VALUE) { throw new NumberFormatException("Out of range"); }
+            return -value;
+        }
+        return value;
+    }
+
+    /**
+     * Exact decimal to double conversion for the simple case (at most 15 significant digits and a
+     * decimal exponent of at most 22), where a single correctly rounded multiplication or division
+     * of two exactly representable doubles yields the correctly rounded result.
+     * @return the parsed value, or NaN if the fast path does not apply
+     */
+    static double parseDoubleFast(byte[] data, int start, int end) {
+        int i = start;
+        final boolean negative = (i < end && data[i] == '-');
+        if(i < end && (data[i] == '-' || data[i] == '+')) { i += 1; }
+        long mantissa = 0;
+        int significantDigits = 0, digits = 0, exponent = 0;
+        boolean dot = false;
+        for(; i < end; ++i) {
+            final byte c = data[i];
+            if(c == '.' && !dot) {
+                dot = true;
+                continue;
+            }
+            final int digit = c - '0';
+            if(digit < 0 || digit > 9) { break; }
+            digits += 1;
+            if(mantissa != 0 || digit != 0) { significantDigits += 1; }
+            if(significantDigits > 15) { return Double.NaN; }
+            mantissa = mantissa * 10 + digit;
+            if(dot) { exponent -= 1; }
+        }
+        if(digits == 0) { return Double.NaN; }
+        if(i < end) {
+            if(data[i] != 'E' && data[i] != 'e') { return Double.NaN; }
+            i += 1;
+            final boolean negativeExponent = (i < end && data[i] == '-');
+            if(i < end && (data[i] == '-' || data[i] == '+')) { i += 1; }
+            if(i == end || end - i > 3) { return Double.NaN; }
+            int exponentValue = 0;
+            for(; i < end; ++i) {
+                final int digit = data[i] - '0';
+                if(digit < 0 || digit > 9) { return Double.NaN; }
+                exponentValue = exponentValue * 10 + digit;
+            }
+            exponent += negativeExponent ? -exponentValue : exponentValue;
+        }
+        double value;
+        if(mantissa == 0) {
+            value = 0;
+        } else if(exponent < 0 && exponent >= -22) {
+            value = mantissa / POW10[-exponent];
+        } else if(exponent >= 0 && exponent <= 22) {
+            value = mantissa * POW10[exponent];
+        } else {
+            return Double.NaN;
+        }
+        return negative ? -value : value;
+    }
+
+}
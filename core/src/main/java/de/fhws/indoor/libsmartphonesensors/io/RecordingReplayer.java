@@ -0,0 +1,108 @@
+package de.fhws.indoor.libsmartphonesensors.io;
+
+import java.io.IOException;
+import java.util.concurrent.locks.LockSupport;
+
+import de.fhws.indoor.libsmartphonesensors.SensorDataInterface;
+import de.fhws.indoor.libsmartphonesensors.SensorType;
+
+/**
+ * Replays a csv recording, by feeding its entries into a SensorDataInterface or an EntryListener.
+ * <p>
+ *     Entries are delivered on the calling thread, in file order and with their exact recorded
+ *     timestamps, so replaying the same recording always yields the same sequence of events.
+ *     The speed factor only changes how long the replayer waits between entries:
+ *     REAL_TIME (1.0) reproduces the recorded timing, N replays N times faster and
+ *     AS_FAST_AS_POSSIBLE does not wait at all. Pacing follows the newest timestamp seen so far,
+ *     so entries that were written out of order (UnorderedLogger) never cause waits.
+ *
+ *     The FILE_METADATA and RECORDING_ID entries describe the recording itself and are not replayed.
+ * </p>
+ */
+public final class RecordingReplayer {
+
+    public static final double REAL_TIME = 1.0;
+    public static final double AS_FAST_AS_POSSIBLE = Double.POSITIVE_INFINITY;
+
+    /**
+     * Receives replayed entries. The reader is positioned at the entry and may only be
+     * accessed during the callback.
+     */
+    public interface EntryListener {
+        void onEntry(RecordingReader entry);
+    }
+
+    private final RecordingReader reader;
+    private final double speed;
+    private volatile boolean stopRequested = false;
+
+    /**
+     * @param reader Reader of the recording to replay. The replay respects the reader's current selection.
+     * @param speed Replay speed factor (> 0), see REAL_TIME and AS_FAST_AS_POSSIBLE
+     */
+    public RecordingReplayer(RecordingReader reader, double speed) {
+        if(!(speed > 0)) { throw new IllegalArgumentException("speed has to be > 0"); }
+        this.reader = reader;
+        this.speed = speed;
+    }
+
+    /** Stop a running replay (callable from any thread) */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    /**
+     * Replay the recording into the given SensorDataInterface.
+     * Timestamps are passed as target.getStartTimestamp() + recorded (relative) timestamp, so a logger
+     * writing to a recording with that start timestamp reproduces the recorded timestamps.
+     * @return amount of replayed entries
+     */
+    public long replay(final SensorDataInterface target) throws IOException {
+        final long startTimestamp = target.getStartTimestamp();
+        return replay(new EntryListener() {
+            @Override public void onEntry(RecordingReader entry) {
+                SensorType sensorType = entry.getSensorType();
+                if(sensorType != null) {
+                    target.onData(startTimestamp + entry.getTimestamp(), sensorType, entry.getPayload());
+                }
+            }
+        });
+    }
+
+    /**
+     * Replay the recording into the given listener.
+     * @return amount of replayed entries
+     */
+    public long replay(EntryListener listener) throws IOException {
+        stopRequested = false;
+        long entryCnt = 0;
+        long firstTs = Long.MIN_VALUE;
+        long newestTs = Long.MIN_VALUE;
+        long wallStartTs = 0;
+        while(!stopRequested && reader.next()) {
+            final int sensorId = reader.getSensorId();
+            if(sensorId == SensorType.FILE_METADATA.id() || sensorId == SensorType.RECORDING_ID.id()) { continue; }
+            final long timestamp = reader.getTimestamp();
+            if(firstTs == Long.MIN_VALUE) {
+                firstTs = timestamp;
+                wallStartTs = System.nanoTime();
+            }
+            if(timestamp > newestTs) {
+                newestTs = timestamp;
+                if(speed != AS_FAST_AS_POSSIBLE) {
+                    waitUntil(wallStartTs + (long) ((newestTs - firstTs) / speed));
+                }
+            }
+            listener.onEntry(reader);
+            entryCnt += 1;
+        }
+        return entryCnt;
+    }
+
+    private void waitUntil(long wallTs) {
+        for(long remainingNs = wallTs - System.nanoTime(); remainingNs > 0 && !stopRequested; remainingNs = wallTs - System.nanoTime()) {
+            LockSupport.parkNanos(remainingNs);
+        }
+    }
+
+}
@@ -1,7 +1,5 @@
 package de.fhws.indoor.libsmartphonesensors.io;
 
-import android.os.SystemClock;
-
 import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -19,8 +17,11 @@ public class RecordingSession {
     private UUID recordingId;
     private long startTs;
     private File file;
+    private RecordingFormat format;
+    private RecordingWriteMode writeMode;
     private OutputStream fileStream;
-    private BufferedOutputStream bufferedOutputStream;
+    private OutputStream outputStream;
+    private BinaryRecordingWriter binaryWriter = null;
     private HashMap<String, AuxillaryStream> auxillaryStreams = new HashMap<>();
 
     private static class AuxillaryStream {
@@ -32,17 +33,33 @@ public class RecordingSession {
         }
     }
 
-    private RecordingSession(long startTs, File file, OutputStream fileStream) {
+    private RecordingSession(long startTs, File file, RecordingFormat format, RecordingWriteMode writeMode, OutputStream fileStream) {
         recordingId = UUID.randomUUID();
         this.startTs = startTs;
         this.file = file;
+        this.format = format;
+        this.writeMode = writeMode;
         this.fileStream = fileStream;
-        this.bufferedOutputStream = new BufferedOutputStream(fileStream);
+        // PreallocatedFileOutputStream does its own (larger) buffering
+        this.outputStream = (writeMode == RecordingWriteMode.STREAM) ? new BufferedOutputStream(fileStream) : fileStream;
+        if(format == RecordingFormat.BINARY) {
+            binaryWriter = new BinaryRecordingWriter(outputStream);
+        }
     }
 
     public static RecordingSession create(long startTs, File file) throws FileNotFoundException {
-        OutputStream fileStream = new FileOutputStream(file);
-        return new RecordingSession(startTs, file, fileStream);
+        return create(startTs, file, RecordingFormat.CSV);
+    }
+
+    public static RecordingSession create(long startTs, File file, RecordingFormat format) throws FileNotFoundException {
+        return create(startTs, file, format, RecordingWriteMode.STREAM);
+    }
+
+    public static RecordingSession create(long startTs, File file, RecordingFormat format, RecordingWriteMode writeMode) throws FileNotFoundException {
+        OutputStream fileStream = (writeMode == RecordingWriteMode.PREALLOCATED)
+                ? new PreallocatedFileOutputStream(file)
+                : new FileOutputStream(file);
+        return new RecordingSession(startTs, file, format, writeMode, fileStream);
     }
 
     public UUID getRecordingId() { return recordingId; }
@@ -55,6 +72,10 @@ public class RecordingSession {
 
     public File getFile() { return file; }
 
+    public RecordingFormat getFormat() { return format; }
+
+    public RecordingWriteMode getWriteMode() { return writeMode; }
+
     public OutputStream openAuxiliaryChannel(String id) throws IOException {
         if(auxillaryStreams.containsKey(id)) {
             throw new UnsupportedOperationException("An auxiliary channel with this id was already opened.");
@@ -66,13 +87,40 @@ public class RecordingSession {
         return auxiliaryChannelStream;
     }
 
-    public OutputStream stream() { return bufferedOutputStream; }
+    public OutputStream stream() { return outputStream; }
+
+    /**
+     * Write the header of a binary recording. Has to be called once, before the first entry is written.
+     * @param metadataCsv Recording metadata (content of the FILE_METADATA line in csv recordings)
+     */
+    public void writeBinaryHeader(String metadataCsv) throws IOException {
+        if(binaryWriter == null) { throw new IllegalStateException("Not a binary recording"); }
+        binaryWriter.writeHeader(recordingId, metadataCsv);
+    }
+
+    /**
+     * Write a single encoded entry to the recording, using the session's format.
+     * @param timestamp Timestamp relative to the recording start
+     * @param entry Encoded entry. A complete line for csv recordings, a record body for binary recordings.
+     */
+    public void writeEntry(long timestamp, byte[] entry) throws IOException {
+        writeEntry(timestamp, entry, 0, entry.length);
+    }
+
+    /** @see #writeEntry(long, byte[]) */
+    public void writeEntry(long timestamp, byte[] entry, int offset, int length) throws IOException {
+        if(binaryWriter != null) {
+            binaryWriter.writeRecord(timestamp, entry, offset, length);
+        } else {
+            outputStream.write(entry, offset, length);
+        }
+    }
 
     public void close() {
         try {
-            bufferedOutputStream.flush();
-            bufferedOutputStream.close();
-            bufferedOutputStream = null;
+            outputStream.flush();
+            outputStream.close();
+            outputStream = null;
 
             fileStream.flush();
             fileStream.close();
@@ -92,16 +140,25 @@ public class RecordingSession {
      * @param remark Remark to add at the bottom of the file
      */
     public void closeWithRemark(String remark) throws IOException {
+        if(binaryWriter != null) {
+            binaryWriter.writeRemark(remark);
+        } else {
+            StringBuilder remarkBuilder = new StringBuilder(REMARK_HEADER.length() + remark.length() * 2);
+            appendRemark(remarkBuilder, remark);
+            outputStream.write(remarkBuilder.toString().getBytes());
+        }
+        close();
+    }
+
+    /** Append the given remark in its csv representation (see closeWithRemark()) */
+    static void appendRemark(StringBuilder remarkBuilder, String remark) {
         String[] remarkLines = remark.split("\\r?\\n");
-        StringBuilder remarkBuilder = new StringBuilder(REMARK_HEADER.length() + remark.length() + remarkLines.length * 3);
         remarkBuilder.append(REMARK_HEADER);
         for(String remarkLine : remarkLines) {
             remarkBuilder.append("# ");
             remarkBuilder.append(remarkLine);
             remarkBuilder.append("\n");
         }
-        bufferedOutputStream.write(remarkBuilder.toString().getBytes());
-        close();
     }
 
     /**
@@ -0,0 +1,13 @@
+package de.fhws.indoor.libsmartphonesensors.io;
+
+/**
+ * Ways a RecordingSession can write its recording file.
+ */
+public enum RecordingWriteMode {
+
+    /** FileOutputStream behind an 8 KB BufferedOutputStream */
+    STREAM,
+    /** FileChannel with a large direct buffer, growing the file in large preallocated chunks (see PreallocatedFileOutputStream) */
+    PREALLOCATED,
+
+}
@@ -0,0 +1,159 @@
+package de.fhws.indoor.libsmartphonesensors.loggers;
+
+import java.util.Arrays;
+
+/**
+ * Reusable ASCII line encoder for the logfile's <code>relTS;sensorId;csv\n</code> format.
+ * <p>
+ *     Numbers are written directly into an internal growable byte buffer, without going through
+ *     String.format() or intermediate String objects. Integers are formatted digit by digit,
+ *     floating point values are formatted using a reused scratch StringBuilder, which uses the
+ *     exact same conversion as Float.toString() / Double.toString(), so the resulting bytes are
+ *     identical to what the String based CSV path produces.
+ *
+ *     Instances are NOT thread-safe. Use one encoder per producing thread.
+ * </p>
+ */
+public final class LineEncoder {
+
+    private static final int INITIAL_CAPACITY = 256;
+    private static final byte SEPARATOR = ';';
+    private static final byte NEWLINE = '\n';
+
+    private byte[] buffer;
+    private int length = 0;
+    private final StringBuilder scratch = new StringBuilder(32);
+    private final byte[] digits = new byte[20];
+
+    public LineEncoder() {
+        this(INITIAL_CAPACITY);
+    }
+    public LineEncoder(int initialCapacity) {
+        this.buffer = new byte[Math.max(16, initialCapacity)];
+    }
+
+    /** Discard all encoded content, keeping the allocated buffer. */
+    public LineEncoder reset() {
+        length = 0;
+        return this;
+    }
+
+    /** Start a new line with the <code>relTS;sensorId;</code> prefix (implicitly resets the encoder) */
+    public LineEncoder beginLine(long relTimestamp, int sensorId) {
+        reset();
+        appendLong(relTimestamp).appendSeparator();
+        appendLong(sensorId).appendSeparator();
+        return this;
+    }
+
+    /** Terminate the current line */
+    public LineEncoder endLine() {
+        ensureCapacity(1);
+        buffer[length++] = NEWLINE;
+        return this;
+    }
+
+    public LineEncoder appendSeparator() {
+        ensureCapacity(1);
+        buffer[length++] = SEPARATOR;
+        return this;
+    }
+
+    public LineEncoder appendLong(long value) {
+        if(value == Long.MIN_VALUE) { return appendAscii("-9223372036854775808"); }
+        ensureCapacity(20);
+        if(value < 0) {
+            buffer[length++] = '-';
+            value = -value;
+        }
+        int digitCnt = 0;
+        do {
+            digits[digitCnt++] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while(value != 0);
+        while(digitCnt > 0) {
+            buffer[length++] = digits[--digitCnt];
+        }
+        return this;
+    }
+
+    public LineEncoder appendFloat(float value) {
+        scratch.setLength(0);
+        scratch.append(value);
+        return appendScratch();
+    }
+
+    public LineEncoder appendDouble(double value) {
+        scratch.setLength(0);
+        scratch.append(value);
+        return appendScratch();
+    }
+
+    /**
+     * Append the given values, separated by ';'
+     * @param values Values to append
+     * @param count Amount of values (starting at index 0) to append
+     */
+    public LineEncoder appendFloats(float[] values, int count) {
+        for(int i = 0; i < count; ++i) {
+            if(i != 0) { appendSeparator(); }
+            appendFloat(values[i]);
+        }
+        return this;
+    }
+
+    /**
+     * Append the given values, separated by ';'
+     * @param values Values to append
+     * @param count Amount of values (starting at index 0) to append
+     */
+    public LineEncoder appendLongs(long[] values, int count) {
+        for(int i = 0; i < count; ++i) {
+            if(i != 0) { appendSeparator(); }
+            appendLong(values[i]);
+        }
+        return this;
+    }
+
+    /** Append the given string's characters. Only use for pure ASCII content. */
+    public LineEncoder appendAscii(CharSequence str) {
+        final int strLength = str.length();
+        ensureCapacity(strLength);
+        for(int i = 0; i < strLength; ++i) {
+            buffer[length++] = (byte) str.charAt(i);
+        }
+        return this;
+    }
+
+    /** Append already encoded raw bytes */
+    public LineEncoder appendBytes(byte[] data, int offset, int count) {
+        ensureCapacity(count);
+        System.arraycopy(data, offset, buffer, length, count);
+        length += count;
+        return this;
+    }
+
+    public int length() { return length; }
+
+    /** Direct access to the internal buffer. Only the first length() bytes are valid. */
+    public byte[] array() { return buffer; }
+
+    /** Copy of the currently encoded content */
+    public byte[] toByteArray() { return Arrays.copyOf(buffer, length); }
+
+    private LineEncoder appendScratch() {
+        final int scratchLength = scratch.length();
+        ensureCapacity(scratchLength);
+        for(int i = 0; i < scratchLength; ++i) {
+            buffer[length++] = (byte) scratch.charAt(i);
+        }
+        return this;
+    }
+
+    private void ensureCapacity(int additional) {
+        if(length + additional > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + additional));
+        }
+    }
+
+}
@@ -0,0 +1,56 @@
+package de.fhws.indoor.libsmartphonesensors.loggers;
+
+import de.fhws.indoor.libsmartphonesensors.SensorType;
+
+/**
+ * A single encoded entry of a recording, as passed from the Logger to its writer.
+ * <p>
+ *     Entries are pooled by the Logger. The line buffer is reused, so only the first
+ *     length bytes of line are valid.
+ * </p>
+ */
+public class LogEntry implements Comparable<LogEntry> {
+    public long timestamp;
+    /** sensor that produced this entry (may be null if unknown) */
+    public SensorType sensorType;
+    /** encoded entry (csv line including the trailing newline, or binary record body) */
+    public byte[] line;
+    /** amount of valid bytes in line */
+    public int length;
+
+    public LogEntry() {
+        this.line = new byte[0];
+    }
+    public LogEntry(long timestamp, String line) {
+        this(timestamp, null, line.getBytes());
+    }
+    public LogEntry(long timestamp, byte[] line) {
+        this(timestamp, null, line);
+    }
+    public LogEntry(long timestamp, SensorType sensorType, byte[] line) {
+        this.timestamp = timestamp;
+        this.sensorType = sensorType;
+        this.line = line;
+        this.length = line.length;
+    }
+
+    /**
+     * Overwrite this entry's contents with a copy of the given encoded data.
+     * The line buffer is only reallocated if it is too small.
+     */
+    public LogEntry set(long timestamp, SensorType sensorType, byte[] data, int dataLength) {
+        this.timestamp = timestamp;
+        this.sensorType = sensorType;
+        if(line.length < dataLength) {
+            line = new byte[Math.max(dataLength, 2 * line.length)];
+        }
+        System.arraycopy(data, 0, line, 0, dataLength);
+        this.length = dataLength;
+        return this;
+    }
+
+    @Override
+    public int compareTo(LogEntry another) {
+        return Long.compare(timestamp, another.timestamp);
+    }
+}
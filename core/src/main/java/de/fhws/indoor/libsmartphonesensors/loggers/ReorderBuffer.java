@@ -0,0 +1,230 @@
+package de.fhws.indoor.libsmartphonesensors.loggers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.fhws.indoor.libsmartphonesensors.SensorType;
+
+/**
+ * Time-window based reorder buffer, using an incremental k-way merge.
+ * <p>
+ *     Every sensor stream is (almost) monotonic on its own, so entries are kept in one sorted FIFO
+ *     lane per SensorType. A binary min-heap over the lane heads then yields the globally sorted
+ *     sequence with O(log k) work per committed entry (k = amount of active lanes), instead of
+ *     regularly sorting the whole buffer in one large burst.
+ *
+ *     Entries are committed incrementally, as soon as they are older than the watermark
+ *     (newest timestamp - reorderWindowNs). Entries arriving at most reorderWindowNs late are
+ *     thus always committed in timestamp order. Entries with identical timestamps are committed
+ *     in insertion order (like a stable sort). Entries arriving even later are committed
+ *     immediately (out of order).
+ *
+ *     Commits are handed to the CommitListener in small slices (a few milliseconds of entries,
+ *     at most MAX_COMMIT_SLICE), so a single add() never holds the calling thread for long.
+ * </p>
+ */
+public final class ReorderBuffer {
+
+    public interface CommitListener {
+        void onCommit(List<LogEntry> commitSlice);
+    }
+
+    // commits are gathered into slices spanning (at least) this timeframe, to reduce per-commit overhead
+    private static final long COMMIT_GRANULARITY_NS = 5L * 1000 * 1000;
+    // maximum amount of entries committed by one add(), so a jump of the watermark (e.g. after a gap in the
+    // sensor data) is committed over the following adds, instead of in one burst
+    private static final int MAX_COMMIT_SLICE = 32;
+
+    private final long reorderWindowNs;
+    private final CommitListener listener;
+
+    private long newestTs = Long.MIN_VALUE;
+    private long nextSeq = 0;
+    private int size = 0;
+
+    // one lane per SensorType (+ one for entries without SensorType)
+    private final Lane[] lanes = new Lane[SensorType.values().length + 1];
+    // min-heap of non-empty lanes, ordered by their head entry
+    private final Lane[] heap = new Lane[lanes.length];
+    private int heapSize = 0;
+    // reused commit slice handed to the listener
+    private final ArrayList<LogEntry> commitSlice = new ArrayList<>();
+
+    public ReorderBuffer(long reorderWindowNs, CommitListener listener) {
+        this.reorderWindowNs = reorderWindowNs;
+        this.listener = listener;
+        for(int i = 0; i < lanes.length; ++i) {
+            lanes[i] = new Lane();
+        }
+    }
+
+    public void add(LogEntry logEntry) {
+        if(logEntry.timestamp > newestTs) { newestTs = logEntry.timestamp; }
+
+        Lane lane = lanes[(logEntry.sensorType == null) ? (lanes.length - 1) : logEntry.sensorType.ordinal()];
+        boolean newHead = lane.insert(logEntry, nextSeq++);
+        size += 1;
+        if(lane.heapIdx < 0) {
+            heapPush(lane);
+        } else if(newHead) { // out-of-order entry became the new head of its lane
+            siftUp(lane.heapIdx);
+        }
+
+        if(heap[0].headTs <= newestTs - reorderWindowNs - COMMIT_GRANULARITY_NS) { // commit required
+            commitUntil(newestTs - reorderWindowNs, MAX_COMMIT_SLICE);
+        }
+    }
+
+    public void flush() {
+        commitUntil(Long.MAX_VALUE, Integer.MAX_VALUE);
+        newestTs = Long.MIN_VALUE;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long timespan() {
+        return (heapSize == 0) ? 0 : (newestTs - heap[0].headTs);
+    }
+
+    private void commitUntil(long commitEndTs, int maxCnt) {
+        while(heapSize > 0 && heap[0].headTs <= commitEndTs && commitSlice.size() < maxCnt) {
+            Lane lane = heap[0];
+            commitSlice.add(lane.poll());
+            size -= 1;
+            if(lane.isEmpty()) {
+                heapPop();
+            } else {
+                siftDown(0);
+            }
+        }
+        if(commitSlice.size() > 0) {
+            listener.onCommit(commitSlice);
+            commitSlice.clear();
+        }
+    }
+
+    // ###########
+    // # HEAP
+    // ###########
+    private static boolean before(Lane a, Lane b) {
+        return (a.headTs < b.headTs) || (a.headTs == b.headTs && a.headSeq < b.headSeq);
+    }
+
+    private void heapPush(Lane lane) {
+        heap[heapSize] = lane;
+        lane.heapIdx = heapSize;
+        heapSize += 1;
+        siftUp(lane.heapIdx);
+    }
+
+    private void heapPop() {
+        heap[0].heapIdx = -1;
+        heapSize -= 1;
+        if(heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heap[0].heapIdx = 0;
+            siftDown(0);
+        }
+        heap[heapSize] = null;
+    }
+
+    private void siftUp(int idx) {
+        Lane lane = heap[idx];
+        while(idx > 0) {
+            int parentIdx = (idx - 1) >>> 1;
+            Lane parent = heap[parentIdx];
+            if(!before(lane, parent)) { break; }
+            heap[idx] = parent;
+            parent.heapIdx = idx;
+            idx = parentIdx;
+        }
+        heap[idx] = lane;
+        lane.heapIdx = idx;
+    }
+
+    private void siftDown(int idx) {
+        Lane lane = heap[idx];
+        while(true) {
+            int childIdx = 2 * idx + 1;
+            if(childIdx >= heapSize) { break; }
+            if(childIdx + 1 < heapSize && before(heap[childIdx + 1], heap[childIdx])) { childIdx += 1; }
+            if(!before(heap[childIdx], lane)) { break; }
+            heap[idx] = heap[childIdx];
+            heap[idx].heapIdx = idx;
+            idx = childIdx;
+        }
+        heap[idx] = lane;
+        lane.heapIdx = idx;
+    }
+
+    // ###########
+    // # LANE
+    // ###########
+
+    /**
+     * Sorted FIFO (growable ring-buffer) of the entries of one sensor.
+     * Appending in-order entries is O(1), out-of-order entries are inserted at their sorted position.
+     */
+    private static final class Lane {
+        private LogEntry[] entries = new LogEntry[64];
+        private long[] seqs = new long[64];
+        private int head = 0;
+        private int count = 0;
+        int heapIdx = -1;
+        // cached key of the head entry (heap ordering)
+        long headTs;
+        long headSeq;
+
+        boolean isEmpty() { return count == 0; }
+
+        /** @return true if the inserted entry is the lane's new head */
+        boolean insert(LogEntry entry, long seq) {
+            if(count == entries.length) { grow(); }
+            final int mask = entries.length - 1;
+            // walk backwards from the tail, until the correct (stable) position is found
+            int pos = count;
+            while(pos > 0 && entries[(head + pos - 1) & mask].timestamp > entry.timestamp) {
+                int dst = (head + pos) & mask, src = (head + pos - 1) & mask;
+                entries[dst] = entries[src];
+                seqs[dst] = seqs[src];
+                pos -= 1;
+            }
+            entries[(head + pos) & mask] = entry;
+            seqs[(head + pos) & mask] = seq;
+            count += 1;
+            if(pos == 0) {
+                headTs = entry.timestamp;
+                headSeq = seq;
+                return true;
+            }
+            return false;
+        }
+
+        LogEntry poll() {
+            LogEntry entry = entries[head];
+            entries[head] = null;
+            head = (head + 1) & (entries.length - 1);
+            count -= 1;
+            if(count > 0) {
+                headTs = entries[head].timestamp;
+                headSeq = seqs[head];
+            }
+            return entry;
+        }
+
+        private void grow() {
+            LogEntry[] newEntries = new LogEntry[entries.length * 2];
+            long[] newSeqs = new long[seqs.length * 2];
+            for(int i = 0; i < count; ++i) {
+                newEntries[i] = entries[(head + i) & (entries.length - 1)];
+                newSeqs[i] = seqs[(head + i) & (seqs.length - 1)];
+            }
+            entries = newEntries;
+            seqs = newSeqs;
+            head = 0;
+        }
+    }
+
+}
@@ -0,0 +1,186 @@
+package de.fhws.indoor.libsmartphonesensors.math;
+
+/**
+ * Simple n-dimensional linear signal resampler.
+ * <p>
+ *     Pushed samples are copied, so the caller may reuse its sample array. Every resampled sample
+ *     is passed to the SampleCallback in a new array, unless the caller provides an output buffer
+ *     (see pushSample(long, float[], float[], SampleCallback)), which avoids allocations.
+ *
+ *     For offline processing, pushSamples() resamples a whole batch of samples into caller-provided
+ *     arrays, without a callback per output sample. Batches and single samples can be mixed, and
+ *     yield bit-identical results.
+ * </p>
+ * @author Markus Ebner
+ */
+public class LinearResampler {
+    // resample config
+    private int dimensions;
+    private long sampleIntervalNs;
+    private Long syncTimestampNs = null;
+    // interpolation state
+    private long nextSampleTs = 0;
+    private boolean hasPrevSample = false;
+    private long prevSampleTs = 0;
+    private float[] prevSample;
+
+    public interface SampleCallback {
+        void onSample(long timestampNs, float[] sample);
+    }
+
+    public long getSampleIntervalNs() {
+        return sampleIntervalNs;
+    }
+
+    /**
+     * Create a new linear resampler. Will synchronize on the timestamp of the
+     * first received sample.
+     * @param dimensions Amount of dimensions the signal has.
+     * @param targetHz Target frequency to resample the signal to
+     */
+    public LinearResampler(int dimensions, float targetHz) {
+        setup(dimensions, targetHz, null);
+    }
+    /**
+     * Create a new linear resampler with synchronized timestamp.
+     * This resampler will generate samples at multiples of the given syncTimestamp + n*sampleInterval
+     * such that the generated samples are running in unison to other resamplers with the same
+     * targetHz and syncTimestamp
+     * @param dimensions Amount of dimensions the signal has.
+     * @param targetHz Target frequency to resample the signal to
+     * @param syncTimestampNs Synchronization timestamp. All resulting samples will have
+     *                     a timestamp fulfilling syncTimestamp + n*sampleInterval
+     */
+    public LinearResampler(int dimensions, float targetHz, long syncTimestampNs) {
+        setup(dimensions, targetHz, syncTimestampNs);
+    }
+
+    private void setup(int dimensions, float targetHz, Long syncTimestampNs) {
+        this.dimensions = dimensions;
+        this.sampleIntervalNs = (long) ((double) 1000000000 / (double) targetHz);
+        if(syncTimestampNs != null) {
+            this.syncTimestampNs = (syncTimestampNs % sampleIntervalNs);
+        }
+        this.prevSample = new float[dimensions];
+    }
+
+    /**
+     * Push a new sample. Every resampled sample is passed to the sampleCallback in a new array.
+     */
+    public void pushSample(long timestamp, float[] sample, SampleCallback sampleCallback) {
+        pushSample(timestamp, sample, null, sampleCallback);
+    }
+
+    /**
+     * Push a new sample, writing the resampled samples into the given output buffer.
+     * @param outSample Buffer (of at least dimensions length) the resampled samples are written to,
+     *                  before it is passed to the sampleCallback. Only valid during the callback.
+     *                  If null, a new array is used for every resampled sample.
+     */
+    public void pushSample(long timestamp, float[] sample, float[] outSample, SampleCallback sampleCallback) {
+        if(!hasPrevSample) {
+            nextSampleTs = firstSampleTs(timestamp);
+            setPrevSample(timestamp, sample, 0);
+            hasPrevSample = true;
+        }
+
+        while(nextSampleTs <= timestamp) {
+            double a = 0;
+            if(timestamp != prevSampleTs) {
+                a = (double) (nextSampleTs - prevSampleTs) / (double) (timestamp - prevSampleTs);
+            }
+            final float[] out = (outSample != null) ? outSample : new float[dimensions];
+            long interpolTsNs = genSample(timestamp, sample, a, out);
+            sampleCallback.onSample(interpolTsNs, out);
+            nextSampleTs += sampleIntervalNs;
+        }
+        setPrevSample(timestamp, sample, 0);
+    }
+
+    /**
+     * Amount of samples a pushSamples() call with the given first and last input timestamp produces.
+     */
+    public int getOutputCount(long firstTimestamp, long lastTimestamp) {
+        final long startTs = hasPrevSample ? nextSampleTs : firstSampleTs(firstTimestamp);
+        if(lastTimestamp < startTs) { return 0; }
+        return (int) ((lastTimestamp - startTs) / sampleIntervalNs) + 1;
+    }
+
+    /**
+     * Push a batch of samples, writing all resampled samples into the given output arrays.
+     * @param timestamps Timestamps of the input samples (ascending)
+     * @param samples Input samples, row-major: sample i is at [i * dimensions, (i + 1) * dimensions)
+     * @param count Amount of input samples
+     * @param outTimestamps Receives the timestamps of the resampled samples
+     * @param outSamples Receives the resampled samples, row-major like samples.
+     *                   Both output arrays need room for getOutputCount() samples.
+     * @return Amount of resampled samples written
+     */
+    public int pushSamples(long[] timestamps, float[] samples, int count, long[] outTimestamps, float[] outSamples) {
+        if(count <= 0) { return 0; }
+        final int dims = dimensions;
+        final int outCapacity = getOutputCount(timestamps[0], timestamps[count - 1]);
+        if(outTimestamps.length < outCapacity || outSamples.length < outCapacity * dims) {
+            throw new IllegalArgumentException("output arrays too small for " + outCapacity + " samples");
+        }
+        if(!hasPrevSample) {
+            nextSampleTs = firstSampleTs(timestamps[0]);
+            setPrevSample(timestamps[0], samples, 0);
+            hasPrevSample = true;
+        }
+
+        // same arithmetic as pushSample(), for bit-identical results
+        final long intervalNs = sampleIntervalNs;
+        long nextTs = nextSampleTs;
+        long prevTs = prevSampleTs;
+        float[] prev = prevSample;
+        int prevOffset = 0;
+        int outCnt = 0;
+        for(int s = 0; s < count; ++s) {
+            final long ts = timestamps[s];
+            final int offset = s * dims;
+            while(nextTs <= ts) {
+                double a = 0;
+                if(ts != prevTs) {
+                    a = (double) (nextTs - prevTs) / (double) (ts - prevTs);
+                }
+                final double b = 1.0 - a;
+                final int outOffset = outCnt * dims;
+                for(int i = 0; i < dims; ++i) {
+                    outSamples[outOffset + i] = (float) (prev[prevOffset + i] * b + samples[offset + i] * a);
+                }
+                outTimestamps[outCnt++] = (long) (prevTs * b + ts * a);
+                nextTs += intervalNs;
+            }
+            prev = samples;
+            prevOffset = offset;
+            prevTs = ts;
+        }
+        nextSampleTs = nextTs;
+        setPrevSample(prevTs, samples, (count - 1) * dims);
+        return outCnt;
+    }
+
+    /** Timestamp of the first resampled sample, for the given first input timestamp */
+    private long firstSampleTs(long timestamp) {
+        if(syncTimestampNs == null) { return timestamp; }
+        long firstTs = syncTimestampNs;
+        firstTs += ((timestamp - syncTimestampNs) / sampleIntervalNs) * sampleIntervalNs;
+        if(firstTs < timestamp) { firstTs += sampleIntervalNs; }
+        if(Math.abs(firstTs - timestamp) > sampleIntervalNs) { throw new Error("BUG!"); }
+        return firstTs;
+    }
+
+    private void setPrevSample(long timestamp, float[] samples, int offset) {
+        prevSampleTs = timestamp;
+        System.arraycopy(samples, offset, prevSample, 0, dimensions);
+    }
+
+    private long genSample(long newSampleTs, float[] newSample, double a, float[] outSample) {
+        for(int i = 0; i < dimensions; ++i) {
+            outSample[i] = (float) (prevSample[i] * (1.0 - a) + newSample[i] * a);
+        }
+        return (long) (prevSampleTs * (1.0 - a) + newSampleTs * a);
+    }
+
+}
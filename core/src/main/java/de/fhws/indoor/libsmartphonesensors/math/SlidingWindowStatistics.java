@@ -0,0 +1,145 @@
+package de.fhws.indoor.libsmartphonesensors.math;
+
+/**
+ * Running mean and variance over the last n values of a stream.
+ * <p>
+ *     The window's sum and sum of squares are accumulated as compensated double-double values (an
+ *     extension of Kahan summation, using error-free TwoSum / TwoProduct). That way, adding a value and
+ *     removing it again when it leaves the window cancels out exactly (to ~106 bits), so no rounding
+ *     error builds up over long streams and no periodic recomputation over the whole window is required.
+ *     The variance is derived in the same precision, so E[x^2] - E[x]^2 does not cancel catastrophically,
+ *     even when the mean is large compared to the spread.
+ * </p>
+ */
+public final class SlidingWindowStatistics {
+
+    // 2^27 + 1, to split a double into two non-overlapping halves (Dekker)
+    private static final double SPLITTER = 134217729.0;
+
+    private final double[] ring;
+    private int headPtr = 0;
+    private int size = 0;
+    // sum and sum of squares of the window, as double-double (hi + lo)
+    private double sumHi = 0, sumLo = 0;
+    private double sqSumHi = 0, sqSumLo = 0;
+    // scratch for the double-double helpers (result hi / lo)
+    private double rHi, rLo;
+
+    public SlidingWindowStatistics(int capacity) {
+        if(capacity <= 0) { throw new IllegalArgumentException("capacity must be positive"); }
+        this.ring = new double[capacity];
+    }
+
+    public int size() { return size; }
+    public int capacity() { return ring.length; }
+    public boolean isFull() { return size == ring.length; }
+
+    /** Oldest value in the window (the one that is evicted by the next insert, if full) */
+    public double getOldest() {
+        if(size == 0) { throw new IllegalStateException("window is empty"); }
+        return isFull() ? ring[headPtr] : ring[0];
+    }
+
+    /**
+     * Insert a new value, evicting the oldest one if the window is full.
+     */
+    public void insert(double value) {
+        if(isFull()) {
+            accumulate(ring[headPtr], -1);
+        } else {
+            size += 1;
+        }
+        accumulate(value, 1);
+        ring[headPtr] = value;
+        headPtr = (headPtr + 1) % ring.length;
+    }
+
+    /** Mean of the values in the window */
+    public double mean() {
+        if(size == 0) { return 0; }
+        ddDiv(sumHi, sumLo, size);
+        return rHi + rLo;
+    }
+
+    /** Population variance of the values in the window (divided by n) */
+    public double variance() {
+        return (size == 0) ? 0 : sumOfSquaredDeviations() / size;
+    }
+
+    /** Sample variance of the values in the window (divided by n - 1) */
+    public double sampleVariance() {
+        return (size < 2) ? 0 : sumOfSquaredDeviations() / (size - 1);
+    }
+
+    public double stdDev() { return Math.sqrt(variance()); }
+
+    public void clear() {
+        headPtr = 0;
+        size = 0;
+        sumHi = sumLo = 0;
+        sqSumHi = sqSumLo = 0;
+    }
+
+    /** sum((x - mean)^2) = sum(x^2) - sum(x)^2 / n, evaluated in double-double */
+    private double sumOfSquaredDeviations() {
+        // sum^2, dropping sumLo^2 (far below double-double precision)
+        twoProduct(sumHi, sumHi);
+        final double sq = rHi;
+        final double sqErr = rLo + 2 * sumHi * sumLo;
+        ddDiv(sq, sqErr, size);
+        // sqSum - sum^2 / n
+        final double hi = rHi, lo = rLo;
+        twoSum(sqSumHi, -hi);
+        final double m2 = rHi + (rLo + (sqSumLo - lo));
+        return Math.max(0, m2);
+    }
+
+    /** Add (sign = 1) or remove (sign = -1) value to / from the window's sum and sum of squares */
+    private void accumulate(double value, double sign) {
+        // sum += sign * value
+        twoSum(sumHi, sign * value);
+        twoSum(rHi, rLo + sumLo);
+        sumHi = rHi; sumLo = rLo;
+        // sqSum += sign * value^2
+        twoProduct(value, value);
+        final double pHi = sign * rHi, pLo = sign * rLo;
+        twoSum(sqSumHi, pHi);
+        twoSum(rHi, rLo + (sqSumLo + pLo));
+        sqSumHi = rHi; sqSumLo = rLo;
+    }
+
+    // ###########
+    // # DOUBLE-DOUBLE HELPERS (results in rHi / rLo)
+    // ###########
+    private void twoSum(double a, double b) {
+        final double s = a + b;
+        final double bb = s - a;
+        rLo = (a - (s - bb)) + (b - bb);
+        rHi = s;
+    }
+
+    /** requires |a| >= |b| (or a == 0) */
+    private void fastTwoSum(double a, double b) {
+        final double s = a + b;
+        rLo = b - (s - a);
+        rHi = s;
+    }
+
+    private void twoProduct(double a, double b) {
+        final double p = a * b;
+        double t = SPLITTER * a;
+        final double aHi = t - (t - a), aLo = a - aHi;
+        t = SPLITTER * b;
+        final double bHi = t - (t - b), bLo = b - bHi;
+        rLo = ((aHi * bHi - p) + aHi * bLo + aLo * bHi) + aLo * bLo;
+        rHi = p;
+    }
+
+    private void ddDiv(double hi, double lo, double divisor) {
+        final double q1 = hi / divisor;
+        twoProduct(q1, divisor);
+        final double q2 = ((hi - rHi) - rLo + lo) / divisor;
+        fastTwoSum(q1, q2);
+    }
+
+}
@@ -0,0 +1,91 @@
+package de.fhws.indoor.libsmartphonesensors.math;
+
+import java.util.Arrays;
+
+/**
+ * Sliding window over the last n values, that keeps them sorted incrementally.
+ * <p>
+ *     Next to the values in insertion order (a ring), a sorted copy is maintained. Inserting finds the
+ *     position of the evicted and of the new value with a binary search, and only shifts the values in
+ *     between, so percentiles can be read in O(1) instead of sorting the whole window per query.
+ * </p>
+ */
+public final class SortedSlidingWindow {
+
+    private final double[] ring;
+    private final double[] sorted;
+    private int headPtr = 0;
+    private int size = 0;
+
+    public SortedSlidingWindow(int capacity) {
+        if(capacity <= 0) { throw new IllegalArgumentException("capacity must be positive"); }
+        this.ring = new double[capacity];
+        this.sorted = new double[capacity];
+    }
+
+    public int size() { return size; }
+    public int capacity() { return ring.length; }
+    public boolean isFull() { return size == ring.length; }
+
+    /**
+     * Insert a new value, evicting the oldest one if the window is full.
+     */
+    public void insert(double value) {
+        if(isFull()) {
+            final double oldest = ring[headPtr];
+            final int oldIdx = Arrays.binarySearch(sorted, 0, size, oldest);
+            int newIdx = insertionIdx(value);
+            // shift the values between the evicted and the new position by one, and replace
+            if(newIdx > oldIdx) {
+                newIdx -= 1;
+                System.arraycopy(sorted, oldIdx + 1, sorted, oldIdx, newIdx - oldIdx);
+            } else {
+                System.arraycopy(sorted, newIdx, sorted, newIdx + 1, oldIdx - newIdx);
+            }
+            sorted[newIdx] = value;
+        } else {
+            final int newIdx = insertionIdx(value);
+            System.arraycopy(sorted, newIdx, sorted, newIdx + 1, size - newIdx);
+            sorted[newIdx] = value;
+            size += 1;
+        }
+        ring[headPtr] = value;
+        headPtr = (headPtr + 1) % ring.length;
+    }
+
+    /** Get the value with the given rank (0 = smallest, size() - 1 = largest) */
+    public double getSorted(int rank) {
+        if(rank < 0 || rank >= size) { throw new IndexOutOfBoundsException("rank " + rank + " of " + size); }
+        return sorted[rank];
+    }
+
+    /**
+     * Percentile of the values in the window, linearly interpolated between the closest ranks.
+     * @param percent Percentile in [0, 100]
+     */
+    public double percentile(double percent) {
+        if(size == 0) { throw new IllegalStateException("window is empty"); }
+        final double pos = (size - 1) * Math.max(0, Math.min(100, percent)) / 100.0;
+        final int lowerIdx = (int) pos;
+        if(lowerIdx + 1 >= size) { return sorted[lowerIdx]; }
+        final double a = pos - lowerIdx;
+        return sorted[lowerIdx] * (1.0 - a) + sorted[lowerIdx + 1] * a;
+    }
+
+    public void clear() {
+        headPtr = 0;
+        size = 0;
+    }
+
+    /** Position behind all values <= value (keeps equal values in insertion order) */
+    private int insertionIdx(double value) {
+        int lo = 0;
+        int hi = size;
+        while(lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            if(Double.compare(sorted[mid], value) <= 0) { lo = mid + 1; } else { hi = mid; }
+        }
+        return lo;
+    }
+
+}
@@ -0,0 +1,207 @@
+package de.fhws.indoor.libsmartphonesensors.math;
+
+/**
+ * Aligns multiple sensor streams with different rates and jitter onto one common clock.
+ * <p>
+ *     Every stream is resampled by its own LinearResampler, all with the same rate and syncTimestamp,
+ *     so their samples fall onto the same grid (syncTimestamp + n * sampleInterval). The resampled
+ *     samples are queued per stream, and as soon as every stream has a sample for a grid timestamp,
+ *     they are emitted together as one frame.
+ *
+ *     Grid timestamps that can no longer be completed (a stream already delivered later samples)
+ *     are dropped. If a stream stalls, frames are held back for at most maxLatencyNs (measured
+ *     on the sensor clock, against the newest sample of any stream) and at most bufferFrames
+ *     per stream, before the oldest incomplete frame is dropped as well.
+ *
+ *     Pushed samples are copied. The frame passed to the FrameCallback is reused, and only
+ *     valid during the callback. After construction, no allocations happen.
+ * </p>
+ */
+public final class StreamSynchronizer {
+
+    public interface FrameCallback {
+        /**
+         * @param timestampNs Grid timestamp of the frame
+         * @param frame Resampled sample per stream: frame[stream][dimension]
+         */
+        void onFrame(long timestampNs, float[][] frame);
+    }
+
+    private final long sampleIntervalNs;
+    private final long syncTimestampNs;
+    private final long maxLatencyFrames;
+    private final FrameCallback frameCallback;
+    private final Stream[] streams;
+    private final float[][] frame;
+    // newest grid index any stream has produced
+    private long newestIdx = Long.MIN_VALUE;
+    // newest grid index that was emitted or dropped, so late samples of dropped frames are not counted twice
+    private long doneIdx = Long.MIN_VALUE;
+    private long emittedFrames = 0;
+    private long droppedFrames = 0;
+
+    /** Queue of one stream's resampled samples, by grid index (consecutive) */
+    private final class Stream implements LinearResampler.SampleCallback {
+        final LinearResampler resampler;
+        final int dimensions;
+        final float[] scratch;
+        final float[] samples;
+        final int capacity;
+        long headIdx = 0;
+        int headPtr = 0;
+        int size = 0;
+        // grid index of the next sample this stream will produce (Long.MIN_VALUE = unknown yet)
+        long nextIdx = Long.MIN_VALUE;
+
+        Stream(int dimensions, float targetHz, int capacity) {
+            this.resampler = new LinearResampler(dimensions, targetHz, syncTimestampNs);
+            this.dimensions = dimensions;
+            this.scratch = new float[dimensions];
+            this.samples = new float[capacity * dimensions];
+            this.capacity = capacity;
+        }
+
+        @Override
+        public void onSample(long timestampNs, float[] sample) {
+            final long idx = gridIdx(timestampNs);
+            // the resampler produces consecutive grid timestamps, restart this stream's queue if it did not.
+            // The other streams keep their samples, drain() drops the frames that can not be completed anymore
+            if(size > 0 && idx != headIdx + size) {
+                clear();
+            }
+            // after drain(), this stream's head is the oldest queued grid index (older ones can not be completed)
+            while(size == capacity) {
+                dropOldest();
+            }
+            if(size == 0) { headIdx = idx; }
+            System.arraycopy(sample, 0, samples, ((headPtr + size) % capacity) * dimensions, dimensions);
+            size += 1;
+            nextIdx = idx + 1;
+            newestIdx = Math.max(newestIdx, idx);
+            drain();
+        }
+
+        /** earliest grid index this stream may still deliver */
+        long earliestIdx() {
+            return (size > 0) ? headIdx : nextIdx;
+        }
+
+        void pop() {
+            headPtr = (headPtr + 1) % capacity;
+            headIdx += 1;
+            size -= 1;
+        }
+
+        void clear() {
+            headPtr = 0;
+            size = 0;
+            nextIdx = Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * @param dimensions Amount of dimensions per stream (one entry per stream)
+     * @param targetHz Frequency of the emitted frames
+     * @param syncTimestampNs Synchronization timestamp. All frames will have
+     *                        a timestamp fulfilling syncTimestamp + n*sampleInterval
+     * @param maxLatencyNs Maximum time an incomplete frame is held back, waiting for a stalled stream
+     * @param bufferFrames Maximum amount of samples queued per stream
+     * @param frameCallback Receives the aligned frames
+     */
+    public StreamSynchronizer(int[] dimensions, float targetHz, long syncTimestampNs,
+                              long maxLatencyNs, int bufferFrames, FrameCallback frameCallback) {
+        if(dimensions.length == 0) { throw new IllegalArgumentException("at least one stream required"); }
+        if(bufferFrames <= 0) { throw new IllegalArgumentException("bufferFrames must be positive"); }
+        this.sampleIntervalNs = (long) ((double) 1000000000 / (double) targetHz);
+        this.syncTimestampNs = syncTimestampNs % sampleIntervalNs;
+        this.maxLatencyFrames = Math.max(0, maxLatencyNs) / sampleIntervalNs;
+        this.frameCallback = frameCallback;
+        this.streams = new Stream[dimensions.length];
+        this.frame = new float[dimensions.length][];
+        for(int i = 0; i < dimensions.length; ++i) {
+            streams[i] = new Stream(dimensions[i], targetHz, bufferFrames);
+            frame[i] = new float[dimensions[i]];
+        }
+    }
+
+    public long getSampleIntervalNs() { return sampleIntervalNs; }
+    public int getStreamCount() { return streams.length; }
+    /** Amount of frames emitted so far */
+    public long getEmittedFrames() { return emittedFrames; }
+    /** Amount of grid timestamps dropped so far, because not all streams delivered them in time */
+    public long getDroppedFrames() { return droppedFrames; }
+
+    /**
+     * Push a new sample of the given stream. Completed frames are emitted before this returns.
+     * @param stream Index of the stream (order of the dimensions passed to the ctor)
+     */
+    public void pushSample(int stream, long timestamp, float[] sample) {
+        final Stream s = streams[stream];
+        s.resampler.pushSample(timestamp, sample, s.scratch, s);
+    }
+
+    /** Drop all queued samples (the resamplers keep their state) */
+    public void clear() {
+        for(Stream s : streams) { s.clear(); }
+        newestIdx = Long.MIN_VALUE;
+        doneIdx = Long.MIN_VALUE;
+    }
+
+    /** Index of the grid timestamp closest to the given (interpolated) timestamp */
+    private long gridIdx(long timestampNs) {
+        return Math.floorDiv(timestampNs - syncTimestampNs + sampleIntervalNs / 2, sampleIntervalNs);
+    }
+
+    /** Emit all complete frames, and drop the ones that can not be completed anymore */
+    private void drain() {
+        while(true) {
+            long oldestIdx = Long.MAX_VALUE;
+            long earliestIdx = Long.MIN_VALUE;
+            boolean complete = true;
+            for(Stream s : streams) {
+                if(s.size > 0) {
+                    oldestIdx = Math.min(oldestIdx, s.headIdx);
+                } else {
+                    complete = false;
+                }
+                earliestIdx = Math.max(earliestIdx, s.earliestIdx());
+            }
+            if(oldestIdx == Long.MAX_VALUE) { return; }
+            if(complete && earliestIdx == oldestIdx) {
+                emit(oldestIdx);
+            } else if(earliestIdx > oldestIdx || newestIdx - oldestIdx > maxLatencyFrames) {
+                dropOldest();
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void emit(long idx) {
+        for(int i = 0; i < streams.length; ++i) {
+            final Stream s = streams[i];
+            System.arraycopy(s.samples, s.headPtr * s.dimensions, frame[i], 0, s.dimensions);
+            s.pop();
+        }
+        doneIdx = Math.max(doneIdx, idx);
+        emittedFrames += 1;
+        frameCallback.onFrame(syncTimestampNs + idx * sampleIntervalNs, frame);
+    }
+
+    /** Drop the oldest queued grid timestamp from all streams that have it */
+    private void dropOldest() {
+        long oldestIdx = Long.MAX_VALUE;
+        for(Stream s : streams) {
+            if(s.size > 0) { oldestIdx = Math.min(oldestIdx, s.headIdx); }
+        }
+        if(oldestIdx == Long.MAX_VALUE) { return; }
+        for(Stream s : streams) {
+            if(s.size > 0 && s.headIdx == oldestIdx) { s.pop(); }
+        }
+        if(oldestIdx > doneIdx) {
+            doneIdx = oldestIdx;
+            droppedFrames += 1;
+        }
+    }
+
+}
@@ -17,6 +17,9 @@ public class Vec3 {
         this.y = y;
         this.z = z;
     }
+    public void set(Vec3 o) {
+        this.set(o.x, o.y, o.z);
+    }
 
     public Vec3 add(Vec3 o) {
         this.x += o.x;
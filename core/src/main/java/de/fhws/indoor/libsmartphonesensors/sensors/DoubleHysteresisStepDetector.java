@@ -0,0 +1,198 @@
+package de.fhws.indoor.libsmartphonesensors.sensors;
+
+import de.fhws.indoor.libsmartphonesensors.math.SlidingWindowStatistics;
+import de.fhws.indoor.libsmartphonesensors.math.SortedSlidingWindow;
+import de.fhws.indoor.libsmartphonesensors.math.Vec3;
+
+/**
+ * Step detection algorithm, detecting steps as a lower and an upper region of the vertical
+ * acceleration (double hysteresis), with thresholds that adapt to the current step-intensity.
+ * <p>
+ *     Expects accelerometer and gravity samples resampled to a fixed rate (see LinearResampler),
+ *     yielding the start- and end timestamp of every detected step.
+ * </p>
+ * @author Markus Ebner
+ */
+public final class DoubleHysteresisStepDetector {
+
+    public interface StepListener {
+        void onStep(long stepStartTs, long stepEndTs);
+    }
+
+    private static final long SENSOR_SECOND = 1000000000;
+    ///
+    /// \brief THRESHOLD_LEARN_RATE Learning rate that is used to adapt the current thresholds (upper/lower).
+    /// \details The higher this is, the faster the algorithm can adapt to changes in step-intensity.
+    ///
+    private static final double THRESHOLD_LEARN_RATE = 0.1;
+    ///
+    /// \brief MIN_LOWER_THRESHOLD Lower bound for the automatically adjusted lower threshold.
+    /// \details lowerThreshold may only be LOWER than this value.
+    ///
+    private static final double MIN_LOWER_THRESHOLD = -1;
+    ///
+    /// \brief MIN_UPPER_THRESHOLD Lower bound for the automatically adjusted lower threshold.
+    /// \details upperThreshold may onle be HIGHER than this value.
+    ///
+    private static final double MIN_UPPER_THRESHOLD = 1.25;
+    ///
+    /// \brief VARIANCE_THRESHOLD Threshold for the variance, to detect whether there currently is movement or not.
+    /// \details If the variance is not high enough, step detection will be paused and no adjustments will be done.
+    ///
+    private static final double VARIANCE_THRESHOLD = 0.5;
+    ///
+    /// \brief STEP_MAX_LENGTH Maximum length a step region can take.
+    ///
+    private static final long STEP_MAX_LENGTH_NS = (3 * SENSOR_SECOND) / 2; //  1.5 * SENSOR_SECOND;
+    ///
+    /// \brief THRESHOLD_PERCENTILES Percentiles of the long-term buffer the lower / upper threshold adapt to.
+    ///
+    private static final int[] THRESHOLD_PERCENTILES = new int[]{25, 75};
+    ///
+    /// \brief DEFAULT_LONG_TERM_WINDOW Default amount of samples in the long-term buffer, the thresholds adapt to.
+    ///
+    public static final int DEFAULT_LONG_TERM_WINDOW = 100;
+    ///
+    /// \brief NO_REGION Marker for region timestamps, while the region is not running.
+    ///
+    private static final long NO_REGION = Long.MIN_VALUE;
+
+    // ###########
+    // # BUFFERS
+    // ###########
+    static class MovementBuffer {
+        private final SlidingWindowStatistics statistics;
+        // the same values, kept sorted for the percentiles (null if not required)
+        private final SortedSlidingWindow sortedWindow;
+
+        public MovementBuffer(int length) {
+            this(length, true);
+        }
+        public MovementBuffer(int length, boolean withPercentiles) {
+            this.statistics = new SlidingWindowStatistics(length);
+            this.sortedWindow = withPercentiles ? new SortedSlidingWindow(length) : null;
+            // the buffer starts out filled with zeros
+            for(int i = 0; i < length; ++i) { insert(0); }
+        }
+        public void insert(double value) {
+            statistics.insert(value);
+            if(sortedWindow != null) { sortedWindow.insert(value); }
+        }
+        public double variance() {
+            return statistics.variance();
+        }
+        /** Calculate the given percentiles of the buffer's elements into result (linearly interpolated) */
+        public void percentiles(int[] percents, double[] result) {
+            if(sortedWindow == null) { throw new IllegalStateException("MovementBuffer created without percentiles"); }
+            for(int i = 0; i < percents.length; ++i) {
+                result[i] = sortedWindow.percentile(percents[i]);
+            }
+        }
+    }
+
+    // ###########
+    // # DETECTION
+    // ###########
+    private final long sampleIntervalNs;
+    private final StepListener stepListener;
+
+    double lowerThreshold = MIN_LOWER_THRESHOLD;
+    double upperThreshold = MIN_UPPER_THRESHOLD;
+    double prevAccelV = lowerThreshold;
+    double gradient = 0.0;
+    MovementBuffer stBuffer = new MovementBuffer(30, false);
+    final MovementBuffer ltBuffer;
+    // current detection
+    long lowerRegionStart = NO_REGION;
+    long upperRegionStart = NO_REGION;
+    long upperRegionEnd = NO_REGION;
+    // scratch space, so steady-state updates do not allocate
+    private final Vec3 rawAccel = new Vec3();
+    private final Vec3 gravityDir = new Vec3();
+    private final double[] newThresholds = new double[THRESHOLD_PERCENTILES.length];
+
+    /**
+     * @param sampleIntervalNs Interval of the (resampled) input samples
+     * @param stepListener Listener to inform about detected steps
+     */
+    public DoubleHysteresisStepDetector(long sampleIntervalNs, StepListener stepListener) {
+        this(sampleIntervalNs, DEFAULT_LONG_TERM_WINDOW, stepListener);
+    }
+
+    /**
+     * @param sampleIntervalNs Interval of the (resampled) input samples
+     * @param longTermWindow Amount of samples the thresholds are adapted to (percentiles of)
+     * @param stepListener Listener to inform about detected steps
+     */
+    public DoubleHysteresisStepDetector(long sampleIntervalNs, int longTermWindow, StepListener stepListener) {
+        this.sampleIntervalNs = sampleIntervalNs;
+        this.stepListener = stepListener;
+        this.ltBuffer = new MovementBuffer(longTermWindow);
+    }
+
+    public void update(long timestamp, Vec3 accel, Vec3 gravity) {
+        rawAccel.set(accel);
+        rawAccel.sub(gravity);
+        gravityDir.set(gravity);
+        gravityDir.normalize();
+        double accelV = rawAccel.dot(gravityDir);
+
+        stBuffer.insert(accelV);
+        ltBuffer.insert(accelV);
+        gradient = accelV - prevAccelV;
+        double currentVariance = stBuffer.variance();
+
+        // only enter on raising edge
+        if(currentVariance > VARIANCE_THRESHOLD && Math.min(accelV, prevAccelV) < lowerThreshold && gradient > 0) {
+            if(lowerRegionStart == NO_REGION) { lowerRegionStart = timestamp; }
+        }
+        if(lowerRegionStart != NO_REGION) {
+            if(upperRegionStart != NO_REGION && accelV > lowerThreshold) {
+                // narrow down region to last sample that fit below lowerThreshold, before an upper region is found
+                lowerRegionStart += 1;
+            }
+            if(accelV > upperThreshold) {
+                // start an upper region, if not already running
+                if(upperRegionStart == NO_REGION) { upperRegionStart = timestamp; }
+            } else {
+                // this is the end of our upper region
+                if(upperRegionStart != NO_REGION) { upperRegionEnd = timestamp; }
+            }
+            if(accelV < lowerThreshold && upperRegionStart != NO_REGION) {
+                // We are below lowerThreshold again, and have an upper region -> found a complete step region
+                long centerTimestamp = (timestamp + lowerRegionStart) / 2;
+
+                // detected step, take start and end timestamp, and inform listener
+                stepListener.onStep(lowerRegionStart, timestamp);
+                lowerRegionStart = NO_REGION;
+                upperRegionStart = NO_REGION;
+                upperRegionEnd = NO_REGION;
+            }
+        }
+        if(lowerRegionStart != NO_REGION && (timestamp - lowerRegionStart) > STEP_MAX_LENGTH_NS) {
+            // if our step region already is too long, move lower region start forward until it reaches the upper
+            // if it reaches upper, abort region
+            lowerRegionStart += sampleIntervalNs;
+            if(upperRegionStart != NO_REGION && lowerRegionStart >= upperRegionStart) {
+                // took too long, abort region (way longer than a normal step)
+                lowerRegionStart = NO_REGION;
+                upperRegionStart = NO_REGION;
+                upperRegionEnd = NO_REGION;
+            }
+        }
+
+        // as long as we have enough short-term variance, try to dynamically adapt
+        // thresholds using the long-term buffer
+        if(currentVariance > VARIANCE_THRESHOLD) {
+            ltBuffer.percentiles(THRESHOLD_PERCENTILES, newThresholds);
+            // adapt using learn-rate
+            lowerThreshold = lowerThreshold + THRESHOLD_LEARN_RATE * (newThresholds[0] - lowerThreshold);
+            upperThreshold = upperThreshold + THRESHOLD_LEARN_RATE * (newThresholds[1] - upperThreshold);
+            // apply fixed bounds
+            lowerThreshold = Math.min(lowerThreshold, MIN_LOWER_THRESHOLD);
+            upperThreshold = Math.max(upperThreshold, MIN_UPPER_THRESHOLD);
+        }
+
+        prevAccelV = accelV;
+    }
+}
@@ -0,0 +1,90 @@
+package de.fhws.indoor.libsmartphonesensors.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free multi-producer / single-consumer ring buffer.
+ * <p>
+ *     Producers claim a slot with a single CAS on the shared tail index; each slot carries a
+ *     sequence number that tells the consumer when the slot was published (see D. Vyukov's
+ *     bounded MPMC queue). No producer ever blocks on a monitor, and the consumer never blocks
+ *     a producer.
+ *
+ *     Only a single thread may call poll().
+ * </p>
+ */
+public final class MpscRingBuffer<T> {
+
+    private final int mask;
+    private final AtomicReferenceArray<T> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong(0);
+    private final AtomicLong head = new AtomicLong(0);
+    // statistics
+    private final AtomicLong casFailures = new AtomicLong(0);
+
+    /**
+     * @param capacity Capacity of the ring, rounded up to the next power of two.
+     */
+    public MpscRingBuffer(int capacity) {
+        int powerOfTwoCapacity = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.mask = powerOfTwoCapacity - 1;
+        this.elements = new AtomicReferenceArray<>(powerOfTwoCapacity);
+        this.sequences = new AtomicLongArray(powerOfTwoCapacity);
+        for(int i = 0; i < powerOfTwoCapacity; ++i) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Try to append the given element (callable from any thread).
+     * @return false if the ring is currently full
+     */
+    public boolean offer(T element) {
+        while(true) {
+            final long pos = tail.get();
+            final int idx = (int) (pos & mask);
+            final long dif = sequences.get(idx) - pos;
+            if(dif == 0) {
+                if(tail.compareAndSet(pos, pos + 1)) {
+                    elements.lazySet(idx, element);
+                    sequences.set(idx, pos + 1); // publish
+                    return true;
+                }
+                casFailures.incrementAndGet();
+            } else if(dif < 0) {
+                return false; // full
+            }
+            // else: another producer claimed this slot in the meantime, retry
+        }
+    }
+
+    /**
+     * Take the oldest element (single consumer only).
+     * @return oldest element, or null if the ring is currently empty
+     */
+    public T poll() {
+        final long pos = head.get();
+        final int idx = (int) (pos & mask);
+        if(sequences.get(idx) != pos + 1) { return null; } // empty, or not yet published
+        final T element = elements.get(idx);
+        elements.lazySet(idx, null);
+        sequences.set(idx, pos + mask + 1); // release slot for the next round
+        head.lazySet(pos + 1);
+        return element;
+    }
+
+    /** Approximate amount of queued elements */
+    public int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, capacity()));
+    }
+
+    public int capacity() { return mask + 1; }
+
+    /** Amount of failed tail CAS attempts (contention between producers) since creation. */
+    public long getCasFailureCount() { return casFailures.get(); }
+
+}
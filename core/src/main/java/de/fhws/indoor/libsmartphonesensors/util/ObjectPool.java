@@ -0,0 +1,119 @@
+package de.fhws.indoor.libsmartphonesensors.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free pool of reusable objects, with explicit acquire / release.
+ * <p>
+ *     Objects are handed out by acquire() and have to be given back with release() once their
+ *     user is done with them. The pool fills up lazily: if it is empty, acquire() creates a new
+ *     object (miss), and release() drops objects once the pool holds capacity idle objects.
+ *     In steady state, every acquire() is thus served from the pool (hit) and no allocations happen.
+ *
+ *     The idle objects are kept in a ring with one sequence number per slot (see D. Vyukov's
+ *     bounded MPMC queue, like MpscRingBuffer, but with a CAS on the head as well). acquire()
+ *     and release() may be called from any thread, without ever blocking on a monitor.
+ * </p>
+ */
+public final class ObjectPool<T> {
+
+    public interface Factory<T> {
+        T create();
+    }
+
+    private final Factory<T> factory;
+    private final int mask;
+    private final AtomicReferenceArray<T> idle;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong(0);
+    private final AtomicLong head = new AtomicLong(0);
+
+    // statistics
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+    private final AtomicLong dropped = new AtomicLong(0);
+
+    /**
+     * @param capacity Maximum amount of idle objects the pool holds on to (rounded up to the next power of two).
+     * @param factory Used to create new objects, if the pool is empty.
+     */
+    public ObjectPool(int capacity, Factory<T> factory) {
+        int powerOfTwoCapacity = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.factory = factory;
+        this.mask = powerOfTwoCapacity - 1;
+        this.idle = new AtomicReferenceArray<>(powerOfTwoCapacity);
+        this.sequences = new AtomicLongArray(powerOfTwoCapacity);
+        for(int i = 0; i < powerOfTwoCapacity; ++i) {
+            sequences.set(i, i);
+        }
+    }
+
+    /** Take an object from the pool, or create a new one if the pool is empty. */
+    public T acquire() {
+        while(true) {
+            final long pos = head.get();
+            final int idx = (int) (pos & mask);
+            final long dif = sequences.get(idx) - (pos + 1);
+            if(dif == 0) {
+                if(head.compareAndSet(pos, pos + 1)) {
+                    final T obj = idle.get(idx);
+                    idle.lazySet(idx, null);
+                    sequences.set(idx, pos + mask + 1); // release slot for the next round
+                    hits.incrementAndGet();
+                    return obj;
+                }
+            } else if(dif < 0) {
+                break; // empty
+            }
+            // else: another thread took this slot in the meantime, retry
+        }
+        misses.incrementAndGet();
+        return factory.create();
+    }
+
+    /**
+     * Give an object back to the pool.
+     * The caller must not use the object anymore, after releasing it.
+     */
+    public void release(T obj) {
+        while(true) {
+            final long pos = tail.get();
+            final int idx = (int) (pos & mask);
+            final long dif = sequences.get(idx) - pos;
+            if(dif == 0) {
+                if(tail.compareAndSet(pos, pos + 1)) {
+                    idle.lazySet(idx, obj);
+                    sequences.set(idx, pos + 1); // publish
+                    return;
+                }
+            } else if(dif < 0) {
+                dropped.incrementAndGet(); // full
+                return;
+            }
+            // else: another thread claimed this slot in the meantime, retry
+        }
+    }
+
+    /** Reset the statistic counters (the pooled objects are kept). */
+    public void resetStatistics() {
+        hits.set(0);
+        misses.set(0);
+        dropped.set(0);
+    }
+
+    /** Amount of acquire() calls served by a pooled object */
+    public long getHitCount() { return hits.get(); }
+    /** Amount of acquire() calls that had to create a new object */
+    public long getMissCount() { return misses.get(); }
+    /** Amount of released objects that were dropped, because the pool was full */
+    public long getDroppedCount() { return dropped.get(); }
+    /** Approximate amount of objects currently idling in the pool */
+    public int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, capacity()));
+    }
+    public int capacity() { return mask + 1; }
+
+}
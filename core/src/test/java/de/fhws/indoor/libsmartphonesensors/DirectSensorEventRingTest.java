@@ -0,0 +1,160 @@
+package de.fhws.indoor.libsmartphonesensors;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+public class DirectSensorEventRingTest {
+
+    /** Stand-in for the native consumer: checks the sequence of events it receives */
+    private static class SequenceCheckingConsumer implements SensorDataInterface {
+        long nextSeq = 0;
+        @Override public long getStartTimestamp() { return 0; }
+        @Override public void onData(long timestamp, SensorType id, String csv) {
+            assertEquals(SensorType.WIFI, id);
+            assertEquals("wifi;" + timestamp, csv);
+            check(timestamp);
+        }
+        @Override public void onData(long timestamp, SensorType id, float[] values, int count) {
+            assertEquals(SensorType.ACCELEROMETER, id);
+            assertEquals(3, count);
+            assertEquals((float) timestamp, values[0], 0);
+            assertEquals(-1.5f, values[2], 0);
+            check(timestamp);
+        }
+        @Override public void onData(long timestamp, SensorType id, long[] values, int count) {
+            assertEquals(SensorType.DECAWAVE_UWB, id);
+            assertEquals((int) (timestamp % 7), count);
+            for(int i = 0; i < count; ++i) { assertEquals(timestamp * i, values[i]); }
+            check(timestamp);
+        }
+        @Override public OutputStream requestAuxiliaryChannel(String id) { throw new UnsupportedOperationException(); }
+        private void check(long seq) {
+            assertEquals(nextSeq, seq);
+            nextSeq += 1;
+        }
+    }
+
+    private static boolean append(DirectSensorEventRing ring, long seq, float[] floats, long[] longs) {
+        switch ((int) (seq % 3)) {
+            case 0:
+                floats[0] = seq;
+                return ring.appendFloats(seq, SensorType.ACCELEROMETER, floats, 0, 3);
+            case 1:
+                for(int i = 0; i < longs.length; ++i) { longs[i] = seq * i; }
+                return ring.appendLongs(seq, SensorType.DECAWAVE_UWB, longs, 0, (int) (seq % 7));
+            default:
+                return ring.appendCsv(seq, SensorType.WIFI, "wifi;" + seq);
+        }
+    }
+
+    @Test
+    public void concurrentConsumerReceivesAllEventsInOrder() throws Exception {
+        final int eventCnt = 200000;
+        final DirectSensorEventRing ring = new DirectSensorEventRing(4096); // small, to wrap around often
+        final SequenceCheckingConsumer consumer = new SequenceCheckingConsumer();
+        final List<Throwable> errors = new ArrayList<>();
+        Thread consumerThread = new Thread(() -> {
+            DirectSensorEventRing.Reader reader = new DirectSensorEventRing.Reader(ring);
+            try {
+                while(consumer.nextSeq < eventCnt) {
+                    if(reader.poll(consumer) == 0) { Thread.yield(); }
+                }
+            } catch (Throwable t) {
+                synchronized (errors) { errors.add(t); }
+            }
+        });
+        consumerThread.start();
+
+        float[] floats = new float[]{ 0, 9.81f, -1.5f };
+        long[] longs = new long[6];
+        long retries = 0;
+        for(long seq = 0; seq < eventCnt; ++seq) {
+            while(!append(ring, seq, floats, longs)) { // ring full: wait for the consumer
+                ring.publish();
+                retries += 1;
+                Thread.yield();
+                if(!consumerThread.isAlive()) { break; }
+            }
+            if(seq % 16 == 15) { ring.publish(); } // publish in batches
+        }
+        ring.publish();
+        consumerThread.join(10000);
+        if(!errors.isEmpty()) { throw new AssertionError(errors.get(0)); }
+        assertEquals(eventCnt, consumer.nextSeq);
+        // every failed append is counted as a drop
+        assertEquals(retries, ring.getDroppedCount());
+        assertEquals(ring.getPublishedTail(), ring.publish());
+    }
+
+    @Test
+    public void eventsAreDroppedWhenRingIsFull() {
+        DirectSensorEventRing ring = new DirectSensorEventRing(1024);
+        float[] floats = new float[]{ 0, 9.81f, -1.5f };
+        int written = 0;
+        for(int i = 0; i < 100; ++i) {
+            floats[0] = written;
+            if(ring.appendFloats(written, SensorType.ACCELEROMETER, floats, 0, 3)) { written += 1; }
+        }
+        ring.publish();
+        // 24 bytes header + 12 bytes payload, padded to 40 bytes
+        assertEquals(1024 / 40, written);
+        assertEquals(100 - written, ring.getDroppedCount());
+
+        SequenceCheckingConsumer consumer = new SequenceCheckingConsumer();
+        DirectSensorEventRing.Reader reader = new DirectSensorEventRing.Reader(ring);
+        assertEquals(written, reader.poll(consumer));
+        assertEquals(0, reader.poll(consumer));
+        // consumed space is available again
+        floats[0] = written;
+        assertTrue(ring.appendFloats(written, SensorType.ACCELEROMETER, floats, 0, 3));
+        ring.publish();
+        assertEquals(1, reader.poll(consumer));
+    }
+
+    @Test
+    public void releaseIsBoundedByPublishedTail() {
+        DirectSensorEventRing ring = new DirectSensorEventRing(1024);
+        ring.appendFloats(0, SensorType.ACCELEROMETER, new float[]{ 0, 9.81f, -1.5f }, 0, 3);
+        try {
+            ring.release(40); // not yet published
+            fail();
+        } catch (IllegalArgumentException expected) {}
+        ring.release(ring.publish());
+        try {
+            ring.release(0); // head can not go backwards
+            fail();
+        } catch (IllegalArgumentException expected) {}
+    }
+
+    @Test
+    public void layoutMatchesDocumentation() {
+        DirectSensorEventRing ring = new DirectSensorEventRing(1000);
+        assertEquals(1024, ring.capacity());
+        ring.appendLongs(123456789L, SensorType.DECAWAVE_UWB, new long[]{ -5, 6 }, 0, 2);
+        ByteBuffer buffer = ring.buffer();
+        assertTrue(buffer.isDirect());
+        assertEquals(DirectSensorEventRing.MAGIC, buffer.getInt(0));
+        assertEquals(DirectSensorEventRing.VERSION, buffer.getInt(4));
+        assertEquals(1024, buffer.getInt(8));
+        assertEquals(0, ring.getPublishedTail()); // not yet published
+        assertEquals(40, ring.publish());
+        assertEquals(40, ring.getPublishedTail());
+
+        final int record = DirectSensorEventRing.DATA_OFFSET;
+        assertEquals(64, record);
+        assertEquals(40, buffer.getInt(record));
+        assertEquals(SensorType.DECAWAVE_UWB.id(), buffer.getInt(record + 4));
+        assertEquals(123456789L, buffer.getLong(record + 8));
+        assertEquals(DirectSensorEventRing.KIND_LONGS, buffer.getInt(record + 16));
+        assertEquals(2, buffer.getInt(record + 20));
+        assertEquals(-5, buffer.getLong(record + 24));
+        assertEquals(6, buffer.getLong(record + 32));
+    }
+
+}
@@ -0,0 +1,146 @@
+package de.fhws.indoor.libsmartphonesensors;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+public class SensorDataDispatcherTest {
+
+    /** Consumer that records everything it receives (in delivery order) */
+    private static class RecordingConsumer implements SensorDataInterface {
+        final List<String> events = new ArrayList<>();
+        final long delayMs;
+        RecordingConsumer(long delayMs) { this.delayMs = delayMs; }
+
+        @Override public long getStartTimestamp() { return 0; }
+        @Override public void onData(long timestamp, SensorType id, String csv) {
+            events.add(timestamp + ";" + id.id() + ";" + csv);
+            if(delayMs > 0) {
+                try { Thread.sleep(delayMs); } catch (InterruptedException e) { throw new RuntimeException(e); }
+            }
+        }
+        @Override public OutputStream requestAuxiliaryChannel(String id) { throw new UnsupportedOperationException(); }
+    }
+
+    @Test
+    public void eventsAreDeliveredToMatchingSubscribers() throws Exception {
+        SensorDataDispatcher dispatcher = new SensorDataDispatcher(null);
+        RecordingConsumer allConsumer = new RecordingConsumer(0);
+        RecordingConsumer accConsumer = new RecordingConsumer(0);
+        SensorDataDispatcher.Subscription all = dispatcher.subscribe("all", allConsumer);
+        SensorDataDispatcher.Subscription acc = dispatcher.subscribe("acc", accConsumer, EnumSet.of(SensorType.ACCELEROMETER), 16);
+
+        float[] values = new float[]{ 1.0f, 2.0f, 3.0f };
+        for(int i = 0; i < 10; ++i) {
+            values[0] = i;
+            dispatcher.onData(i, SensorType.ACCELEROMETER, values, 3);
+            dispatcher.onData(i, SensorType.WIFI, "0123456789ab;-50;2412");
+            dispatcher.onData(i, SensorType.DECAWAVE_UWB, new long[]{ i, -1 }, 2);
+        }
+        dispatcher.unsubscribeAll();
+
+        assertEquals(30, allConsumer.events.size());
+        assertEquals(30, all.getDeliveredCount());
+        assertEquals(10, accConsumer.events.size());
+        assertEquals(0, acc.getDroppedCount());
+        assertEquals(0, acc.getQueuedCount());
+        // payloads are copied at dispatch time, so reusing the values array is fine
+        assertEquals("5;" + SensorType.ACCELEROMETER.id() + ";5.0;2.0;3.0", accConsumer.events.get(5));
+        assertEquals("5;" + SensorType.WIFI.id() + ";0123456789ab;-50;2412", allConsumer.events.get(16));
+        assertEquals("5;" + SensorType.DECAWAVE_UWB.id() + ";5;-1", allConsumer.events.get(17));
+    }
+
+    @Test
+    public void slowSubscriberDoesNotDelayOthers() throws Exception {
+        SensorDataDispatcher dispatcher = new SensorDataDispatcher(null);
+        RecordingConsumer slowConsumer = new RecordingConsumer(50);
+        RecordingConsumer fastConsumer = new RecordingConsumer(0);
+        SensorDataDispatcher.Subscription slow = dispatcher.subscribe("slow", slowConsumer, EnumSet.allOf(SensorType.class), 8);
+        SensorDataDispatcher.Subscription fast = dispatcher.subscribe("fast", fastConsumer, EnumSet.allOf(SensorType.class), 1024);
+
+        final int eventCnt = 1000;
+        float[] values = new float[]{ 1.0f };
+        long startTs = System.nanoTime();
+        for(int i = 0; i < eventCnt; ++i) {
+            dispatcher.onData(i, SensorType.LIGHT, values, 1);
+        }
+        long dispatchMs = (System.nanoTime() - startTs) / 1000000;
+        // producers never wait for the slow consumer (which would take 50s for all events)
+        assertTrue("dispatching took " + dispatchMs + "ms", dispatchMs < 1000);
+
+        while(fast.getDeliveredCount() < eventCnt) { Thread.sleep(1); }
+        assertEquals(0, fast.getDroppedCount());
+        assertTrue(slow.getDroppedCount() > 0);
+
+        dispatcher.unsubscribe(fast);
+        dispatcher.unsubscribe(slow);
+        assertEquals(eventCnt, fastConsumer.events.size());
+        assertEquals(eventCnt, slow.getDeliveredCount() + slow.getDroppedCount());
+        assertEquals(slowConsumer.events.size(), slow.getDeliveredCount());
+        // the last queued events waited for their predecessors
+        assertTrue(slow.getMaxLagNs() >= 5 * 50 * 1000000L);
+    }
+
+    @Test
+    public void batchesAreDeliveredWhenFullOrAfterDelay() throws Exception {
+        SensorDataDispatcher dispatcher = new SensorDataDispatcher(null);
+        final RecordingConsumer consumer = new RecordingConsumer(0);
+        final List<Integer> batchSizes = new ArrayList<>();
+        final List<Long> batchDeliveryNs = new ArrayList<>();
+        SensorDataDispatcher.Subscription batched = dispatcher.subscribeBatched("batched", new SensorDataBatch.Listener() {
+            @Override public void onBatch(SensorDataBatch batch) {
+                synchronized (batchSizes) {
+                    batchSizes.add(batch.size());
+                    batchDeliveryNs.add(System.nanoTime());
+                }
+                batch.deliverTo(consumer);
+            }
+        }, EnumSet.allOf(SensorType.class), 1024, 10, 200);
+
+        long startNs = System.nanoTime();
+        for(int i = 0; i < 25; ++i) {
+            if(i % 3 == 0) {
+                dispatcher.onData(i, SensorType.WIFI, "wifi" + i);
+            } else {
+                dispatcher.onData(i, SensorType.GYROSCOPE, new float[]{ i, -i, 0.5f }, 3);
+            }
+        }
+        // two full batches are delivered right away, the remaining 5 events only after the delay
+        while(batched.getDeliveredCount() < 20) { Thread.sleep(1); }
+        Thread.sleep(50);
+        assertEquals(20, batched.getDeliveredCount());
+        while(batched.getDeliveredCount() < 25) { Thread.sleep(1); }
+        dispatcher.unsubscribe(batched);
+
+        assertEquals(3, batched.getDeliveredBatchCount());
+        synchronized (batchSizes) {
+            assertEquals(java.util.Arrays.asList(10, 10, 5), batchSizes);
+            assertTrue(batchDeliveryNs.get(2) - startNs >= 200L * 1000 * 1000);
+        }
+        assertTrue(batched.getMaxLagNs() >= 200L * 1000 * 1000);
+        assertEquals(25, consumer.events.size());
+        assertEquals("0;" + SensorType.WIFI.id() + ";wifi0", consumer.events.get(0));
+        assertEquals("7;" + SensorType.GYROSCOPE.id() + ";7.0;-7.0;0.5", consumer.events.get(7));
+        assertEquals("23;" + SensorType.GYROSCOPE.id() + ";23.0;-23.0;0.5", consumer.events.get(23));
+    }
+
+    @Test
+    public void pendingBatchIsDeliveredOnUnsubscribe() throws Exception {
+        SensorDataDispatcher dispatcher = new SensorDataDispatcher(null);
+        final List<Integer> batchSizes = new ArrayList<>();
+        SensorDataDispatcher.Subscription batched = dispatcher.subscribeBatched("batched", new SensorDataBatch.Listener() {
+            @Override public void onBatch(SensorDataBatch batch) { batchSizes.add(batch.size()); }
+        }, EnumSet.allOf(SensorType.class), 1024, 100, 60000);
+        for(int i = 0; i < 42; ++i) {
+            dispatcher.onData(i, SensorType.PEDESTRIAN_ACTIVITY, new long[]{ i }, 1);
+        }
+        dispatcher.unsubscribe(batched);
+        assertEquals(java.util.Collections.singletonList(42), batchSizes);
+    }
+
+}
@@ -0,0 +1,40 @@
+package de.fhws.indoor.libsmartphonesensors;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SensorDataInterfaceTest {
+
+    /** Provider that only implements the csv channel */
+    private static class CsvOnlyDataInterface implements SensorDataInterface {
+        final List<String> events = new ArrayList<>();
+        @Override public long getStartTimestamp() { return 0; }
+        @Override public void onData(long timestamp, SensorType id, String csv) { events.add(timestamp + ";" + id.id() + ";" + csv); }
+        @Override public OutputStream requestAuxiliaryChannel(String id) { throw new UnsupportedOperationException(); }
+    }
+
+    @Test
+    public void typedEventsAreRenderedAsCsvByDefault() {
+        CsvOnlyDataInterface dataInterface = new CsvOnlyDataInterface();
+        float[] values = new float[]{ 1.5f, -0.1f, 9.80665f, 1e-10f, 42 };
+        dataInterface.onData(10, SensorType.ACCELEROMETER, values, 3);
+        dataInterface.onData(11, SensorType.ROTATION_MATRIX, values, 5);
+        dataInterface.onData(12, SensorType.PRESSURE, values, 1);
+        dataInterface.onData(13, SensorType.DECAWAVE_UWB, new long[]{ 100, -200, Long.MAX_VALUE, 99 }, 4);
+        dataInterface.onData(14, SensorType.DECAWAVE_UWB, new long[]{ 7 }, 0);
+
+        assertEquals(5, dataInterface.events.size());
+        assertEquals("10;" + SensorType.ACCELEROMETER.id() + ";" + Float.toString(values[0]) + ";" + Float.toString(values[1]) + ";" + Float.toString(values[2]),
+                dataInterface.events.get(0));
+        assertEquals("11;" + SensorType.ROTATION_MATRIX.id() + ";1.5;-0.1;9.80665;1.0E-10;42.0", dataInterface.events.get(1));
+        assertEquals("12;" + SensorType.PRESSURE.id() + ";1.5", dataInterface.events.get(2));
+        assertEquals("13;" + SensorType.DECAWAVE_UWB.id() + ";100;-200;" + Long.MAX_VALUE + ";99", dataInterface.events.get(3));
+        assertEquals("14;" + SensorType.DECAWAVE_UWB.id() + ";", dataInterface.events.get(4));
+    }
+
+}
@@ -0,0 +1,75 @@
+package de.fhws.indoor.libsmartphonesensors.io;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+public class PreallocatedFileOutputStreamTest {
+
+    private static final int BUFFER_SIZE = 4096;
+    private static final long CHUNK_SIZE = 64 * 1024;
+
+    @Test
+    public void writesExactContentAndTruncatesOnClose() throws Exception {
+        File file = File.createTempFile("preallocated", ".csv");
+        Random random = new Random(1);
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        PreallocatedFileOutputStream stream = new PreallocatedFileOutputStream(file, BUFFER_SIZE, CHUNK_SIZE);
+        for(int i = 0; i < 2000; ++i) {
+            int kind = random.nextInt(10);
+            if(kind == 0) {
+                int b = random.nextInt(256);
+                stream.write(b);
+                expected.write(b);
+            } else {
+                byte[] data = new byte[(kind == 1) ? random.nextInt(3 * BUFFER_SIZE) : random.nextInt(100)];
+                random.nextBytes(data);
+                int offset = (data.length == 0) ? 0 : random.nextInt(data.length);
+                stream.write(data, offset, data.length - offset);
+                expected.write(data, offset, data.length - offset);
+            }
+            if(i == 1000) {
+                // while writing, the file is grown in whole chunks ahead of the data
+                stream.flush();
+                assertEquals(0, file.length() % CHUNK_SIZE);
+                assertTrue(file.length() > stream.length());
+            }
+        }
+        assertEquals(expected.size(), stream.length());
+        stream.close();
+        stream.flush(); // no-op after close
+        assertEquals(expected.size(), file.length());
+        assertTrue(Arrays.equals(expected.toByteArray(), Files.readAllBytes(file.toPath())));
+        file.delete();
+    }
+
+    @Test
+    public void overwritesLargerExistingFile() throws Exception {
+        File file = File.createTempFile("preallocated", ".csv");
+        Files.write(file.toPath(), new byte[(int) (3 * CHUNK_SIZE)]);
+        PreallocatedFileOutputStream stream = new PreallocatedFileOutputStream(file, BUFFER_SIZE, CHUNK_SIZE);
+        stream.write("0;1;2\n".getBytes());
+        stream.close();
+        assertEquals("0;1;2\n", new String(Files.readAllBytes(file.toPath())));
+        file.delete();
+    }
+
+    @Test
+    public void sessionClosesWithRemarkAtRealLength() throws Exception {
+        File file = File.createTempFile("preallocated", ".csv");
+        RecordingSession session = RecordingSession.create(0, file, RecordingFormat.CSV, RecordingWriteMode.PREALLOCATED);
+        session.writeEntry(1, "1;1;1.0;2.0;3.0\n".getBytes());
+        session.closeWithRemark("remark");
+        String content = new String(Files.readAllBytes(file.toPath()));
+        assertTrue(content.startsWith("1;1;1.0;2.0;3.0\n"));
+        assertTrue(content.endsWith("# remark\n"));
+        file.delete();
+    }
+
+}
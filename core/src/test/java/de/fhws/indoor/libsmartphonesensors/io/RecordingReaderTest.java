@@ -0,0 +1,154 @@
+package de.fhws.indoor.libsmartphonesensors.io;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import de.fhws.indoor.libsmartphonesensors.SensorType;
+
+public class RecordingReaderTest {
+
+    private static final int BLOCK_SIZE = 4096;
+    private static final SensorType[] SENSORS = {SensorType.ACCELEROMETER, SensorType.GYROSCOPE, SensorType.WIFI, SensorType.STEP_DETECTOR};
+
+    /** Writes a recording with slightly unordered timestamps, returns its entry lines */
+    private static List<String> writeRecording(File file, long seed) throws Exception {
+        Random random = new Random(seed);
+        List<String> entries = new ArrayList<>();
+        StringBuilder content = new StringBuilder();
+        entries.add("0;-2;2020-01-01T00:00:00.000Z;person;comment");
+        entries.add("0;-3;" + new java.util.UUID(seed, seed));
+        for(int i = 0; i < 20000; ++i) {
+            long ts = i * 1_000_000L + random.nextInt(50_000_000);
+            SensorType sensor = SENSORS[random.nextInt(i < 10000 ? 2 : SENSORS.length)];
+            String payload;
+            if(sensor == SensorType.WIFI) {
+                payload = "0123456789ab;-" + random.nextInt(100) + ";2412";
+            } else if(sensor == SensorType.STEP_DETECTOR) {
+                payload = Long.toString(random.nextLong());
+            } else {
+                payload = random.nextFloat() + ";" + (random.nextFloat() - 0.5f) * 1e-6f + ";" + Float.intBitsToFloat(random.nextInt());
+            }
+            entries.add(ts + ";" + sensor.id() + ";" + payload);
+        }
+        for(String entry : entries) { content.append(entry).append('\n'); }
+        RecordingSession.appendRemark(content, "a remark\nwith 2;3;lines");
+        Files.write(file.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+        return entries;
+    }
+
+    private static String readEntry(RecordingReader reader) {
+        StringBuilder line = new StringBuilder().append(reader.getTimestamp()).append(';').append(reader.getSensorId());
+        for(int i = 0; i < reader.getFieldCount(); ++i) { line.append(';').append(reader.getField(i)); }
+        return line.toString();
+    }
+
+    @Test
+    public void readsAllEntriesAndPersistsIndex() throws Exception {
+        File file = File.createTempFile("recordingReader", ".csv");
+        File indexFile = RecordingIndex.indexFileFor(file);
+        List<String> entries = writeRecording(file, 1);
+
+        try(RecordingReader reader = RecordingReader.open(file, BLOCK_SIZE)) {
+            assertFalse(reader.isIndexLoaded());
+            assertTrue(indexFile.isFile());
+            assertTrue(reader.getIndexBlockCount() > 100);
+            for(String entry : entries) {
+                assertTrue(reader.next());
+                assertEquals(entry, readEntry(reader));
+            }
+            assertFalse(reader.next());
+        }
+        try(RecordingReader reader = RecordingReader.open(file, BLOCK_SIZE)) {
+            assertTrue(reader.isIndexLoaded());
+        }
+        // outdated index is rebuilt
+        writeRecording(file, 2);
+        assertTrue(file.setLastModified(file.lastModified() + 2000));
+        try(RecordingReader reader = RecordingReader.open(file, BLOCK_SIZE)) {
+            assertFalse(reader.isIndexLoaded());
+        }
+        file.delete();
+        indexFile.delete();
+    }
+
+    @Test
+    public void parsesNumbersLikeTheJdk() throws Exception {
+        File file = File.createTempFile("recordingReader", ".csv");
+        Random random = new Random(3);
+        StringBuilder content = new StringBuilder();
+        for(int i = 0; i < 100000; ++i) {
+            float f = (i % 2 == 0) ? Float.intBitsToFloat(random.nextInt()) : (random.nextFloat() - 0.5f) * (float) Math.pow(10, random.nextInt(16) - 8);
+            double d = (i % 2 == 0) ? Double.longBitsToDouble(random.nextLong()) : random.nextDouble() * 1000;
+            content.append(i).append(";0;").append(f).append(';').append(d).append(';').append(random.nextLong()).append('\n');
+        }
+        content.append("1;0;1.00000005;1e-45;-0.0;NaN;-Infinity;9223372036854775807;-9223372036854775808\n");
+        Files.write(file.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+
+        try(RecordingReader reader = RecordingReader.open(file, BLOCK_SIZE)) {
+            while(reader.next()) {
+                for(int i = 0; i < reader.getFieldCount(); ++i) {
+                    String field = reader.getField(i);
+                    if(reader.getFieldCount() == 3 && i == 2) {
+                        assertEquals(field, Long.parseLong(field), reader.getLong(i));
+                        continue;
+                    }
+                    if(reader.getFieldCount() == 7 && i >= 5) {
+                        assertEquals(field, Long.parseLong(field), reader.getLong(i));
+                        continue;
+                    }
+                    assertEquals(field, Float.floatToRawIntBits(Float.parseFloat(field)), Float.floatToRawIntBits(reader.getFloat(i)));
+                    assertEquals(field, Double.doubleToRawLongBits(Double.parseDouble(field)), Double.doubleToRawLongBits(reader.getDouble(i)));
+                }
+            }
+        }
+        file.delete();
+        RecordingIndex.indexFileFor(file).delete();
+    }
+
+    @Test
+    public void selectEqualsFullScanFilter() throws Exception {
+        File file = File.createTempFile("recordingReader", ".csv");
+        List<String> entries = writeRecording(file, 4);
+        long[][] ranges = {{0, Long.MAX_VALUE}, {3_000_000_000L, 3_500_000_000L}, {12_000_000_000L, 12_010_000_000L}, {100_000_000_000L, Long.MAX_VALUE}};
+
+        try(RecordingReader reader = RecordingReader.open(file, BLOCK_SIZE)) {
+            for(long[] range : ranges) {
+                for(SensorType sensor : new SensorType[]{null, SensorType.ACCELEROMETER, SensorType.WIFI, SensorType.GPS}) {
+                    List<String> expected = new ArrayList<>();
+                    for(String entry : entries) {
+                        String[] fields = entry.split(";");
+                        long ts = Long.parseLong(fields[0]);
+                        if(ts < range[0] || ts > range[1]) { continue; }
+                        if(sensor != null && Integer.parseInt(fields[1]) != sensor.id()) { continue; }
+                        expected.add(entry);
+                    }
+                    reader.select(range[0], range[1], sensor);
+                    List<String> selected = new ArrayList<>();
+                    while(reader.next()) {
+                        assertEquals(reader.getSensorType(), SensorType.values()[indexOfId(reader.getSensorId())]);
+                        selected.add(readEntry(reader));
+                    }
+                    assertEquals(expected, selected);
+                }
+            }
+        }
+        file.delete();
+        RecordingIndex.indexFileFor(file).delete();
+    }
+
+    private static int indexOfId(int sensorId) {
+        for(SensorType sensorType : SensorType.values()) {
+            if(sensorType.id() == sensorId) { return sensorType.ordinal(); }
+        }
+        return -1;
+    }
+
+}
@@ -0,0 +1,146 @@
+package de.fhws.indoor.libsmartphonesensors.loggers;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import de.fhws.indoor.libsmartphonesensors.SensorType;
+
+public class ReorderBufferTest {
+
+    private static final long SECOND_NS = 1000L * 1000 * 1000;
+    // reorder window of TimedOrderedLogger
+    private static final long REORDER_WINDOW_NS = 7 * SECOND_NS;
+
+    /**
+     * Deterministic synthetic multi-sensor trace, resembling what TimedOrderedLogger receives
+     * during a recording: high-rate IMU streams with a bit of delivery jitter, slow environment
+     * sensors and bursty, heavily delayed wifi scan results.
+     */
+    static class TraceGenerator {
+        private static final SensorType[] SENSORS = {
+                SensorType.ACCELEROMETER, SensorType.GYROSCOPE, SensorType.MAGNETIC_FIELD, SensorType.GRAVITY,
+                SensorType.LINEAR_ACCELERATION, SensorType.GAME_ROTATION_VECTOR, SensorType.PRESSURE, SensorType.LIGHT};
+        private static final long[] INTERVALS_NS = {
+                5000000, 5000000, 10000000, 5000000, 5000000, 5000000, 40000000, 200000000};
+        private static final byte[] LINE = new byte[0];
+
+        private final Random rnd;
+        private final long durationNs;
+        private final long[] nextTs = new long[SENSORS.length];
+        private final ArrayList<LogEntry> pending = new ArrayList<>();
+        private long nextWifiScanTs = 0;
+
+        TraceGenerator(long seed, long durationNs) {
+            this.rnd = new Random(seed);
+            this.durationNs = durationNs;
+        }
+
+        /** @return next entry in delivery order, or null if the trace is finished */
+        LogEntry next() {
+            if(!pending.isEmpty()) { return pending.remove(pending.size() - 1); }
+            int sensorIdx = 0;
+            for(int i = 1; i < SENSORS.length; ++i) {
+                if(nextTs[i] < nextTs[sensorIdx]) { sensorIdx = i; }
+            }
+            long ts = nextTs[sensorIdx];
+            if(ts > durationNs) { return null; }
+            nextTs[sensorIdx] += INTERVALS_NS[sensorIdx] + rnd.nextInt(200000);
+            if(ts >= nextWifiScanTs) { // wifi scan results arrive in a burst, with timestamps up to 4 seconds old
+                nextWifiScanTs = ts + 3 * SECOND_NS;
+                int apCnt = 5 + rnd.nextInt(30);
+                for(int i = 0; i < apCnt; ++i) {
+                    long wifiTs = Math.max(0, ts - rnd.nextInt(4000) * 1000000L);
+                    pending.add(new LogEntry(wifiTs, SensorType.WIFI, LINE));
+                }
+                // step detections are only known after the step is complete
+                pending.add(new LogEntry(Math.max(0, ts - SECOND_NS), SensorType.STEP_DETECTOR, LINE));
+            }
+            // slight out-of-order delivery of equal-rate sensors, including identical timestamps
+            long jitteredTs = (rnd.nextInt(50) == 0) ? Math.max(0, ts - rnd.nextInt(3) * 1000000L) : ts;
+            return new LogEntry(jitteredTs, SENSORS[sensorIdx], LINE);
+        }
+    }
+
+    /** Order-sensitive hash of the committed entries */
+    static class OrderHash implements ReorderBuffer.CommitListener {
+        long hash = 17;
+        long count = 0;
+        long lastTs = Long.MIN_VALUE;
+        long orderViolations = 0;
+
+        @Override
+        public void onCommit(List<LogEntry> commitSlice) {
+            for(LogEntry entry : commitSlice) {
+                hash = hash * 31 + entry.timestamp;
+                hash = hash * 31 + entry.sensorType.ordinal();
+                if(entry.timestamp < lastTs) { orderViolations += 1; }
+                lastTs = entry.timestamp;
+                count += 1;
+            }
+        }
+    }
+
+    /**
+     * No entry of the trace is later than the reorder window, so the former sort-on-commit buffer
+     * committed them in the order of a stable sort over the whole trace.
+     */
+    @Test
+    public void orderMatchesStableSort() {
+        for(long seed = 0; seed < 5; ++seed) {
+            ArrayList<LogEntry> sorted = new ArrayList<>();
+            OrderHash actual = new OrderHash();
+            ReorderBuffer mergingBuffer = new ReorderBuffer(REORDER_WINDOW_NS, actual);
+
+            TraceGenerator trace = new TraceGenerator(seed, 120 * SECOND_NS);
+            LogEntry entry;
+            while((entry = trace.next()) != null) {
+                sorted.add(entry);
+                mergingBuffer.add(entry);
+            }
+            mergingBuffer.flush();
+            Collections.sort(sorted);
+            OrderHash expected = new OrderHash();
+            expected.onCommit(sorted);
+
+            assertEquals(0, mergingBuffer.size());
+            assertEquals(expected.count, actual.count);
+            assertEquals(expected.hash, actual.hash);
+            assertEquals(0, actual.orderViolations);
+        }
+    }
+
+    @Test
+    public void commitsIncrementallyBehindWatermark() {
+        OrderHash committed = new OrderHash();
+        ReorderBuffer buffer = new ReorderBuffer(REORDER_WINDOW_NS, committed);
+        buffer.add(new LogEntry(2 * SECOND_NS, SensorType.ACCELEROMETER, new byte[0]));
+        buffer.add(new LogEntry(1 * SECOND_NS, SensorType.WIFI, new byte[0]));
+        buffer.add(new LogEntry(1 * SECOND_NS, SensorType.ACCELEROMETER, new byte[0]));
+        assertEquals(0, committed.count);
+        assertEquals(SECOND_NS, buffer.timespan());
+
+        buffer.add(new LogEntry(8 * SECOND_NS, SensorType.ACCELEROMETER, new byte[0]));
+        assertEquals(0, committed.count); // commits are gathered in slices of COMMIT_GRANULARITY_NS
+        buffer.add(new LogEntry(8 * SECOND_NS + SECOND_NS / 10, SensorType.ACCELEROMETER, new byte[0]));
+        assertEquals(2, committed.count); // both entries at 1s, in insertion order
+        assertEquals(3, buffer.size());
+        assertEquals(6 * SECOND_NS + SECOND_NS / 10, buffer.timespan());
+
+        // entries arriving later than the reorder window are still committed (out of order)
+        buffer.add(new LogEntry(0, SensorType.WIFI, new byte[0]));
+        assertEquals(3, committed.count);
+        assertEquals(1, committed.orderViolations);
+
+        buffer.flush();
+        assertEquals(6, committed.count);
+        assertEquals(0, buffer.size());
+        assertEquals(0, buffer.timespan());
+    }
+
+}
@@ -0,0 +1,170 @@
+package de.fhws.indoor.libsmartphonesensors.math;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class LinearResamplerTest {
+    @Test
+    public void unsyncedResamplingIsCorrect() throws Exception {
+        long tsOffset = 991231235;
+        LinearResampler resampler = new LinearResampler(3, 2);
+        assertEquals(resampler.getSampleIntervalNs(), 500000000);
+
+        List<Long> splTimestamps = new ArrayList<>();
+        List<float[]> splValues = new ArrayList<>();
+
+        resampler.pushSample(tsOffset+1, new float[]{1, 1, 1}, (ts, spl) -> {
+            splTimestamps.add(ts);
+            splValues.add(spl);
+        });
+
+        resampler.pushSample(tsOffset+1000000001, new float[]{2, 2, 2}, (ts, spl) -> {
+            splTimestamps.add(ts);
+            splValues.add(spl);
+        });
+
+        assertArrayEquals(new Long[]{ new Long(tsOffset+1), new Long(tsOffset+1+resampler.getSampleIntervalNs()), new Long(tsOffset+1000000001) }, splTimestamps.toArray());
+        assertArrayEquals(new float[]{1, 1, 1}, splValues.get(0), (float) 0.00001);
+        assertArrayEquals(new float[]{1.5f, 1.5f, 1.5f}, splValues.get(1), (float) 0.00001);
+        assertArrayEquals(new float[]{2, 2, 2}, splValues.get(2), (float) 0.00001);
+    }
+
+    @Test
+    public void syncedResamplingIsCorrect() throws Exception {
+        long tsOffset = 99123123531L;
+        LinearResampler resampler = new LinearResampler(3, 2, 0);
+
+        List<Long> splTimestamps = new ArrayList<>();
+        List<float[]> splValues = new ArrayList<>();
+
+        resampler.pushSample(tsOffset+1, new float[]{1, 1, 1}, (ts, spl) -> {
+            splTimestamps.add(ts);
+            splValues.add(spl);
+        });
+
+        resampler.pushSample(tsOffset+1000000001, new float[]{2, 2, 2}, (ts, spl) -> {
+            splTimestamps.add(ts);
+            splValues.add(spl);
+        });
+
+        // 99123123532 < 1spl
+        // 99500000000 < out        a = (100123123532 - 99500000000) / (100123123532 - 99123123532)
+        // 100000000000 < out       a = (100123123532 - 100000000000) / (100123123532 - 99123123532)
+        // 100123123532 < 2spl
+        //
+
+        assertArrayEquals(new Long[]{ new Long(99500000000L), new Long(99500000000L + resampler.getSampleIntervalNs()) }, splTimestamps.toArray());
+        assertArrayEquals(new float[]{1.3768765f, 1.3768765f, 1.3768765f}, splValues.get(0), (float) 0.00001);
+        assertArrayEquals(new float[]{1.8768765f, 1.8768765f, 1.8768765f}, splValues.get(1), (float) 0.00001);
+    }
+
+    @Test
+    public void reusedInputAndOutputArraysAreSafe() throws Exception {
+        LinearResampler resampler = new LinearResampler(2, 2, 0);
+        float[] sample = new float[2];
+        float[] out = new float[2];
+        List<Float> splValues = new ArrayList<>();
+        // the input array is overwritten for every sample (like android does with SensorEvent.values)
+        for(int i = 0; i <= 4; ++i) {
+            sample[0] = i;
+            sample[1] = -i;
+            resampler.pushSample(i * 250000000L, sample, out, (ts, spl) -> {
+                assertSame(out, spl);
+                assertEquals(-spl[0], spl[1], 0.00001f);
+                splValues.add(spl[0]);
+            });
+        }
+        assertArrayEquals(new Float[]{ 0.0f, 2.0f, 4.0f }, splValues.toArray());
+    }
+
+    /** Jittered input stream of the given dimensions */
+    private static void generateStream(long[] timestamps, float[] samples, int dims, long seed) {
+        Random random = new Random(seed);
+        long ts = 1234567891011L;
+        for(int i = 0; i < timestamps.length; ++i) {
+            ts += 4_000_000 + random.nextInt(2_000_000);
+            if(i % 100 == 99) { ts -= 4_000_000; } // occasionally, two samples very close to each other
+            timestamps[i] = ts;
+            for(int d = 0; d < dims; ++d) { samples[i * dims + d] = (float) (random.nextGaussian() * 10); }
+        }
+    }
+
+    private static void assertBatchMatchesStreaming(int dims, float targetHz, boolean synced, long seed) {
+        final int count = 20000;
+        long[] timestamps = new long[count];
+        float[] samples = new float[count * dims];
+        generateStream(timestamps, samples, dims, seed);
+
+        // streaming reference
+        LinearResampler streaming = synced ? new LinearResampler(dims, targetHz, 0) : new LinearResampler(dims, targetHz);
+        List<Long> refTimestamps = new ArrayList<>();
+        List<float[]> refSamples = new ArrayList<>();
+        float[] sample = new float[dims];
+        for(int i = 0; i < count; ++i) {
+            System.arraycopy(samples, i * dims, sample, 0, dims);
+            streaming.pushSample(timestamps[i], sample, (ts, spl) -> {
+                refTimestamps.add(ts);
+                refSamples.add(spl.clone());
+            });
+        }
+
+        // batches of random sizes (including single samples)
+        LinearResampler batched = synced ? new LinearResampler(dims, targetHz, 0) : new LinearResampler(dims, targetHz);
+        Random random = new Random(seed);
+        int outIdx = 0;
+        for(int i = 0; i < count; ) {
+            final int batchSize = Math.min(count - i, 1 + random.nextInt(700));
+            long[] batchTimestamps = Arrays.copyOfRange(timestamps, i, i + batchSize);
+            float[] batchSamples = Arrays.copyOfRange(samples, i * dims, (i + batchSize) * dims);
+            final int expectedCnt = batched.getOutputCount(batchTimestamps[0], batchTimestamps[batchSize - 1]);
+            long[] outTimestamps = new long[expectedCnt];
+            float[] outSamples = new float[expectedCnt * dims];
+            final int outCnt = batched.pushSamples(batchTimestamps, batchSamples, batchSize, outTimestamps, outSamples);
+            assertEquals(expectedCnt, outCnt);
+            for(int o = 0; o < outCnt; ++o, ++outIdx) {
+                assertEquals(refTimestamps.get(outIdx).longValue(), outTimestamps[o]);
+                for(int d = 0; d < dims; ++d) {
+                    // bit-identical
+                    assertEquals(Float.floatToRawIntBits(refSamples.get(outIdx)[d]), Float.floatToRawIntBits(outSamples[o * dims + d]));
+                }
+            }
+            i += batchSize;
+        }
+        assertEquals(refTimestamps.size(), outIdx);
+    }
+
+    @Test
+    public void batchIsBitIdenticalToStreaming() {
+        assertBatchMatchesStreaming(3, 50, true, 1);
+        assertBatchMatchesStreaming(3, 50, false, 2);
+        assertBatchMatchesStreaming(1, 333, true, 3);
+        assertBatchMatchesStreaming(9, 100, true, 4);
+    }
+
+    @Test
+    public void batchAndStreamingCanBeMixed() {
+        LinearResampler resampler = new LinearResampler(1, 2, 0);
+        List<Float> splValues = new ArrayList<>();
+        resampler.pushSample(250000000L, new float[]{ 1 }, (ts, spl) -> splValues.add(spl[0]));
+        long[] outTimestamps = new long[2];
+        float[] outSamples = new float[2];
+        assertEquals(2, resampler.getOutputCount(750000000L, 1250000000L));
+        assertEquals(2, resampler.pushSamples(new long[]{ 750000000L, 1250000000L }, new float[]{ 3, 5 }, 2, outTimestamps, outSamples));
+        assertArrayEquals(new long[]{ 500000000L, 1000000000L }, outTimestamps);
+        assertArrayEquals(new float[]{ 2, 4 }, outSamples, 0);
+        resampler.pushSample(1750000000L, new float[]{ 7 }, (ts, spl) -> splValues.add(spl[0]));
+        assertArrayEquals(new Float[]{ 6.0f }, splValues.toArray());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void batchRejectsTooSmallOutput() {
+        LinearResampler resampler = new LinearResampler(3, 50, 0);
+        resampler.pushSamples(new long[]{ 0, 100000000L }, new float[6], 2, new long[5], new float[15]);
+    }
+}
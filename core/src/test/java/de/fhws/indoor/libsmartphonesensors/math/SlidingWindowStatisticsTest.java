@@ -0,0 +1,85 @@
+package de.fhws.indoor.libsmartphonesensors.math;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+public class SlidingWindowStatisticsTest {
+
+    /** Two-pass reference over the last (up to) capacity values, returns {mean, population variance} */
+    private static double[] reference(double[] values, int endIdx, int capacity) {
+        final int from = Math.max(0, endIdx + 1 - capacity);
+        final int n = endIdx + 1 - from;
+        double mean = 0;
+        for(int i = from; i <= endIdx; ++i) { mean += values[i]; }
+        mean /= n;
+        double m2 = 0;
+        for(int i = from; i <= endIdx; ++i) { m2 += (values[i] - mean) * (values[i] - mean); }
+        return new double[]{ mean, m2 / n };
+    }
+
+    /** Feeds a long randomized stream, and compares against the reference every checkInterval samples */
+    private static void checkStream(double offset, double scale, int capacity, int length, long seed) {
+        Random random = new Random(seed);
+        double[] values = new double[length];
+        SlidingWindowStatistics statistics = new SlidingWindowStatistics(capacity);
+        for(int i = 0; i < length; ++i) {
+            // random walk of the signal level, with noise and occasional outliers
+            final double noise = (random.nextInt(50) == 0) ? random.nextGaussian() * 20 : random.nextGaussian();
+            values[i] = offset + scale * (Math.sin(i / 500.0) + noise);
+            statistics.insert(values[i]);
+            if(i % 997 == 0 || i == length - 1) {
+                double[] expected = reference(values, i, capacity);
+                assertEquals(Math.min(i + 1, capacity), statistics.size());
+                assertEquals("mean @" + i, expected[0], statistics.mean(), Math.abs(offset) * 1e-14 + scale * 1e-9);
+                assertEquals("variance @" + i, expected[1], statistics.variance(), expected[1] * 1e-8 + 1e-300);
+            }
+        }
+    }
+
+    @Test
+    public void matchesReferenceOverLongStreams() {
+        checkStream(0, 1, 100, 1_000_000, 1);
+        checkStream(9.81, 0.5, 30, 1_000_000, 2);
+        checkStream(-3, 1e-3, 1000, 500_000, 3);
+    }
+
+    @Test
+    public void staysExactWithLargeOffset() {
+        // E[x^2] - E[x]^2 cancels catastrophically here: x^2 ~ 1e18, variance ~ 1e-2
+        checkStream(1e9, 0.1, 100, 1_000_000, 4);
+    }
+
+    @Test
+    public void windowSizes() {
+        for(int capacity : new int[]{ 1, 2, 3, 17 }) {
+            checkStream(5, 2, capacity, 20_000, capacity);
+        }
+    }
+
+    @Test
+    public void constantStreamHasZeroVariance() {
+        SlidingWindowStatistics statistics = new SlidingWindowStatistics(10);
+        for(int i = 0; i < 100000; ++i) {
+            statistics.insert((i < 50000) ? 0.1 * (i % 7) : 0.3);
+        }
+        assertEquals(0.3, statistics.mean(), 1e-15);
+        assertEquals(0, statistics.variance(), 0);
+        assertEquals(0, statistics.sampleVariance(), 0);
+        assertEquals(0.3, statistics.getOldest(), 0);
+    }
+
+    @Test
+    public void sampleVarianceUsesBesselCorrection() {
+        SlidingWindowStatistics statistics = new SlidingWindowStatistics(4);
+        for(double value : new double[]{ 2, 4, 4, 4, 5, 5, 7, 9 }) { statistics.insert(value); }
+        // window: 5, 5, 7, 9
+        assertEquals(5, statistics.getOldest(), 0);
+        assertEquals(6.5, statistics.mean(), 1e-12);
+        assertEquals(2.75, statistics.variance(), 1e-12);
+        assertEquals(11.0 / 3.0, statistics.sampleVariance(), 1e-12);
+    }
+
+}
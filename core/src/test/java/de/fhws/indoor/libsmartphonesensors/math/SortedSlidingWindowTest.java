@@ -0,0 +1,60 @@
+package de.fhws.indoor.libsmartphonesensors.math;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class SortedSlidingWindowTest {
+
+    @Test
+    public void staysSortedWhileSliding() {
+        final int capacity = 37;
+        SortedSlidingWindow window = new SortedSlidingWindow(capacity);
+        double[] inserted = new double[5000];
+        Random random = new Random(1);
+        for(int i = 0; i < inserted.length; ++i) {
+            // few distinct values, to also cover duplicates
+            inserted[i] = (i % 3 == 0) ? random.nextInt(5) : random.nextGaussian();
+            window.insert(inserted[i]);
+
+            final int from = Math.max(0, i + 1 - capacity);
+            double[] expected = Arrays.copyOfRange(inserted, from, i + 1);
+            Arrays.sort(expected);
+            assertEquals(expected.length, window.size());
+            for(int r = 0; r < expected.length; ++r) {
+                assertEquals(expected[r], window.getSorted(r), 0);
+            }
+        }
+        assertTrue(window.isFull());
+    }
+
+    @Test
+    public void percentilesAreInterpolated() {
+        SortedSlidingWindow window = new SortedSlidingWindow(5);
+        for(double value : new double[]{ 40, 10, 30, 20, 50 }) { window.insert(value); }
+        assertEquals(10, window.percentile(0), 0);
+        assertEquals(20, window.percentile(25), 0);
+        assertEquals(30, window.percentile(50), 0);
+        assertEquals(35, window.percentile(62.5), 1e-9);
+        assertEquals(50, window.percentile(100), 0);
+        // evicts 40
+        window.insert(0);
+        assertEquals(0, window.percentile(0), 0);
+        assertEquals(15, window.percentile(37.5), 1e-9);
+        assertEquals(50, window.percentile(100), 0);
+    }
+
+    @Test
+    public void singleValue() {
+        SortedSlidingWindow window = new SortedSlidingWindow(1);
+        window.insert(3);
+        window.insert(7);
+        assertEquals(1, window.size());
+        assertEquals(7, window.percentile(25), 0);
+        assertEquals(7, window.percentile(75), 0);
+    }
+
+}
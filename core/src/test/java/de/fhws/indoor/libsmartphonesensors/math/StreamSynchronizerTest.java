@@ -0,0 +1,131 @@
+package de.fhws.indoor.libsmartphonesensors.math;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+public class StreamSynchronizerTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    private static class FrameRecorder implements StreamSynchronizer.FrameCallback {
+        final ArrayList<Long> timestamps = new ArrayList<>();
+        final ArrayList<float[][]> frames = new ArrayList<>();
+
+        @Override
+        public void onFrame(long timestampNs, float[][] frame) {
+            timestamps.add(timestampNs);
+            float[][] copy = new float[frame.length][];
+            for(int i = 0; i < frame.length; ++i) { copy[i] = frame[i].clone(); }
+            frames.add(copy);
+        }
+    }
+
+    /** linear signal per stream and dimension, so the resampled values are known exactly */
+    private static float signal(int stream, int dim, long timestampNs) {
+        return (float) ((stream + 1) * 10 + dim + (timestampNs / (double) SECOND) * (stream + 2));
+    }
+
+    private static void push(StreamSynchronizer synchronizer, int stream, int dims, long timestampNs) {
+        float[] sample = new float[dims];
+        for(int d = 0; d < dims; ++d) { sample[d] = signal(stream, d, timestampNs); }
+        synchronizer.pushSample(stream, timestampNs, sample);
+    }
+
+    @Test
+    public void alignsStreamsWithDifferentRatesAndJitter() {
+        final int[] dimensions = { 3, 3, 1 };
+        final long[] intervalsNs = { 5_000_000, 9_000_000, 40_000_000 }; // 200Hz, ~111Hz, 25Hz
+        FrameRecorder recorder = new FrameRecorder();
+        StreamSynchronizer synchronizer = new StreamSynchronizer(dimensions, 50, 0, 200_000_000, 64, recorder);
+        final long startTs = 123_456_789_000L;
+        final long endTs = startTs + 20 * SECOND;
+
+        // merge the streams in timestamp order, each with its own jitter
+        Random random = new Random(1);
+        long[] nextTs = { startTs, startTs + 1_000_000, startTs + 3_000_000 };
+        while(true) {
+            int stream = 0;
+            for(int s = 1; s < nextTs.length; ++s) { if(nextTs[s] < nextTs[stream]) { stream = s; } }
+            if(nextTs[stream] > endTs) { break; }
+            push(synchronizer, stream, dimensions[stream], nextTs[stream]);
+            nextTs[stream] += intervalsNs[stream] + (long) (random.nextGaussian() * intervalsNs[stream] / 20);
+        }
+
+        assertTrue(recorder.timestamps.size() > 990);
+        for(int f = 0; f < recorder.timestamps.size(); ++f) {
+            final long ts = recorder.timestamps.get(f);
+            assertEquals("on the grid", 0, ts % synchronizer.getSampleIntervalNs());
+            if(f > 0) { assertEquals("consecutive", synchronizer.getSampleIntervalNs(), ts - recorder.timestamps.get(f - 1)); }
+            for(int s = 0; s < dimensions.length; ++s) {
+                for(int d = 0; d < dimensions[s]; ++d) {
+                    assertEquals(signal(s, d, ts), recorder.frames.get(f)[s][d], 1e-4);
+                }
+            }
+        }
+        // only the frames before the slowest stream started were dropped
+        assertEquals(recorder.timestamps.size(), synchronizer.getEmittedFrames());
+        assertTrue("dropped " + synchronizer.getDroppedFrames(), synchronizer.getDroppedFrames() <= 3);
+    }
+
+    @Test
+    public void completesFramesOfDelayedStreams() {
+        // stream 1 is delivered in batches, 300ms late (e.g. from a sensor's hardware FIFO)
+        FrameRecorder recorder = new FrameRecorder();
+        StreamSynchronizer synchronizer = new StreamSynchronizer(new int[]{ 1, 1 }, 100, 0, 500_000_000, 128, recorder);
+        final long intervalNs = 10_000_000;
+        for(int i = 0; i < 1000; ++i) {
+            push(synchronizer, 0, 1, i * intervalNs);
+            if(i >= 30 && i % 10 == 0) {
+                for(int j = i - 30; j < i - 20; ++j) { push(synchronizer, 1, 1, j * intervalNs); }
+            }
+        }
+        assertEquals(0, synchronizer.getDroppedFrames());
+        assertEquals(970, recorder.timestamps.size());
+        for(int f = 0; f < recorder.timestamps.size(); ++f) {
+            assertEquals(f * intervalNs, (long) recorder.timestamps.get(f));
+        }
+    }
+
+    @Test
+    public void boundsLatencyOfStalledStreams() {
+        FrameRecorder recorder = new FrameRecorder();
+        final long maxLatencyNs = 100_000_000;
+        StreamSynchronizer synchronizer = new StreamSynchronizer(new int[]{ 2, 1 }, 100, 0, maxLatencyNs, 1000, recorder);
+        final long intervalNs = 10_000_000;
+        for(int i = 0; i <= 300; ++i) {
+            push(synchronizer, 0, 2, i * intervalNs);
+            // stream 1 stalls between 1s and 2s
+            if(i <= 100 || i >= 200) {
+                push(synchronizer, 1, 1, i * intervalNs);
+                assertEquals("emitted without delay", i * intervalNs, (long) recorder.timestamps.get(recorder.timestamps.size() - 1));
+            } else {
+                // incomplete frames are held back for at most maxLatencyNs
+                assertTrue(i - synchronizer.getDroppedFrames() - 100 <= maxLatencyNs / intervalNs + 1);
+            }
+        }
+        // the gap is bridged by the resampler (interpolated), once stream 1 continues
+        assertEquals(301, synchronizer.getEmittedFrames() + synchronizer.getDroppedFrames());
+        assertTrue(synchronizer.getDroppedFrames() > 80);
+        assertEquals(signal(1, 0, 3 * SECOND), recorder.frames.get(recorder.frames.size() - 1)[1][0], 1e-4);
+    }
+
+    @Test
+    public void boundsBufferSize() {
+        FrameRecorder recorder = new FrameRecorder();
+        StreamSynchronizer synchronizer = new StreamSynchronizer(new int[]{ 1, 1 }, 100, 0, Long.MAX_VALUE, 16, recorder);
+        final long intervalNs = 10_000_000;
+        push(synchronizer, 1, 1, 0);
+        for(int i = 0; i < 100; ++i) { push(synchronizer, 0, 1, i * intervalNs); }
+        // stream 0 is 99 samples ahead, but only the newest 16 are kept
+        assertEquals(1, synchronizer.getEmittedFrames());
+        assertEquals(99 - 16, synchronizer.getDroppedFrames());
+        push(synchronizer, 1, 1, 99 * intervalNs);
+        assertEquals(17, synchronizer.getEmittedFrames());
+        assertEquals(84 * intervalNs, (long) recorder.timestamps.get(1));
+    }
+
+}
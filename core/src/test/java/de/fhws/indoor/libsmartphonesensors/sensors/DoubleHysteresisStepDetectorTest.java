@@ -0,0 +1,128 @@
+package de.fhws.indoor.libsmartphonesensors.sensors;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import de.fhws.indoor.libsmartphonesensors.math.StreamSynchronizer;
+import de.fhws.indoor.libsmartphonesensors.math.Vec3;
+
+public class DoubleHysteresisStepDetectorTest {
+
+    private static final long SAMPLE_INTERVAL_NS = 20_000_000; // 50Hz
+
+    /** Simulates walking with the given step frequency, returns the detected steps as {start, end} */
+    private static List<long[]> walk(double stepHz, long durationNs, long seed) {
+        final List<long[]> steps = new ArrayList<>();
+        DoubleHysteresisStepDetector detector = new DoubleHysteresisStepDetector(SAMPLE_INTERVAL_NS,
+                (stepStartTs, stepEndTs) -> steps.add(new long[]{stepStartTs, stepEndTs}));
+        Random random = new Random(seed);
+        for(long ts = 0; ts < durationNs; ts += SAMPLE_INTERVAL_NS) {
+            double t = ts / 1e9;
+            double vertical = 3.0 * Math.sin(2 * Math.PI * stepHz * t) + random.nextGaussian() * 0.3;
+            Vec3 gravity = new Vec3(0, 0, 9.81);
+            Vec3 accel = new Vec3(random.nextGaussian() * 0.2, random.nextGaussian() * 0.2, 9.81 + vertical);
+            detector.update(ts, accel, gravity);
+        }
+        return steps;
+    }
+
+    @Test
+    public void detectsStepsWhileWalking() {
+        List<long[]> steps = walk(1.8, 60_000_000_000L, 1);
+        // 60s at 1.8 steps/s, minus the time the detector needs to adapt its thresholds
+        assertTrue("detected " + steps.size(), steps.size() > 95 && steps.size() <= 108);
+        long prevEndTs = Long.MIN_VALUE;
+        for(long[] step : steps) {
+            assertTrue(step[0] < step[1]);
+            assertTrue(step[1] - step[0] < 1_500_000_000L);
+            assertTrue(step[0] >= prevEndTs);
+            prevEndTs = step[1];
+        }
+    }
+
+    @Test
+    public void detectsNoStepsWhileStanding() {
+        assertEquals(0, walk(0, 60_000_000_000L, 2).size());
+    }
+
+    /** Raw accelerometer + gravity samples, as delivered by the phone (200Hz, jittered timestamps) */
+    private static class RecordedWalk {
+        final long[] timestamps;
+        final float[][] accel;
+        final float[][] gravity;
+
+        RecordedWalk(double stepHz, long durationNs, long seed) {
+            final int sampleCnt = (int) (durationNs / 5_000_000);
+            timestamps = new long[sampleCnt];
+            accel = new float[sampleCnt][3];
+            gravity = new float[sampleCnt][3];
+            Random random = new Random(seed);
+            for(int i = 0; i < sampleCnt; ++i) {
+                timestamps[i] = i * 5_000_000L + random.nextInt(1_000_000);
+                double t = timestamps[i] / 1e9;
+                double vertical = 3.0 * Math.sin(2 * Math.PI * stepHz * t) + random.nextGaussian() * 0.3;
+                accel[i][0] = (float) (random.nextGaussian() * 0.2);
+                accel[i][1] = (float) (random.nextGaussian() * 0.2);
+                accel[i][2] = (float) (9.81 + vertical);
+                gravity[i][2] = 9.81f;
+            }
+        }
+    }
+
+    /** Mirrors the android StepDetector: resample acc and gravity to 50Hz and feed the detector */
+    private static class StepPipeline {
+        final Vec3 lastAccel = new Vec3();
+        final Vec3 lastGravity = new Vec3();
+        long stepCnt = 0;
+        final DoubleHysteresisStepDetector detector = new DoubleHysteresisStepDetector(SAMPLE_INTERVAL_NS, (stepStartTs, stepEndTs) -> stepCnt += 1);
+        final StreamSynchronizer synchronizer = new StreamSynchronizer(new int[]{ 3, 3 }, 50, 0, 500_000_000, 64, (ts, frame) -> {
+            lastAccel.set(frame[0][0], frame[0][1], frame[0][2]);
+            lastGravity.set(frame[1][0], frame[1][1], frame[1][2]);
+            detector.update(ts, lastAccel, lastGravity);
+        });
+        final float[] values = new float[3]; // reused, like android's SensorEvent.values
+
+        void replay(RecordedWalk walk, long tsOffset) {
+            for(int i = 0; i < walk.timestamps.length; ++i) {
+                System.arraycopy(walk.accel[i], 0, values, 0, 3);
+                synchronizer.pushSample(0, tsOffset + walk.timestamps[i], values);
+                System.arraycopy(walk.gravity[i], 0, values, 0, 3);
+                synchronizer.pushSample(1, tsOffset + walk.timestamps[i], values);
+            }
+        }
+    }
+
+    @Test
+    public void steadyStateStepDetectionDoesNotAllocate() {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+        final long threadId = Thread.currentThread().getId();
+        final long walkDurationNs = 60_000_000_000L;
+        RecordedWalk walk = new RecordedWalk(1.8, walkDurationNs, 3);
+        StepPipeline pipeline = new StepPipeline();
+
+        long bytes = 0;
+        long stepCnt = 0;
+        for(int run = 0; run < 3; ++run) { // the first runs warm up the JIT
+            long stepsBefore = pipeline.stepCnt;
+            long start = threadMXBean.getThreadAllocatedBytes(threadId);
+            pipeline.replay(walk, run * walkDurationNs);
+            bytes = threadMXBean.getThreadAllocatedBytes(threadId) - start;
+            stepCnt = pipeline.stepCnt - stepsBefore;
+        }
+        // 60s at 1.8 steps/s, the thresholds are already adapted from the warm-up runs
+        assertTrue("detected " + stepCnt, stepCnt > 100 && stepCnt <= 110);
+        // 12000 resampled samples, without allocation (the allowance covers measurement artifacts)
+        assertTrue("allocated " + bytes + " bytes", bytes < 1024);
+    }
+
+}
@@ -0,0 +1,66 @@
+package de.fhws.indoor.libsmartphonesensors.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ObjectPoolTest {
+
+    private static final class Item {
+        final AtomicBoolean inUse = new AtomicBoolean(false);
+    }
+
+    @Test
+    public void reusesReleasedObjects() {
+        ObjectPool<Item> pool = new ObjectPool<>(2, Item::new);
+        Item a = pool.acquire();
+        Item b = pool.acquire();
+        pool.release(a);
+        pool.release(b);
+        pool.release(new Item()); // pool is full
+        assertEquals(2, pool.size());
+        assertEquals(a, pool.acquire());
+        assertEquals(b, pool.acquire());
+        assertEquals(2, pool.getHitCount());
+        assertEquals(2, pool.getMissCount());
+        assertEquals(1, pool.getDroppedCount());
+    }
+
+    @Test
+    public void concurrentUseNeverHandsOutAnObjectTwice() throws Exception {
+        final ObjectPool<Item> pool = new ObjectPool<>(8, Item::new);
+        final int threadCnt = 4;
+        final int iterations = 200000;
+        final AtomicInteger doubleHandouts = new AtomicInteger(0);
+        List<Thread> threads = new ArrayList<>();
+        for(int t = 0; t < threadCnt; ++t) {
+            threads.add(new Thread(() -> {
+                Item[] held = new Item[3];
+                for(int i = 0; i < iterations; ++i) {
+                    for(int h = 0; h < held.length; ++h) {
+                        held[h] = pool.acquire();
+                        if(!held[h].inUse.compareAndSet(false, true)) { doubleHandouts.incrementAndGet(); }
+                    }
+                    for(Item item : held) {
+                        item.inUse.set(false);
+                        pool.release(item);
+                    }
+                }
+            }));
+        }
+        for(Thread thread : threads) { thread.start(); }
+        for(Thread thread : threads) { thread.join(); }
+
+        assertEquals(0, doubleHandouts.get());
+        assertEquals(3L * threadCnt * iterations, pool.getHitCount() + pool.getMissCount());
+        assertTrue(pool.size() <= pool.capacity());
+        assertEquals(pool.getMissCount() - pool.getDroppedCount(), pool.size());
+    }
+
+}
@@ -12,9 +12,11 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashMap;
 
 import de.fhws.indoor.libsmartphonesensors.helpers.BLEScanProvider;
+import de.fhws.indoor.libsmartphonesensors.helpers.SensorCallbackThreads;
 import de.fhws.indoor.libsmartphonesensors.helpers.WifiScanProvider;
 import de.fhws.indoor.libsmartphonesensors.io.VendorInformationSerializer;
 import de.fhws.indoor.libsmartphonesensors.sensors.BLE;
@@ -35,6 +37,7 @@ public class SensorManager {
     private WifiScanProvider wifiScanProvider = null;
     private BLEScanProvider bleScanProvider = null;
     private PowerManager.WakeLock wakeLock = null;
+    private SensorCallbackThreads callbackThreads = null;
 
     public static class Config {
         public boolean hasGPS = false;
@@ -53,6 +56,14 @@ public class SensorManager {
         // ftm
         public long ftmRangingIntervalMSec;
         public int ftmBurstSize;
+        // phone sensors: maximum time samples may be batched in the hardware FIFO (0 = no batching)
+        public long phoneSensorsMaxReportLatencyMSec = 0;
+        // phone sensors: target sampling rate per SensorType in Hz (sensors without entry run as fast as possible)
+        public EnumMap<SensorType, Float> sensorRatesHz = new EnumMap<>(SensorType.class);
+        // phone sensors: resample sensors with a target rate on-device, to exactly that rate
+        public boolean resampleToSensorRates = false;
+        // thread(s) the phone sensors, heading change and step detector callbacks are delivered on
+        public SensorCallbackThreads.Mode sensorCallbackThreads = SensorCallbackThreads.Mode.SHARED;
 
         @Override
         public String toString() {
@@ -70,6 +81,10 @@ public class SensorManager {
                     ", wifiScanIntervalMSec=" + wifiScanIntervalMSec +
                     ", ftmRangingIntervalMSec=" + ftmRangingIntervalMSec +
                     ", ftmBurstSize=" + ftmBurstSize +
+                    ", phoneSensorsMaxReportLatencyMSec=" + phoneSensorsMaxReportLatencyMSec +
+                    ", sensorRatesHz=" + sensorRatesHz +
+                    ", resampleToSensorRates=" + resampleToSensorRates +
+                    ", sensorCallbackThreads=" + sensorCallbackThreads +
                     '}';
         }
     }
@@ -99,21 +114,28 @@ public class SensorManager {
         }
 
         wifiScanProvider = new WifiScanProvider(activity, config.wifiScanIntervalMSec);
+        if(callbackThreads != null) { callbackThreads.quit(); }
+        callbackThreads = new SensorCallbackThreads(config.sensorCallbackThreads);
 
         // add sensors
         final GroundTruth grndTruth = new GroundTruth(sensorDataInterface, activity);
         sensors.add(grndTruth);
 
         if(config.hasPhone) {
-            PhoneSensors phoneSensors = new PhoneSensors(sensorDataInterface, activity);
+            PhoneSensors.Config phoneConfig = new PhoneSensors.Config();
+            phoneConfig.maxReportLatencyMSec = config.phoneSensorsMaxReportLatencyMSec;
+            phoneConfig.ratesHz.putAll(config.sensorRatesHz);
+            phoneConfig.resample = config.resampleToSensorRates;
+            phoneConfig.callbackHandler = callbackThreads.getHandler("PhoneSensors");
+            PhoneSensors phoneSensors = new PhoneSensors(sensorDataInterface, activity, phoneConfig);
             sensors.add(phoneSensors);
         }
         if(config.hasHeadingChange) {
-            final HeadingChange headingChange = new HeadingChange(sensorDataInterface, activity);
+            final HeadingChange headingChange = new HeadingChange(sensorDataInterface, activity, callbackThreads.getHandler("HeadingChange"));
             sensors.add(headingChange);
         }
         if(config.hasStepDetector) {
-            final StepDetector stepDetector = new StepDetector(sensorDataInterface, activity);
+            final StepDetector stepDetector = new StepDetector(sensorDataInterface, activity, callbackThreads.getHandler("StepDetector"));
             sensors.add(stepDetector);
         }
         if(config.hasGPS) {
@@ -170,6 +192,11 @@ public class SensorManager {
         }
     }
 
+    /** Threads the sensor callbacks are delivered on, with their queue delay statistics (null before configure()) */
+    public SensorCallbackThreads getCallbackThreads() {
+        return callbackThreads;
+    }
+
     public void dumpVendorInformation(Activity activity, File targetFile) throws IOException {
         android.hardware.SensorManager androidSensorManager = (android.hardware.SensorManager)activity.getSystemService(Context.SENSOR_SERVICE);
         FileOutputStream outputStream = new FileOutputStream(targetFile);
@@ -197,6 +224,7 @@ public class SensorManager {
     public void start(Activity activity) throws Exception {
         if(running == true) { throw new Exception("SensorManager already running"); }
         if(wakeLock != null) { wakeLock.acquire(); }
+        if(callbackThreads != null) { callbackThreads.start(); }
         for(ASensor sensor : sensors) {
             sensor.onResume(activity);
         }
@@ -209,6 +237,7 @@ public class SensorManager {
             sensor.onPause(activity);
         }
         running = false;
+        if(callbackThreads != null) { callbackThreads.stop(); }
         if(wakeLock != null) { wakeLock.release(); }
     }
 
@@ -6,6 +6,8 @@ import android.widget.Toast;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -14,8 +16,17 @@ import de.fhws.indoor.libsmartphonesensors.util.permissions.IPermissionRequester
 import de.fhws.indoor.libsmartphonesensors.util.permissions.LocationServiceHelper;
 
 public class SensorManagerJni {
+    // event ring mode: events are batched for at most this long before being written to the ring
+    private static final int EVENT_RING_QUEUE_CAPACITY = 8192;
+    private static final int EVENT_RING_MAX_BATCH_SIZE = 256;
+    private static final long EVENT_RING_MAX_BATCH_DELAY_MS = 5;
+
     private static Activity activity = null;
     private static SensorManager sensorManager = null;
+    private static SensorDataDispatcher eventRingDispatcher = null;
+    // read from native threads (getEventRingTail(), releaseEventRing(), getEventRingDroppedCount())
+    private static volatile DirectSensorEventRing eventRing = null;
+    private static volatile SensorDataDispatcher.Subscription eventRingSubscription = null;
     private static JniPermissionRequester permissionRequester = null;
 
     private static class JniPermissionRequester implements IPermissionRequester {
@@ -85,11 +96,84 @@ public class SensorManagerJni {
             SensorManagerJni.sensorManager.stop(activity);
         } catch (Exception e) { e.printStackTrace(); }
         SensorManagerJni.sensorManager = null;
+        // deliver everything still queued, the ring is kept for getEventRingDroppedCount()
+        stopEventRingDelivery();
     }
 
     public static void configure(SensorManager.Config config) {
         Log.i("SensorManagerJni", "configure(): " + config);
-        SensorManagerJni.sensorManager = new SensorManager(new NativeDataInterface());
+        closeEventRing();
+        configure(config, new NativeDataInterface());
+    }
+
+    /**
+     * Configure the SensorManager to write all events into a shared direct ByteBuffer ring
+     * (see DirectSensorEventRing for its layout), instead of calling onSensorEvent() with a String per event.
+     * <p>
+     *     Events are written in batches (at most EVENT_RING_MAX_BATCH_DELAY_MS late). If signalNative is set,
+     *     onSensorEventsAvailable(tail) is called once per written batch, and returns the head up to which
+     *     native code consumed the records. Otherwise, native code has to poll getEventRingTail(), and hand
+     *     consumed records back with releaseEventRing(head). Records before the tail are complete.
+     * </p>
+     * @param ringCapacity Size of the ring's data region in bytes
+     * @return The ring's memory, to be consumed by native code (GetDirectBufferAddress)
+     */
+    public static ByteBuffer configureEventRing(SensorManager.Config config, int ringCapacity, boolean signalNative) {
+        Log.i("SensorManagerJni", "configureEventRing(): " + config + " capacity: " + ringCapacity);
+        closeEventRing();
+        final DirectSensorEventRing ring = new DirectSensorEventRing(ringCapacity);
+        SensorManagerJni.eventRing = ring;
+        SensorManagerJni.eventRingDispatcher = new SensorDataDispatcher(new NativeDataInterface());
+        SensorManagerJni.eventRingSubscription = SensorManagerJni.eventRingDispatcher.subscribeBatched("jni", new SensorDataBatch.Listener() {
+            @Override public void onBatch(SensorDataBatch batch) {
+                ring.onBatch(batch);
+                if(signalNative) { ring.release(SensorManagerJni.onSensorEventsAvailable(ring.getPublishedTail())); }
+            }
+        }, EnumSet.allOf(SensorType.class), EVENT_RING_QUEUE_CAPACITY, EVENT_RING_MAX_BATCH_SIZE, EVENT_RING_MAX_BATCH_DELAY_MS);
+        configure(config, SensorManagerJni.eventRingDispatcher);
+        return ring.buffer();
+    }
+
+    /** Bytes written to the event ring in total. All records before it can be read. */
+    public static long getEventRingTail() {
+        final DirectSensorEventRing ring = SensorManagerJni.eventRing;
+        return (ring == null) ? 0 : ring.getPublishedTail();
+    }
+
+    /**
+     * Hand the event ring's space back to the producer, after native code consumed all records before head.
+     * @param head Bytes consumed in total
+     */
+    public static void releaseEventRing(long head) {
+        final DirectSensorEventRing ring = SensorManagerJni.eventRing;
+        if(ring != null) { ring.release(head); }
+    }
+
+    /** Amount of events dropped in event ring mode, because the native consumer could not keep up */
+    public static long getEventRingDroppedCount() {
+        final DirectSensorEventRing ring = SensorManagerJni.eventRing;
+        final SensorDataDispatcher.Subscription subscription = SensorManagerJni.eventRingSubscription;
+        if(ring == null || subscription == null) { return 0; }
+        return ring.getDroppedCount() + subscription.getDroppedCount();
+    }
+
+    /** Stop the event ring's delivery thread (after delivering everything still queued) */
+    private static void stopEventRingDelivery() {
+        if(SensorManagerJni.eventRingDispatcher != null) {
+            SensorManagerJni.eventRingDispatcher.unsubscribeAll();
+            SensorManagerJni.eventRingDispatcher = null;
+        }
+    }
+
+    /** Tear down the event ring of a previous configureEventRing() */
+    private static void closeEventRing() {
+        stopEventRingDelivery();
+        SensorManagerJni.eventRing = null;
+        SensorManagerJni.eventRingSubscription = null;
+    }
+
+    private static void configure(SensorManager.Config config, SensorDataInterface sensorDataInterface) {
+        SensorManagerJni.sensorManager = new SensorManager(sensorDataInterface);
         try {
             SensorManagerJni.sensorManager.configure(activity, config, permissionRequester);
             permissionRequester.launch(() -> {});
@@ -101,6 +185,12 @@ public class SensorManagerJni {
 
     protected static native void onSensorEvent(long timestamp, long evtId, String evtData);
 
+    /**
+     * @param tail Bytes written to the event ring in total, all records before it can be read
+     * @return Bytes consumed in total (head), the space of all records before it is handed back to the ring
+     */
+    protected static native long onSensorEventsAvailable(long tail);
+
     protected static native void startPermissionRequest(boolean requestLocation, String[] permissions, IPermissionRequester.SuccessListener callback);
 
 }
@@ -0,0 +1,176 @@
+package de.fhws.indoor.libsmartphonesensors.helpers;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Helper providing the threads android sensor callbacks are delivered on.
+ * <p>
+ *     Without a Handler, android delivers sensor events on the main looper, where they compete
+ *     with UI work. Depending on the Mode, this helper instead hands out Handlers of one shared
+ *     background HandlerThread, or of one HandlerThread per sensor.
+ *
+ *     While running, a probe is periodically posted to every looper (including the main looper
+ *     in Mode.MAIN_LOOPER), measuring how late it is executed. This queue delay is the time a
+ *     sensor event waits in the looper before its callback is run.
+ * </p>
+ */
+public class SensorCallbackThreads {
+    private static final String TAG = "SensorCallbackThreads";
+    private static final long PROBE_INTERVAL_MS = 1000;
+
+    public enum Mode {
+        /** deliver callbacks on the main looper */
+        MAIN_LOOPER,
+        /** one background thread, shared by all sensors */
+        SHARED,
+        /** one background thread per sensor */
+        PER_SENSOR,
+    }
+
+    /** Looper sensor callbacks are delivered on, with its queue delay statistics. */
+    public static final class CallbackLooper {
+        private final String name;
+        private final HandlerThread thread;
+        private final Handler handler;
+        private final Runnable probe = this::onProbe;
+        private boolean probing = false;
+        private long probePostedNs;
+        // statistics
+        private volatile long probeCnt = 0;
+        private volatile long lastQueueDelayNs = 0;
+        private volatile long maxQueueDelayNs = 0;
+        private volatile long sumQueueDelayNs = 0;
+
+        private CallbackLooper(String name, HandlerThread thread, Looper looper) {
+            this.name = name;
+            this.thread = thread;
+            this.handler = new Handler(looper);
+        }
+
+        public String getName() { return name; }
+        public Handler getHandler() { return handler; }
+
+        /** Amount of queue delay measurements */
+        public long getProbeCount() { return probeCnt; }
+        /** Most recently measured queue delay */
+        public long getLastQueueDelayNs() { return lastQueueDelayNs; }
+        /** Maximum measured queue delay */
+        public long getMaxQueueDelayNs() { return maxQueueDelayNs; }
+        /** Mean measured queue delay */
+        public long getMeanQueueDelayNs() {
+            final long cnt = probeCnt;
+            return (cnt == 0) ? 0 : sumQueueDelayNs / cnt;
+        }
+
+        private synchronized void startProbing() {
+            if(probing) { return; }
+            probing = true;
+            probeCnt = 0; lastQueueDelayNs = 0; maxQueueDelayNs = 0; sumQueueDelayNs = 0;
+            postProbe();
+        }
+
+        private synchronized void stopProbing() {
+            probing = false;
+            handler.removeCallbacks(probe);
+        }
+
+        private void postProbe() {
+            probePostedNs = System.nanoTime();
+            handler.postDelayed(probe, PROBE_INTERVAL_MS);
+        }
+
+        private synchronized void onProbe() {
+            if(!probing) { return; }
+            final long queueDelayNs = Math.max(0, System.nanoTime() - probePostedNs - PROBE_INTERVAL_MS * 1000000);
+            // only written from the looper thread
+            lastQueueDelayNs = queueDelayNs;
+            maxQueueDelayNs = Math.max(maxQueueDelayNs, queueDelayNs);
+            sumQueueDelayNs += queueDelayNs;
+            probeCnt += 1;
+            postProbe();
+        }
+    }
+
+    private final Mode mode;
+    private final ArrayList<CallbackLooper> loopers = new ArrayList<>();
+    private boolean running = false;
+
+    public SensorCallbackThreads(Mode mode) {
+        this.mode = mode;
+    }
+
+    public Mode getMode() { return mode; }
+
+    /**
+     * Get the Handler the given sensor's callbacks should be delivered on.
+     * Threads are created on first use, and live until quit().
+     * @param sensorName Name of the sensor (used to name its thread in Mode.PER_SENSOR)
+     * @return Handler to pass to registerListener(), null for the main looper
+     */
+    public synchronized Handler getHandler(String sensorName) {
+        switch (mode) {
+            case MAIN_LOOPER:
+                getOrCreateLooper("main");
+                return null;
+            case SHARED:
+                return getOrCreateLooper("SensorThread").handler;
+            default:
+                return getOrCreateLooper("SensorThread-" + sensorName).handler;
+        }
+    }
+
+    /** Snapshot of all loopers handed out so far */
+    public synchronized List<CallbackLooper> getLoopers() {
+        return new ArrayList<>(loopers);
+    }
+
+    /** Start measuring the queue delay of all loopers */
+    public synchronized void start() {
+        running = true;
+        for(CallbackLooper looper : loopers) { looper.startProbing(); }
+    }
+
+    /** Stop measuring. The threads keep running, so callbacks still queued (e.g. FIFO flushes) are delivered. */
+    public synchronized void stop() {
+        running = false;
+        for(CallbackLooper looper : loopers) {
+            looper.stopProbing();
+            Log.d(TAG, looper.name + " queue delay [us] mean: " + looper.getMeanQueueDelayNs() / 1000 + " max: " + looper.getMaxQueueDelayNs() / 1000);
+        }
+    }
+
+    /** Stop all threads, after they finished the callbacks already queued */
+    public synchronized void quit() {
+        stop();
+        for(CallbackLooper looper : loopers) {
+            if(looper.thread != null) { looper.thread.quitSafely(); }
+        }
+        loopers.clear();
+    }
+
+    private CallbackLooper getOrCreateLooper(String name) {
+        for(CallbackLooper looper : loopers) {
+            if(looper.name.equals(name)) { return looper; }
+        }
+        final CallbackLooper looper;
+        if(mode == Mode.MAIN_LOOPER) {
+            looper = new CallbackLooper(name, null, Looper.getMainLooper());
+        } else {
+            // above normal app threads (like the UI's display work), so callback timing is not disturbed by background work
+            HandlerThread thread = new HandlerThread(name, Process.THREAD_PRIORITY_DISPLAY);
+            thread.start();
+            looper = new CallbackLooper(name, thread, thread.getLooper());
+        }
+        loopers.add(looper);
+        if(running) { looper.startProbing(); }
+        return looper;
+    }
+
+}
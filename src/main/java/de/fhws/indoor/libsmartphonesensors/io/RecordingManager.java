@@ -39,7 +39,7 @@ public class RecordingManager {
         Intent i = new Intent(Intent.ACTION_SEND);
         i.putExtra(Intent.EXTRA_TEXT, "Share Recording");
         i.putExtra(Intent.EXTRA_STREAM, path);
-        i.setType("text/csv");
+        i.setType((lastSession.getFormat() == RecordingFormat.CSV) ? "text/csv" : "application/octet-stream");
         List<ResolveInfo> resInfoList = activity.getPackageManager().queryIntentActivities(i, PackageManager.MATCH_DEFAULT_ONLY);
         for (ResolveInfo resolveInfo : resInfoList) {
             String packageName = resolveInfo.activityInfo.packageName;
@@ -66,7 +66,7 @@ public class RecordingManager {
         File[] directoryListing = rootPath.listFiles();
         if(directoryListing != null) {
             for (File recordingFile : rootPath.listFiles()) {
-                if(recordingFile.isFile() && recordingFile.getPath().endsWith(".csv")) {
+                if(recordingFile.isFile() && RecordingFormat.fromFileName(recordingFile.getName()) != null) {
                     recordings.add(recordingFile);
                 }
             }
@@ -80,11 +80,19 @@ public class RecordingManager {
     }
 
     public RecordingSession startNewNamedSession(String name, long startTs) throws FileNotFoundException {
+        return startNewNamedSession(name, startTs, RecordingFormat.CSV);
+    }
+
+    public RecordingSession startNewNamedSession(String name, long startTs, RecordingFormat format) throws FileNotFoundException {
+        return startNewNamedSession(name, startTs, format, RecordingWriteMode.STREAM);
+    }
+
+    public RecordingSession startNewNamedSession(String name, long startTs, RecordingFormat format, RecordingWriteMode writeMode) throws FileNotFoundException {
         if(currentSession != null && currentSession.isOpen()) {
             throw new IllegalStateException("A recording session is already running. Clean that up first");
         }
-        File file = new File(rootPath, name + ".csv");
-        currentSession = RecordingSession.create(startTs, file);
+        File file = new File(rootPath, name + format.fileExtension());
+        currentSession = RecordingSession.create(startTs, file, format, writeMode);
         return currentSession;
     }
 
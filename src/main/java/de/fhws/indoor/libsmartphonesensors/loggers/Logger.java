@@ -4,8 +4,7 @@ import android.app.Activity;
 import android.content.Context;
 import android.os.SystemClock;
 
-import androidx.annotation.NonNull;
-
+import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.TimeZone;
@@ -13,7 +12,10 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
 import de.fhws.indoor.libsmartphonesensors.SensorType;
+import de.fhws.indoor.libsmartphonesensors.io.BinaryRecordEncoder;
+import de.fhws.indoor.libsmartphonesensors.io.RecordingFormat;
 import de.fhws.indoor.libsmartphonesensors.io.RecordingSession;
+import de.fhws.indoor.libsmartphonesensors.util.ObjectPool;
 
 /**
  * Base-Class for all Logger implementations.
@@ -25,6 +27,8 @@ import de.fhws.indoor.libsmartphonesensors.io.RecordingSession;
 public abstract class Logger {
 
     public static final long BEGINNING_TS = -1;
+    // maximum amount of idle LogEntries kept for reuse
+    private static final int ENTRY_POOL_CAPACITY = 16384;
 
     // work data
     protected Context context;
@@ -35,6 +39,19 @@ public abstract class Logger {
     private AtomicLong statSizeTotal = new AtomicLong(0);
     private AtomicBoolean isRunning = new AtomicBoolean(false);
 
+    // per-thread encoders for the primitive (String-free) logging path
+    private final ThreadLocal<LineEncoder> lineEncoder = new ThreadLocal<LineEncoder>() {
+        @Override protected LineEncoder initialValue() { return new LineEncoder(); }
+    };
+    private final ThreadLocal<BinaryRecordEncoder> binaryEncoder = new ThreadLocal<BinaryRecordEncoder>() {
+        @Override protected BinaryRecordEncoder initialValue() { return new BinaryRecordEncoder(); }
+    };
+    private boolean binaryFormat = false;
+    // LogEntries are recycled by the implementations once written, so steady-state logging does not allocate
+    private final ObjectPool<LogEntry> entryPool = new ObjectPool<>(ENTRY_POOL_CAPACITY, new ObjectPool.Factory<LogEntry>() {
+        @Override public LogEntry create() { return new LogEntry(); }
+    });
+
     public Logger(Context context) {
         this.context = context;
     }
@@ -44,12 +61,23 @@ public abstract class Logger {
         this.recordingSession = recordingSession;
         statEntryCnt.set(0);
         statSizeTotal.set(0);
+        entryPool.resetStatistics();
+        binaryFormat = (recordingSession.getFormat() == RecordingFormat.BINARY);
+        if(binaryFormat) { // binary recordings carry the metadata in their header
+            try {
+                recordingSession.writeBinaryHeader(metadata.toCsv());
+            } catch (IOException e) {
+                throw new LoggerException("error while writing log-file header", e);
+            }
+        }
         isRunning.set(true);
         onStart();
 
         // commit metadata
-        addCSV(SensorType.FILE_METADATA, BEGINNING_TS, metadata.toCsv());
-        addCSV(SensorType.RECORDING_ID, BEGINNING_TS, recordingSession.getRecordingId().toString());
+        if(!binaryFormat) {
+            addCSV(SensorType.FILE_METADATA, BEGINNING_TS, metadata.toCsv());
+            addCSV(SensorType.RECORDING_ID, BEGINNING_TS, recordingSession.getRecordingId().toString());
+        }
     }
     protected abstract void onStart();
 
@@ -66,6 +94,10 @@ public abstract class Logger {
     }
     public final long getSizeTotal() { return statSizeTotal.get(); }
     public final long getEventCnt() { return statEntryCnt.get(); }
+    /** Amount of entries (since start) that reused a pooled LogEntry */
+    public final long getEntryPoolHitCount() { return entryPool.getHitCount(); }
+    /** Amount of entries (since start) that required a new LogEntry allocation */
+    public final long getEntryPoolMissCount() { return entryPool.getMissCount(); }
     public abstract long getEntriesCached();
     public abstract float getCacheLevel();
 
@@ -78,31 +110,109 @@ public abstract class Logger {
 
     /** add a new CSV entry for the given sensor number to the internal buffer */
     public final void addCSV(final SensorType sensorNr, final long timestamp, final String csv) {
-        if(isRunning.get() == false) { return; }
-        final long relTS = (timestamp == Logger.BEGINNING_TS) ? 0 : (timestamp - getStartTS());
+        final long relTS = toRelativeTimestamp(timestamp);
         if (relTS >= 0) { // drop pre startTS logs (at the beginning, sensors sometimes deliver old values)
-            String line = String.format("%d;%d;%s\n", relTS, sensorNr.id(), csv);
-            log(new LogEntry(relTS, line));
-            statEntryCnt.incrementAndGet();
-            statSizeTotal.addAndGet(line.length());
+            if(binaryFormat) {
+                commitEntry(relTS, sensorNr, binaryEncoder.get().beginRecord(sensorNr.id(), BinaryRecordEncoder.TYPE_TEXT).appendUtf8(csv));
+            } else {
+                String line = String.format("%d;%d;%s\n", relTS, sensorNr.id(), csv);
+                byte[] lineBytes = line.getBytes();
+                commitEntry(relTS, sensorNr, lineBytes, lineBytes.length);
+            }
         }
     }
 
-    public static class LogEntry implements Comparable<LogEntry> {
-        public long timestamp;
-        public String csv;
+    /**
+     * Add a new entry with the given float payload for the given sensor number to the internal buffer.
+     * <p>
+     *     The line is encoded directly into a reused per-thread buffer, without String.format() and
+     *     without intermediate Strings. The result is byte-identical to passing the values
+     *     joined with ';' (using Float.toString()) to addCSV().
+     *     For binary recordings, the values are stored as raw float32 values.
+     * </p>
+     * @param values Payload values
+     * @param count Amount of values (starting at index 0) to log
+     */
+    public final void addFloats(final SensorType sensorNr, final long timestamp, final float[] values, final int count) {
+        final long relTS = toRelativeTimestamp(timestamp);
+        if (relTS >= 0) {
+            if(binaryFormat) {
+                commitEntry(relTS, sensorNr, binaryEncoder.get().beginRecord(sensorNr.id(), BinaryRecordEncoder.TYPE_FLOAT32).appendFloats32(values, count));
+            } else {
+                commitEntry(relTS, sensorNr, lineEncoder.get().beginLine(relTS, sensorNr.id()).appendFloats(values, count).endLine());
+            }
+        }
+    }
+
+    /** @see #addFloats(SensorType, long, float[], int) */
+    public final void addFloat(final SensorType sensorNr, final long timestamp, final float value) {
+        final long relTS = toRelativeTimestamp(timestamp);
+        if (relTS >= 0) {
+            if(binaryFormat) {
+                commitEntry(relTS, sensorNr, binaryEncoder.get().beginRecord(sensorNr.id(), BinaryRecordEncoder.TYPE_FLOAT32).appendFloat32(value));
+            } else {
+                commitEntry(relTS, sensorNr, lineEncoder.get().beginLine(relTS, sensorNr.id()).appendFloat(value).endLine());
+            }
+        }
+    }
 
-        public LogEntry(long timestamp, String csv) {
-            this.timestamp = timestamp;
-            this.csv = csv;
+    /**
+     * Add a new entry with the given integral payload for the given sensor number to the internal buffer.
+     * @see #addFloats(SensorType, long, float[], int)
+     */
+    public final void addLongs(final SensorType sensorNr, final long timestamp, final long[] values, final int count) {
+        final long relTS = toRelativeTimestamp(timestamp);
+        if (relTS >= 0) {
+            if(binaryFormat) {
+                commitEntry(relTS, sensorNr, binaryEncoder.get().beginRecord(sensorNr.id(), BinaryRecordEncoder.TYPE_INT64).appendZigZags(values, count));
+            } else {
+                commitEntry(relTS, sensorNr, lineEncoder.get().beginLine(relTS, sensorNr.id()).appendLongs(values, count).endLine());
+            }
         }
+    }
 
-        @Override
-        public int compareTo(@NonNull LogEntry another) {
-            return Long.compare(timestamp, another.timestamp);
+    /** @see #addLongs(SensorType, long, long[], int) */
+    public final void addLong(final SensorType sensorNr, final long timestamp, final long value) {
+        final long relTS = toRelativeTimestamp(timestamp);
+        if (relTS >= 0) {
+            if(binaryFormat) {
+                commitEntry(relTS, sensorNr, binaryEncoder.get().beginRecord(sensorNr.id(), BinaryRecordEncoder.TYPE_INT64).appendZigZag(value));
+            } else {
+                commitEntry(relTS, sensorNr, lineEncoder.get().beginLine(relTS, sensorNr.id()).appendLong(value).endLine());
+            }
         }
     }
 
+    /**
+     * Convert the given sensor timestamp to the timestamp relative to the recording start.
+     * @return relative timestamp, or a negative value if the entry has to be dropped
+     * (logger not running, or event from before the recording start)
+     */
+    private long toRelativeTimestamp(final long timestamp) {
+        if(isRunning.get() == false) { return -1; }
+        return (timestamp == Logger.BEGINNING_TS) ? 0 : (timestamp - getStartTS());
+    }
+
+    private void commitEntry(final long relTS, final SensorType sensorNr, final LineEncoder encoder) {
+        commitEntry(relTS, sensorNr, encoder.array(), encoder.length());
+    }
+    private void commitEntry(final long relTS, final SensorType sensorNr, final BinaryRecordEncoder encoder) {
+        commitEntry(relTS, sensorNr, encoder.array(), encoder.length());
+    }
+    private void commitEntry(final long relTS, final SensorType sensorNr, final byte[] entry, final int entryLength) {
+        log(entryPool.acquire().set(relTS, sensorNr, entry, entryLength));
+        statEntryCnt.incrementAndGet();
+        statSizeTotal.addAndGet(entryLength);
+    }
+
+    /**
+     * Hand a LogEntry back to the pool, once it was written (or dropped).
+     * The entry must not be used anymore, after recycling it.
+     */
+    protected final void recycle(LogEntry logEntry) {
+        entryPool.release(logEntry);
+    }
+
     public static class FileMetadata {
         private String person;
         private String comment;
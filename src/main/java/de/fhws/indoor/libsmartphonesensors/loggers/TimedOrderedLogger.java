@@ -2,30 +2,45 @@ package de.fhws.indoor.libsmartphonesensors.loggers;
 
 import android.content.Context;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import de.fhws.indoor.libsmartphonesensors.util.MpscRingBuffer;
 
 /**
  * Live (ordered) logger.
  * <p>
- *     This logger contains an internal caching structure that regularly sorts the contained entries
- *     and commits the oldest ones to the logfile using the correct order.
+ *     This logger contains an internal caching structure (see ReorderBuffer) that keeps the contained
+ *     entries ordered and continuously commits the oldest ones to the logfile using the correct order.
  *     This buffer determines the amount of items to store based on the time-window they represent,
  *     instead of a hard-coded amount of entries.
+ *
+ *     Sensor threads only hand their entries over to a lock-free ring buffer. A dedicated writer
+ *     thread owns the ReorderBuffer and the file stream, so no sensor callback ever waits for
+ *     reordering or disk I/O.
  * </p>
  * @author Markus Ebner
  */
 public final class TimedOrderedLogger extends Logger {
 
-    // If the entries in the ReorderBuffer represent at least a timespan of REORDER_TIMEFRAME_UPPER_NS,
-    // a commit is scheduled, that sorts the buffer and commits all items older than REORDER_TIMEFRAME_LOWER_NS.
-    private static final long REORDER_TIMEFRAME_UPPER_NS = 10L * 1000 * 1000 * 1000;
-    private static final long REORDER_TIMEFRAME_LOWER_NS = 7L * 1000 * 1000 * 1000;
+    // Entries are held back in the ReorderBuffer until they are older than REORDER_TIMEFRAME_NS (relative
+    // to the newest entry), and are then committed in timestamp order.
+    private static final long REORDER_TIMEFRAME_NS = 7L * 1000 * 1000 * 1000;
+    // Amount of entries that can be in-flight between the sensor threads and the writer thread.
+    private static final int INGEST_BUFFER_SIZE = 16384;
+    // Maximum time the writer thread sleeps without being woken up by a producer.
+    private static final long WRITER_IDLE_TIMEOUT_NS = 100L * 1000 * 1000;
 
     // members
-    private ReorderBuffer reorderBuffer;
+    private MpscRingBuffer<LogEntry> ingestBuffer;
+    private WriterThread writerThread;
+    // snapshot of the writer-owned ReorderBuffer state
+    private volatile int reorderBufferSize = 0;
+    private volatile long reorderBufferTimespan = 0;
+
+    // statistics
+    private final AtomicLong statProducerFullWaits = new AtomicLong(0);
+    private final AtomicLong statMaxProducerStallNs = new AtomicLong(0);
 
     public TimedOrderedLogger(Context context) {
         super(context);
@@ -33,110 +48,134 @@ public final class TimedOrderedLogger extends Logger {
 
     @Override
     protected final void onStart() {
-        reorderBuffer = new ReorderBuffer((commitSlice) -> {
-            OutputStream outputStream = recordingSession.stream();
-            for(LogEntry entry : commitSlice) {
-//                if(oldestEntryTimestamp > entry.timestamp) {
-//                    throw new MyException("Order Issue!");
-//                } else {
-//                    oldestEntryTimestamp = entry.timestamp;
-//                }
-                try {
-                    outputStream.write(entry.csv.getBytes());
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
-        });
+        ingestBuffer = new MpscRingBuffer<>(INGEST_BUFFER_SIZE);
+        reorderBufferSize = 0;
+        reorderBufferTimespan = 0;
+        statProducerFullWaits.set(0);
+        statMaxProducerStallNs.set(0);
+        writerThread = new WriterThread();
+        writerThread.start();
     }
 
     @Override
     protected void onStop() {
-        synchronized (reorderBuffer) {
-            reorderBuffer.flush();
+        writerThread.stopping = true;
+        LockSupport.unpark(writerThread);
+        // the writer still owns the file, never return before it finished (even if interrupted)
+        boolean interrupted = false;
+        while(writerThread.isAlive()) {
+            try {
+                writerThread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
         }
-        try {
-            recordingSession.stream().flush();
-        } catch (final Exception e) {
-            throw new LoggerException("error while writing log-file", e);
+        if(interrupted) { Thread.currentThread().interrupt(); }
+        if(writerThread.error != null) {
+            throw new LoggerException("error while writing log-file", writerThread.error);
         }
     }
 
     @Override
     protected void log(LogEntry logEntry) {
-        synchronized (reorderBuffer) {
-            reorderBuffer.add(logEntry);
+        final long startTs = System.nanoTime();
+        while(!ingestBuffer.offer(logEntry)) {
+            // writer thread can not keep up, wait for it to free space
+            statProducerFullWaits.incrementAndGet();
+            LockSupport.unpark(writerThread);
+            Thread.yield();
+        }
+        if(writerThread.idle) {
+            writerThread.idle = false;
+            LockSupport.unpark(writerThread);
+        }
+        final long stallNs = System.nanoTime() - startTs;
+        long maxStallNs = statMaxProducerStallNs.get();
+        while(stallNs > maxStallNs && !statMaxProducerStallNs.compareAndSet(maxStallNs, stallNs)) {
+            maxStallNs = statMaxProducerStallNs.get();
         }
     }
 
     @Override
     public long getEntriesCached() {
-        synchronized (reorderBuffer) {
-            return reorderBuffer.size();
-        }
+        return ingestBuffer.size() + reorderBufferSize;
     }
 
     @Override
     public float getCacheLevel() {
-        synchronized (reorderBuffer) {
-            return ((float)reorderBuffer.timespan() / (float)REORDER_TIMEFRAME_UPPER_NS);
-        }
+        return ((float)reorderBufferTimespan / (float)REORDER_TIMEFRAME_NS);
     }
 
-    private interface ReorderBufferCommitListener {
-        void onCommit(List<LogEntry> commitSlice);
+    /**
+     * Get the amount of contention events between sensor threads handing over entries.
+     * This counts failed handover attempts because another thread was faster, as well as
+     * attempts that found the handover buffer full.
+     */
+    public long getProducerContentionCount() {
+        return ingestBuffer.getCasFailureCount() + statProducerFullWaits.get();
     }
 
-    private static class ReorderBuffer {
-        private long oldestTs = Long.MAX_VALUE;
-        private long newestTs = Long.MIN_VALUE;
-        private ArrayList<LogEntry> reorderBuffer = new ArrayList<>();
-        private ReorderBufferCommitListener listener;
+    /** Get the longest time a sensor thread spent handing over a single entry, in nanoseconds. */
+    public long getMaxProducerStallNs() {
+        return statMaxProducerStallNs.get();
+    }
 
-        public ReorderBuffer(ReorderBufferCommitListener listener) {
-            this.listener = listener;
+    private class WriterThread extends Thread {
+        volatile boolean stopping = false;
+        volatile boolean idle = false;
+        IOException error = null;
+        private final ReorderBuffer reorderBuffer;
+
+        public WriterThread() {
+            setName("TimedOrderedLoggerWriter");
+            reorderBuffer = new ReorderBuffer(REORDER_TIMEFRAME_NS, (commitSlice) -> {
+                for(int i = 0; i < commitSlice.size(); ++i) {
+                    LogEntry entry = commitSlice.get(i);
+                    try {
+                        recordingSession.writeEntry(entry.timestamp, entry.line, 0, entry.length);
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                    recycle(entry);
+                }
+            });
         }
 
-        public void add(LogEntry logEntry) {
-            if(logEntry.timestamp < oldestTs) { oldestTs = logEntry.timestamp; }
-            if(logEntry.timestamp > newestTs) { newestTs = logEntry.timestamp; }
-            reorderBuffer.add(logEntry);
-            if((newestTs - oldestTs) > REORDER_TIMEFRAME_UPPER_NS) { // commit required
-                Collections.sort(reorderBuffer);
-                long commitEndTs = (newestTs - REORDER_TIMEFRAME_LOWER_NS);
-                int commitEndIdx = 0;
-                //TODO: binary search
-                for(; commitEndIdx < reorderBuffer.size() && reorderBuffer.get(commitEndIdx).timestamp <= commitEndTs; ++commitEndIdx) {}
-
-                List<LogEntry> commit = reorderBuffer.subList(0, commitEndIdx);
-                this.listener.onCommit(commit);
-                // remove committed elements from reorderBuffer
-                commit.clear();
-
-                if(reorderBuffer.size() > 0) {
-                    oldestTs = reorderBuffer.get(0).timestamp;
-                    newestTs = reorderBuffer.get(reorderBuffer.size() - 1).timestamp;
-                } else {
-                    oldestTs = newestTs;
+        @Override
+        public void run() {
+            while(true) {
+                boolean wasStopping = stopping;
+                if(drain() == 0) {
+                    if(wasStopping) { break; } // everything handed over before stop() was drained
+                    idle = true;
+                    if(ingestBuffer.size() == 0 && !stopping) {
+                        LockSupport.parkNanos(this, WRITER_IDLE_TIMEOUT_NS);
+                    }
+                    idle = false;
                 }
             }
+            reorderBuffer.flush();
+            publishState();
+            try {
+                recordingSession.stream().flush();
+            } catch (IOException e) {
+                error = e;
+            }
         }
 
-        public void flush() {
-            Collections.sort(reorderBuffer);
-            this.listener.onCommit(reorderBuffer);
-            reorderBuffer.clear();
-            newestTs = 0;
-            oldestTs = 0;
-        }
-
-        public int size() {
-            return reorderBuffer.size();
+        private int drain() {
+            int drained = 0;
+            for(LogEntry entry = ingestBuffer.poll(); entry != null; entry = ingestBuffer.poll()) {
+                reorderBuffer.add(entry);
+                drained += 1;
+            }
+            if(drained > 0) { publishState(); }
+            return drained;
         }
 
-        public long timespan() {
-            return (newestTs - oldestTs);
+        private void publishState() {
+            reorderBufferSize = reorderBuffer.size();
+            reorderBufferTimespan = reorderBuffer.timespan();
         }
-
     }
 }
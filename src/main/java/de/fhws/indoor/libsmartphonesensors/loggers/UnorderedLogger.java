@@ -1,19 +1,25 @@
 package de.fhws.indoor.libsmartphonesensors.loggers;
 
-import android.app.Activity;
 import android.content.Context;
-import android.util.Log;
 
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import de.fhws.indoor.libsmartphonesensors.SensorType;
+import de.fhws.indoor.libsmartphonesensors.io.RecordingFormat;
 
 /**
  * Live (unordered) Logger.
  * <p>
  *     This logger takes the incomming events and commits them to the logfile in a background thread.
+ *     The background thread blocks until entries are available, then drains all queued entries
+ *     at once and writes them as one batch.
  *
  *     WARNING: This produces files with non-monotonic increasing timestamps.
  *     Reordering is required on the parser-side, or as post-processing step.
@@ -24,17 +30,49 @@ import java.util.concurrent.ArrayBlockingQueue;
 public final class UnorderedLogger extends Logger {
 
     private static final int LINE_BUFFER_SIZE = 5000;
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final long WORKER_POLL_TIMEOUT_MS = 100;
+
+    /**
+     * Behavior when the queue between sensor threads and write-back thread is full.
+     */
+    public enum BackPressurePolicy {
+        /** The sensor thread waits until there is space in the queue (new entries are dropped once writing failed) */
+        BLOCK,
+        /** The oldest queued entry is dropped in favor of the new one */
+        DROP_OLDEST,
+        /** The new entry is dropped */
+        DROP_NEWEST,
+        /** The queue grows without bound (nothing is dropped, nobody waits) */
+        GROW
+    }
 
+    private final BackPressurePolicy backPressurePolicy;
     private volatile boolean addingStopped = false; // Just to be sure
-    private ArrayBlockingQueue<LogEntry> lineBuffer = new ArrayBlockingQueue<>(LINE_BUFFER_SIZE);
+    private final BlockingQueue<LogEntry> lineBuffer;
     private WriteBackWorker writeBackWorker;
 
+    // statistics (dropped entries per SensorType, last slot for entries without SensorType)
+    private final AtomicLongArray statDropped = new AtomicLongArray(SensorType.values().length + 1);
+
     public UnorderedLogger(Context context) {
+        this(context, BackPressurePolicy.DROP_NEWEST);
+    }
+
+    public UnorderedLogger(Context context, BackPressurePolicy backPressurePolicy) {
         super(context);
+        this.backPressurePolicy = backPressurePolicy;
+        if(backPressurePolicy == BackPressurePolicy.GROW) {
+            lineBuffer = new LinkedBlockingQueue<>();
+        } else {
+            lineBuffer = new ArrayBlockingQueue<>(LINE_BUFFER_SIZE);
+        }
     }
 
     @Override
     protected void onStart() {
+        addingStopped = false;
+        for(int i = 0; i < statDropped.length(); ++i) { statDropped.set(i, 0); }
         writeBackWorker = new WriteBackWorker();
         writeBackWorker.start();
     }
@@ -42,16 +80,58 @@ public final class UnorderedLogger extends Logger {
     @Override
     protected void onStop() {
         addingStopped = true;
-        try {
-            writeBackWorker.join();
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+        // the worker still owns the file, never return before it finished (even if interrupted)
+        boolean interrupted = false;
+        while(writeBackWorker.isAlive()) {
+            try {
+                writeBackWorker.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if(interrupted) { Thread.currentThread().interrupt(); }
+        if(writeBackWorker.error != null) {
+            throw new LoggerException("error while writing log-file", writeBackWorker.error);
         }
     }
 
     @Override
     protected void log(LogEntry logEntry) {
-        lineBuffer.add(logEntry);
+        switch (backPressurePolicy) {
+            case BLOCK:
+                try {
+                    // wait for space, as long as the write-back worker is alive to make some
+                    boolean queued = false;
+                    while(!queued && !writeBackWorker.stopped) {
+                        queued = lineBuffer.offer(logEntry, WORKER_POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                    }
+                    if(!queued) { // worker died on an error, reported by stop()
+                        countDropped(logEntry);
+                        recycle(logEntry);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    countDropped(logEntry);
+                    recycle(logEntry);
+                }
+                break;
+            case DROP_OLDEST:
+                while(!lineBuffer.offer(logEntry)) {
+                    LogEntry droppedEntry = lineBuffer.poll();
+                    if(droppedEntry != null) {
+                        countDropped(droppedEntry);
+                        recycle(droppedEntry);
+                    }
+                }
+                break;
+            case DROP_NEWEST:
+            case GROW:
+                if(!lineBuffer.offer(logEntry)) {
+                    countDropped(logEntry);
+                    recycle(logEntry);
+                }
+                break;
+        }
     }
 
     @Override
@@ -59,13 +139,40 @@ public final class UnorderedLogger extends Logger {
         return lineBuffer.size();
     }
 
+    /**
+     * Fill level of the queue, relative to LINE_BUFFER_SIZE. With the GROW policy, the queue can
+     * hold more than that, so the level is clamped to 1 (see getEntriesCached() for the real size).
+     */
     @Override
     public float getCacheLevel() {
-        return 1.0f - (float)lineBuffer.remainingCapacity() / (float)LINE_BUFFER_SIZE;
+        return Math.min(1.0f, (float)lineBuffer.size() / (float)LINE_BUFFER_SIZE);
+    }
+
+    public BackPressurePolicy getBackPressurePolicy() { return backPressurePolicy; }
+
+    /** Get the amount of entries of the given sensor, that were dropped due to back-pressure */
+    public long getDroppedCount(SensorType sensorType) {
+        return statDropped.get(sensorType.ordinal());
+    }
+
+    /** Get the total amount of entries that were dropped due to back-pressure */
+    public long getDroppedTotal() {
+        long total = 0;
+        for(int i = 0; i < statDropped.length(); ++i) { total += statDropped.get(i); }
+        return total;
+    }
+
+    private void countDropped(LogEntry logEntry) {
+        statDropped.incrementAndGet((logEntry.sensorType == null) ? (statDropped.length() - 1) : logEntry.sensorType.ordinal());
     }
 
     private class WriteBackWorker extends Thread {
 
+        volatile boolean stopped = false;
+        volatile IOException error = null;
+        private final ArrayList<LogEntry> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        private final LineEncoder batchBuffer = new LineEncoder(64 * 1024);
+
         public WriteBackWorker() {
             setName("WriteBackWorker");
             setPriority(Thread.MIN_PRIORITY);
@@ -74,23 +181,43 @@ public final class UnorderedLogger extends Logger {
         @Override
         public void run() {
             try {
+                final boolean csvFormat = (recordingSession.getFormat() == RecordingFormat.CSV);
                 OutputStream outputStream = recordingSession.stream();
                 while (true) {
-                    LogEntry entry = lineBuffer.poll();
+                    LogEntry entry = lineBuffer.poll(WORKER_POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
                     if (entry == null) {
                         if (addingStopped) { // Queue empty, recording stopped. exit
-                            return;
-                        } else { // Currently no line in queue, wait 10 ms
-                            Thread.sleep(10);
+                            break;
                         }
-                    } else { // print log line
-                        outputStream.write(entry.csv.getBytes());
+                        continue;
                     }
+                    // write everything that is currently queued as one batch
+                    batch.add(entry);
+                    lineBuffer.drainTo(batch, MAX_BATCH_SIZE - 1);
+                    if(csvFormat) {
+                        batchBuffer.reset();
+                        for(int i = 0; i < batch.size(); ++i) {
+                            LogEntry batchEntry = batch.get(i);
+                            batchBuffer.appendBytes(batchEntry.line, 0, batchEntry.length);
+                            recycle(batchEntry);
+                        }
+                        outputStream.write(batchBuffer.array(), 0, batchBuffer.length());
+                    } else { // binary records are framed by the session (delta timestamps)
+                        for(int i = 0; i < batch.size(); ++i) {
+                            LogEntry batchEntry = batch.get(i);
+                            recordingSession.writeEntry(batchEntry.timestamp, batchEntry.line, 0, batchEntry.length);
+                            recycle(batchEntry);
+                        }
+                    }
+                    batch.clear();
                 }
+                outputStream.flush();
             } catch(InterruptedException e) {
                 e.printStackTrace();
             } catch (IOException e) {
-                e.printStackTrace();
+                error = e;
+            } finally {
+                stopped = true;
             }
         }
     }
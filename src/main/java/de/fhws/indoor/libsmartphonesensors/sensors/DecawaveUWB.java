@@ -137,6 +137,9 @@ public class DecawaveUWB extends ASensor {
         }
 
         private	final ProfileDataCallback mLocationDataCallback = new ProfileDataCallback() {
+            // position (4) + up to 15 anchors (3 each), reused for every notification
+            private final long[] values = new long[4 + 15 * 3];
+
             @Override
             public void onDataReceived(@NonNull BluetoothDevice device, @NonNull Data data) {
                 // Log.d(TAG, "onDataReceived: length=" + data.size() + " data=" + data);
@@ -160,7 +163,7 @@ public class DecawaveUWB extends ASensor {
                     return;
                 }
 
-                StringBuilder csv = new StringBuilder(); // X;Y;Z;QualiFactor;[NodeID;DistInMM;QualiFactor]
+                int cnt = 0; // X;Y;Z;QualiFactor;[NodeID;DistInMM;QualiFactor]
 
                 if (readPos) {
                     // X,Y,Z coordinates (each 4 bytes) and quality factor in percent (0-100) (1 byte), total size: 13 bytes
@@ -170,10 +173,10 @@ public class DecawaveUWB extends ASensor {
                     int z = stream.readUInt32();
                     byte quality = stream.readByte();
 
-                    csv.append(x).append(';');
-                    csv.append(y).append(';');
-                    csv.append(z).append(';');
-                    csv.append(quality).append(';');
+                    values[cnt++] = x;
+                    values[cnt++] = y;
+                    values[cnt++] = z;
+                    values[cnt++] = quality;
                 }
 
                 if (readDist) {
@@ -182,23 +185,21 @@ public class DecawaveUWB extends ASensor {
                     // Max value contains 15 elements, size: 8 - 106
                     byte numOfAnchors = stream.readByte();
 
-                    for (int i = 0; i < numOfAnchors; i++) {
+                    for (int i = 0; i < numOfAnchors && cnt + 3 <= values.length; i++) {
 
                         int nodeID = stream.readUInt16();
                         int distInMM = stream.readUInt32();
                         byte quality = stream.readByte();
 
-                        csv.append(nodeID).append(';');
-                        csv.append(distInMM).append(';');
-                        csv.append(quality).append(';');
+                        values[cnt++] = nodeID;
+                        values[cnt++] = distInMM;
+                        values[cnt++] = quality;
                     }
                 }
 
-                csv.deleteCharAt(csv.length()-1); // remove last ';'
-
                 boolean everything = stream.eof();  // debug helper
 
-                sensorDataInterface.onData(timestamp, SensorType.DECAWAVE_UWB, csv.toString());
+                sensorDataInterface.onData(timestamp, SensorType.DECAWAVE_UWB, values, cnt);
             }
 
             @Override
@@ -6,12 +6,14 @@ import android.hardware.Sensor;
 import android.hardware.SensorEvent;
 import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
+import android.os.Handler;
 import android.util.Log;
 
 import de.fhws.indoor.libsmartphonesensors.ASensor;
 import de.fhws.indoor.libsmartphonesensors.SensorDataInterface;
 import de.fhws.indoor.libsmartphonesensors.SensorType;
 import de.fhws.indoor.libsmartphonesensors.math.MadgwickFilter;
+import de.fhws.indoor.libsmartphonesensors.math.StreamSynchronizer;
 import de.fhws.indoor.libsmartphonesensors.math.Vec3;
 
 /**
@@ -22,21 +24,40 @@ import de.fhws.indoor.libsmartphonesensors.math.Vec3;
  */
 public class HeadingChange extends ASensor implements SensorEventListener {
 
+    /** rate of the aligned accelerometer / gyroscope frames, the heading change is updated with */
+    private static final float SENSOR_HZ = 100;
+    private static final long SYNC_MAX_LATENCY_NS = 500000000;
+    private static final int SYNC_BUFFER_FRAMES = 128;
+    private static final int ACCEL_STREAM = 0;
+    private static final int GYRO_STREAM = 1;
+
     private SensorManager sensorManager;
+    private final Handler callbackHandler;
     private Sensor accelerometerSensor;
     private Sensor gyroscopeSensor;
 
     // internal heading estimation state
     private MadgwickFilter madgwickFilter = new MadgwickFilter(0.1);
     private boolean madgwickInitialized = false;
-    private Long lastUpdateTs = null;
+    // reset from onResume() (main thread), while callbacks run on the callbackHandler's thread
+    private volatile Long lastUpdateTs = null;
     private int updatecnt = 0;
     private Vec3 lastAccel = new Vec3();
     private Vec3 lastGyro = new Vec3();
+    private volatile StreamSynchronizer synchronizer = createSynchronizer();
 
     /** ctor */
     public HeadingChange(SensorDataInterface sensorDataInterface, final Activity act){
+        this(sensorDataInterface, act, null);
+    }
+
+    /**
+     * ctor
+     * @param callbackHandler Handler to deliver the sensor callbacks on (null = main looper)
+     */
+    public HeadingChange(SensorDataInterface sensorDataInterface, final Activity act, final Handler callbackHandler){
         super(sensorDataInterface);
+        this.callbackHandler = callbackHandler;
         // fetch the sensor manager from the activity
         sensorManager = (SensorManager) act.getSystemService(Context.SENSOR_SERVICE);
 
@@ -50,29 +71,41 @@ public class HeadingChange extends ASensor implements SensorEventListener {
     // ###########
     @Override
     public void onSensorChanged(SensorEvent event) {
+        final StreamSynchronizer synchronizer = this.synchronizer;
         if(event.sensor == this.accelerometerSensor) {
-            lastAccel.set(event.values[0], event.values[1], event.values[2]);
+            synchronizer.pushSample(ACCEL_STREAM, event.timestamp, event.values);
         } else if(event.sensor == this.gyroscopeSensor) {
-            lastGyro.set(event.values[0], event.values[1], event.values[2]);
-
-            // calculate headingChange
-            if(lastUpdateTs != null) {
-                long timeStep = (event.timestamp - lastUpdateTs);
-                if (!madgwickInitialized) {
-                    madgwickFilter.fastStart(timeStep, lastAccel, lastGyro);
-                    madgwickInitialized = true;
-                } else {
-                    madgwickFilter.calculcate(timeStep, lastAccel, lastGyro);
-                    Vec3 alignedGyro = madgwickFilter.getQuaternion().transformVector(lastGyro);
-                    double timeStepFactor = ((double) timeStep) / 1000000000;
-                    double headingChange = alignedGyro.z * timeStepFactor;
-                    if (sensorDataInterface != null) {
-                        sensorDataInterface.onData(event.timestamp, SensorType.HEADING_CHANGE, Double.toString(headingChange));
-                    }
+            synchronizer.pushSample(GYRO_STREAM, event.timestamp, event.values);
+        }
+    }
+
+    private StreamSynchronizer createSynchronizer() {
+        return new StreamSynchronizer(new int[]{ 3, 3 }, SENSOR_HZ, 0, SYNC_MAX_LATENCY_NS, SYNC_BUFFER_FRAMES, this::onFrame);
+    }
+
+    /** accelerometer and gyroscope, resampled to the same timestamp */
+    private void onFrame(long timestamp, float[][] frame) {
+        lastAccel.set(frame[ACCEL_STREAM][0], frame[ACCEL_STREAM][1], frame[ACCEL_STREAM][2]);
+        lastGyro.set(frame[GYRO_STREAM][0], frame[GYRO_STREAM][1], frame[GYRO_STREAM][2]);
+
+        // calculate headingChange
+        final Long lastUpdateTs = this.lastUpdateTs;
+        if(lastUpdateTs != null) {
+            long timeStep = (timestamp - lastUpdateTs);
+            if (!madgwickInitialized) {
+                madgwickFilter.fastStart(timeStep, lastAccel, lastGyro);
+                madgwickInitialized = true;
+            } else {
+                madgwickFilter.calculcate(timeStep, lastAccel, lastGyro);
+                Vec3 alignedGyro = madgwickFilter.getQuaternion().transformVector(lastGyro);
+                double timeStepFactor = ((double) timeStep) / 1000000000;
+                double headingChange = alignedGyro.z * timeStepFactor;
+                if (sensorDataInterface != null) {
+                    sensorDataInterface.onData(timestamp, SensorType.HEADING_CHANGE, Double.toString(headingChange));
                 }
             }
-            lastUpdateTs = event.timestamp;
         }
+        this.lastUpdateTs = timestamp;
     }
 
     @Override
@@ -80,8 +113,12 @@ public class HeadingChange extends ASensor implements SensorEventListener {
 
     @Override
     public void onResume(Activity act) {
-        this.sensorManager.registerListener(this, accelerometerSensor, SensorManager.SENSOR_DELAY_FASTEST);
-        this.sensorManager.registerListener(this, gyroscopeSensor, SensorManager.SENSOR_DELAY_FASTEST);
+        // do not interpolate over the pause. Reset before registering, callbacks may run on the
+        // callbackHandler's thread right away
+        this.synchronizer = createSynchronizer();
+        this.lastUpdateTs = null;
+        this.sensorManager.registerListener(this, accelerometerSensor, SensorManager.SENSOR_DELAY_FASTEST, callbackHandler);
+        this.sensorManager.registerListener(this, gyroscopeSensor, SensorManager.SENSOR_DELAY_FASTEST, callbackHandler);
     }
 
     @Override
@@ -4,19 +4,26 @@ import android.app.Activity;
 import android.content.Context;
 import android.hardware.Sensor;
 import android.hardware.SensorEvent;
-import android.hardware.SensorEventListener;
+import android.hardware.SensorEventListener2;
 import android.hardware.SensorManager;
 import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Map;
 
 import de.fhws.indoor.libsmartphonesensors.ASensor;
 import de.fhws.indoor.libsmartphonesensors.SensorDataInterface;
 import de.fhws.indoor.libsmartphonesensors.SensorType;
 import de.fhws.indoor.libsmartphonesensors.VendorInformation;
+import de.fhws.indoor.libsmartphonesensors.math.LinearResampler;
 
 /**
  * Sensor that surfaces all Sensors a phone has.
@@ -26,239 +33,260 @@ import de.fhws.indoor.libsmartphonesensors.VendorInformation;
  *     Accelerometer, Gyroscope, MagneticField, Light, Pressure, ...
  *
  *     This Sensor implementation exports all sensors supported by the smartphone.
+ *
+ *     With a maxReportLatency > 0, sensors with a hardware FIFO are registered in batched mode.
+ *     The sensor hub then collects samples in its FIFO and only wakes the application processor
+ *     when the latency expires (or the FIFO is full). Samples keep their original timestamps.
+ *     When pausing, the FIFOs are flushed before unregistering. If the callbacks are delivered on
+ *     another looper than the one onPause() is called on (e.g. a SensorCallbackThreads thread),
+ *     onPause() waits for the flush (at most FLUSH_TIMEOUT_MS), so the buffered samples are delivered
+ *     before SensorManager.stop() returns. On the same looper, the flush can only complete after
+ *     onPause() returned, so the buffered samples arrive late (and are dropped by a Logger that was
+ *     stopped in the meantime). In both cases, the listener is unregistered after FLUSH_TIMEOUT_MS
+ *     at the latest, even if the flush never completes.
+ *
+ *     The callbacks are delivered on Config.callbackHandler, or on the main looper if none is given.
+ *
+ *     Every sensor can be given a target rate (see Config.ratesHz), which is requested from android
+ *     as sampling period. Since that is only a hint, and most sensors deliver faster than requested,
+ *     the sensors can additionally be resampled on-device to exactly their target rate (Config.resample).
+ *     Resampled streams of the same rate are aligned to the same time grid.
  * </p>
  *
  * Created by Toni on 25.03.2015.
  */
-public class PhoneSensors extends ASensor implements SensorEventListener {
+public class PhoneSensors extends ASensor implements SensorEventListener2 {
 
 	//private static final int SENSOR_TYPE_HEARTRATE = 65562;
 
     private SensorManager sensorManager;
-    private Sensor acc;
-    private Sensor grav;
-   	private Sensor lin_acc;
-    private Sensor gyro;
-    private Sensor magnet;
-    private Sensor press;
-	private Sensor ori;
-	//private Sensor heart;
-	private Sensor humidity;
-	private Sensor rotationVector;
-	private Sensor light;
-	private Sensor temperature;
-	private Sensor gameRotationVector;
+	/** route of an android sensor's events to their SensorType */
+	private static final class SensorRoute {
+		final Sensor sensor;
+		final SensorType sensorType;
+		/** maximum amount of values forwarded per event */
+		final int valueCnt;
+
+		SensorRoute(Sensor sensor, SensorType sensorType, int valueCnt) {
+			this.sensor = sensor;
+			this.sensorType = sensorType;
+			this.valueCnt = valueCnt;
+		}
+	}
+
+	/** all present sensors, in registration order */
+	private final ArrayList<SensorRoute> routes = new ArrayList<>();
+	/** dispatch table: android sensor type -> route (null for sensors that are not registered) */
+	private final SensorRoute[] routesByType;
 
 	/** local gravity copy (needed for orientation matrix) */
     private float[] mGravity = new float[3];
 	/** local geomagnetic copy (needed for orientation matrix) */
     private float[] mGeomagnetic = new float[3];
+	/** whether mGravity / mGeomagnetic hold a sample since the last onResume() */
+	private boolean hasGravity = false;
+	private boolean hasGeomagnetic = false;
+	/** scratch space for the orientation computation */
+	private final float[] mRotationMatrix = new float[9];
+	private final float[] mInclinationMatrix = new float[9];
+	private final float[] mOrientation = new float[3];
+	/** interval the orientation is computed with (0 = with every magnetometer event) */
+	private final long orientationIntervalNs;
+	private long nextOrientationTs = 0;
+
+	public static class Config {
+		/** maximum time samples may be batched in the sensors' hardware FIFO (0 = no batching) */
+		public long maxReportLatencyMSec = 0;
+		/**
+		 * target rate per SensorType in Hz (sensors without entry are run as fast as possible).
+		 * The rate of ORIENTATION_NEW sets how often ORIENTATION_NEW and ROTATION_MATRIX are computed,
+		 * by default they are computed with every magnetometer event.
+		 */
+		public Map<SensorType, Float> ratesHz = new EnumMap<>(SensorType.class);
+		/** resample sensors with a target rate on-device, to exactly that rate */
+		public boolean resample = false;
+		/** Handler to deliver the sensor callbacks on (null = main looper) */
+		public Handler callbackHandler = null;
+	}
+
+	/** maximum time samples may be held in the sensor's hardware FIFO (0 = no batching) */
+	private final int maxReportLatencyUs;
+	/** Handler the sensor callbacks are delivered on (null = main looper) */
+	private final Handler callbackHandler;
+	/** requested sampling period per SensorType (by ordinal) */
+	private final int[] samplingPeriodsUs = new int[SensorType.values().length];
+	/** on-device resampling per SensorType (by ordinal), null for sensors that are passed through */
+	private final ResampledStream[] resampledStreams = new ResampledStream[SensorType.values().length];
+	/** amount of registered sensors / flushes still running before unregistering (guarded by this) */
+	private int registeredSensorCnt = 0;
+	private int pendingFlushCnt = 0;
+	/** incremented with every flush, so a timed out flush can be told apart from a newer one (guarded by this) */
+	private int flushGeneration = 0;
+	/** maximum time to wait for the FIFOs to be flushed, before unregistering anyway */
+	private static final long FLUSH_TIMEOUT_MS = 1000;
 
 
 	/** ctor */
     public PhoneSensors(SensorDataInterface sensorDataInterface, final Activity act){
+		this(sensorDataInterface, act, new Config());
+	}
+
+	/** ctor */
+	public PhoneSensors(SensorDataInterface sensorDataInterface, final Activity act, final Config config){
 		super(sensorDataInterface);
+		this.maxReportLatencyUs = (int) Math.min(Integer.MAX_VALUE, Math.max(0, config.maxReportLatencyMSec) * 1000);
+		this.callbackHandler = config.callbackHandler;
+		final Float orientationRateHz = config.ratesHz.get(SensorType.ORIENTATION_NEW);
+		this.orientationIntervalNs = (orientationRateHz == null || orientationRateHz <= 0) ? 0 : (long) (1000000000 / orientationRateHz);
+		for(SensorType sensorType : SensorType.values()) {
+			samplingPeriodsUs[sensorType.ordinal()] = SensorManager.SENSOR_DELAY_FASTEST;
+			Float rateHz = config.ratesHz.get(sensorType);
+			if(rateHz == null || rateHz <= 0) { continue; }
+			samplingPeriodsUs[sensorType.ordinal()] = (int) (1000000 / rateHz);
+			if(config.resample) {
+				resampledStreams[sensorType.ordinal()] = new ResampledStream(sensorType, rateHz);
+			}
+		}
 		// fetch the sensor manager from the activity
         sensorManager = (SensorManager) act.getSystemService(Context.SENSOR_SERVICE);
 
-		// try to get each sensor
-        acc = sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
-        grav = sensorManager.getDefaultSensor(Sensor.TYPE_GRAVITY);
-        lin_acc = sensorManager.getDefaultSensor(Sensor.TYPE_LINEAR_ACCELERATION);
-        gyro = sensorManager.getDefaultSensor(Sensor.TYPE_GYROSCOPE);
-        magnet = sensorManager.getDefaultSensor(Sensor.TYPE_MAGNETIC_FIELD);
-        press = sensorManager.getDefaultSensor(Sensor.TYPE_PRESSURE);
-		ori = sensorManager.getDefaultSensor(Sensor.TYPE_ORIENTATION);
-		//heart = sensorManager.getDefaultSensor(Sensor.TYPE_HEART_RATE);
-		humidity = sensorManager.getDefaultSensor(Sensor.TYPE_RELATIVE_HUMIDITY);
-		rotationVector = sensorManager.getDefaultSensor(Sensor.TYPE_ROTATION_VECTOR);
-		light = sensorManager.getDefaultSensor(Sensor.TYPE_LIGHT);
-		temperature = sensorManager.getDefaultSensor(Sensor.TYPE_AMBIENT_TEMPERATURE);
-		gameRotationVector = sensorManager.getDefaultSensor(Sensor.TYPE_GAME_ROTATION_VECTOR);
+		// try to get each sensor, and build the dispatch table for onSensorChanged()
+		addRoute(Sensor.TYPE_ACCELEROMETER, SensorType.ACCELEROMETER, 3);
+		addRoute(Sensor.TYPE_GRAVITY, SensorType.GRAVITY, 3);
+		addRoute(Sensor.TYPE_GYROSCOPE, SensorType.GYROSCOPE, 3);
+		addRoute(Sensor.TYPE_LINEAR_ACCELERATION, SensorType.LINEAR_ACCELERATION, 3);
+		addRoute(Sensor.TYPE_MAGNETIC_FIELD, SensorType.MAGNETIC_FIELD, 3);
+		addRoute(Sensor.TYPE_PRESSURE, SensorType.PRESSURE, 1);
+		// to compare with the other orientation
+		addRoute(Sensor.TYPE_ORIENTATION, SensorType.ORIENTATION_OLD, 3);
+		//addRoute(Sensor.TYPE_HEART_RATE, SensorType.HEART_RATE, 1);
+		addRoute(Sensor.TYPE_RELATIVE_HUMIDITY, SensorType.RELATIVE_HUMIDITY, 1);
+		// the 4th (scalar) component is optional
+		addRoute(Sensor.TYPE_ROTATION_VECTOR, SensorType.ROTATION_VECTOR, 4);
+		addRoute(Sensor.TYPE_LIGHT, SensorType.LIGHT, 1);
+		addRoute(Sensor.TYPE_AMBIENT_TEMPERATURE, SensorType.AMBIENT_TEMPERATURE, 1);
+		addRoute(Sensor.TYPE_GAME_ROTATION_VECTOR, SensorType.GAME_ROTATION_VECTOR, 3);
+		int maxType = 0;
+		for(SensorRoute route : routes) { maxType = Math.max(maxType, route.sensor.getType()); }
+		routesByType = new SensorRoute[maxType + 1];
+		for(SensorRoute route : routes) { routesByType[route.sensor.getType()] = route; }
+	}
+
+	private void addRoute(final int androidSensorType, final SensorType sensorType, final int valueCnt) {
+		final Sensor sensor = sensorManager.getDefaultSensor(androidSensorType);
+		if (sensor == null) {
+			Log.d("PhoneSensors", "sensor " + sensorType + " not present. skipping");
+			return;
+		}
+		routes.add(new SensorRoute(sensor, sensorType, valueCnt));
 	}
 
     @Override
     public void onSensorChanged(SensorEvent event) {
 		if(sensorDataInterface == null) { return; }
-		// to compare with the other orientation
-		if(event.sensor.getType() == Sensor.TYPE_ORIENTATION) {
-			// inform listeners
-			sensorDataInterface.onData(event.timestamp, SensorType.ORIENTATION_OLD,
-				Float.toString(event.values[0]) + ";" +
-				Float.toString(event.values[1]) + ";" +
-				Float.toString(event.values[2])
-			);
-		}
-//		else if(event.sensor.getType() == Sensor.TYPE_HEART_RATE) {
-//
-//			// inform listeners
-//			if (listener != null){
-//				listener.onData(SensorType.HEART_RATE, event.timestamp,
-//						Float.toString(event.values[0])
-//				);
-//			}
-//
-//		}
-		else if(event.sensor.getType() == Sensor.TYPE_LIGHT) {
-			// inform listeners
-			sensorDataInterface.onData(event.timestamp, SensorType.LIGHT,
-					Float.toString(event.values[0])
-			);
-		} else if(event.sensor.getType() == Sensor.TYPE_AMBIENT_TEMPERATURE) {
-			// inform listeners
-			sensorDataInterface.onData(event.timestamp, SensorType.AMBIENT_TEMPERATURE,
-					Float.toString(event.values[0])
-			);
-		} else if(event.sensor.getType() == Sensor.TYPE_RELATIVE_HUMIDITY) {
-			// inform listeners
-			sensorDataInterface.onData(event.timestamp, SensorType.RELATIVE_HUMIDITY,
-					Float.toString(event.values[0])
-			);
-		} else if(event.sensor.getType() == Sensor.TYPE_ROTATION_VECTOR) {
-			// inform listeners
-			if(event.values.length > 3){
-				sensorDataInterface.onData(event.timestamp, SensorType.ROTATION_VECTOR,
-						Float.toString(event.values[0]) + ";" +
-						Float.toString(event.values[1]) + ";" +
-						Float.toString(event.values[2]) + ";" +
-						Float.toString(event.values[3])
-				);
-			} else {
-				sensorDataInterface.onData(event.timestamp, SensorType.ROTATION_VECTOR,
-						Float.toString(event.values[0]) + ";" +
-						Float.toString(event.values[1]) + ";" +
-						Float.toString(event.values[2])
-				);
-			}
-		} else if(event.sensor.getType() == Sensor.TYPE_GYROSCOPE) {
-			// inform listeners
-			sensorDataInterface.onData(event.timestamp, SensorType.GYROSCOPE,
-				Float.toString(event.values[0]) + ";" +
-				Float.toString(event.values[1]) + ";" +
-				Float.toString(event.values[2])
-			);
-		} else if(event.sensor.getType() == Sensor.TYPE_PRESSURE) {
-			// inform listeners
-			sensorDataInterface.onData(event.timestamp, SensorType.PRESSURE,
-				Float.toString(event.values[0])
-			);
-		} else if(event.sensor.getType() == Sensor.TYPE_LINEAR_ACCELERATION) {
-			// inform listeners
-			sensorDataInterface.onData(event.timestamp, SensorType.LINEAR_ACCELERATION,
-				Float.toString(event.values[0]) + ";" +
-				Float.toString(event.values[1]) + ";" +
-				Float.toString(event.values[2])
-			);
-		} else if(event.sensor.getType() == Sensor.TYPE_GRAVITY) {
-			// inform listeners
-			sensorDataInterface.onData(event.timestamp, SensorType.GRAVITY,
-					Float.toString(event.values[0]) + ";" +
-					Float.toString(event.values[1]) + ";" +
-					Float.toString(event.values[2])
-			);
-        } else if(event.sensor.getType() == Sensor.TYPE_ACCELEROMETER) {
-			// inform listeners
-			sensorDataInterface.onData(event.timestamp, SensorType.ACCELEROMETER,
-				Float.toString(event.values[0]) + ";" +
-				Float.toString(event.values[1]) + ";" +
-				Float.toString(event.values[2])
-			);
-			// keep a local copy (needed for orientation matrix)
-			System.arraycopy(event.values, 0, mGravity, 0, 3);
-
-			// NOTE:
-			// @see TYPE_MAGNETIC_FIELD
-			//updateOrientation();
-		} else if(event.sensor.getType() == Sensor.TYPE_MAGNETIC_FIELD) {
-			// inform listeners
-			sensorDataInterface.onData(event.timestamp, SensorType.MAGNETIC_FIELD,
-					Float.toString(event.values[0]) + ";" +
-					Float.toString(event.values[1]) + ";" +
-					Float.toString(event.values[2])
-			);
-			// keep a local copy (needed for orientation matrix)
-			System.arraycopy(event.values, 0, mGeomagnetic, 0, 3);
-
-			// NOTE
-			// @see TYPE_ACCELEROMETER
-			// only MAG updates the current orientation as MAG is usually slower than ACC and this reduces the file-footprint
-			updateOrientation(event.timestamp);
-        } else if(event.sensor.getType() == Sensor.TYPE_GAME_ROTATION_VECTOR) {
-        	// inform listeners
-			sensorDataInterface.onData(event.timestamp, SensorType.GAME_ROTATION_VECTOR,
-					Float.toString(event.values[0]) + ";" +
-							Float.toString(event.values[1]) + ";" +
-							Float.toString(event.values[2])
-			);
+		final int type = event.sensor.getType();
+		final SensorRoute route = (type < routesByType.length) ? routesByType[type] : null;
+		if(route == null) { return; }
+
+		// inform listeners
+		emit(event.timestamp, route.sensorType, event.values, Math.min(event.values.length, route.valueCnt));
+
+		switch (route.sensorType) {
+			case ACCELEROMETER:
+				// keep a local copy (needed for orientation matrix)
+				System.arraycopy(event.values, 0, mGravity, 0, 3);
+				hasGravity = true;
+
+				// NOTE:
+				// @see MAGNETIC_FIELD
+				// with a configured orientation rate, both sensors update the orientation
+				if (orientationIntervalNs > 0) { updateOrientation(event.timestamp); }
+				break;
+			case MAGNETIC_FIELD:
+				// keep a local copy (needed for orientation matrix)
+				System.arraycopy(event.values, 0, mGeomagnetic, 0, 3);
+				hasGeomagnetic = true;
+
+				// NOTE
+				// @see ACCELEROMETER
+				// only MAG updates the current orientation as MAG is usually slower than ACC and this reduces the file-footprint
+				updateOrientation(event.timestamp);
+				break;
+			default:
+				break;
 		}
     }
 
 	/** calculate orientation from acc and mag */
 	private void updateOrientation(long timestamp) {
 
-		// skip orientation update if either grav or geo is missing
-		if (mGravity == null) {return;}
-		if (mGeomagnetic == null) {return;}
+		// skip orientation update until both grav and geo were received
+		if (!hasGravity || !hasGeomagnetic) {return;}
+		// limit to the configured orientation rate
+		if (orientationIntervalNs > 0) {
+			if (timestamp < nextOrientationTs) {return;}
+			nextOrientationTs = (timestamp / orientationIntervalNs + 1) * orientationIntervalNs;
+		}
 
 		// calculate rotationMatrix and orientation
 		// see: https://developer.android.com/reference/android/hardware/SensorManager#getRotationMatrix(float[],%20float[],%20float[],%20float[])
 		// these are row-major
-		float R[] = new float[9];
-		float I[] = new float[9];
-
 		// derive rotation matrix from grav and geo sensors
-		boolean success = SensorManager.getRotationMatrix(R, I, mGravity, mGeomagnetic);
+		boolean success = SensorManager.getRotationMatrix(mRotationMatrix, mInclinationMatrix, mGravity, mGeomagnetic);
 		if (!success) {return;}
 
 		// derive orientation-vector using the rotation matrix
-		float orientationNew[] = new float[3];
-		SensorManager.getOrientation(R, orientationNew);
+		SensorManager.getOrientation(mRotationMatrix, mOrientation);
 
 		// inform listeners
 		if (sensorDataInterface != null) {
-
 			// orientation vector
-			sensorDataInterface.onData(timestamp, SensorType.ORIENTATION_NEW,
-				Float.toString(orientationNew[0]) + ";" +
-				Float.toString(orientationNew[1]) + ";" +
-				Float.toString(orientationNew[2])
-			);
-
-			// rotation matrix
-			final StringBuilder sb = new StringBuilder(1024);
-			sb.append(R[0]).append(';');
-			sb.append(R[1]).append(';');
-			sb.append(R[2]).append(';');
-			sb.append(R[3]).append(';');
-			sb.append(R[4]).append(';');
-			sb.append(R[5]).append(';');
-			sb.append(R[6]).append(';');
-			sb.append(R[7]).append(';');
-			sb.append(R[8]);
-
+			emit(timestamp, SensorType.ORIENTATION_NEW, mOrientation, 3);
 			//Write the whole rotationMatrix R into the Listener.
-			sensorDataInterface.onData(timestamp, SensorType.ROTATION_MATRIX, sb.toString());
-
-//				Float.toString(R[0]) + ";" +
-//				Float.toString(R[1]) + ";" +
-//				Float.toString(R[2]) + ";" +
-//				Float.toString(R[3]) + ";" +
-//				Float.toString(R[4]) + ";" +
-//				Float.toString(R[5]) + ";" +
-//				Float.toString(R[6]) + ";" +
-//				Float.toString(R[7]) + ";" +
-//				Float.toString(R[8])
-//				Float.toString(R[9]) + ";" +
-//				Float.toString(R[10]) + ";" +
-//				Float.toString(R[11]) + ";" +
-//				Float.toString(R[12]) + ";" +
-//				Float.toString(R[13]) + ";" +
-//				Float.toString(R[14]) + ";" +
-//				Float.toString(R[15])
-//			);
+			emit(timestamp, SensorType.ROTATION_MATRIX, mRotationMatrix, 9);
+		}
+
+	}
 
+	/** forward the given event, resampling it to its target rate if configured */
+	private void emit(final long timestamp, final SensorType sensorType, final float[] values, final int count) {
+		final ResampledStream resampledStream = resampledStreams[sensorType.ordinal()];
+		if (resampledStream == null) {
+			sensorDataInterface.onData(timestamp, sensorType, values, count);
+		} else {
+			resampledStream.push(timestamp, values, count);
+		}
+	}
+
+	/** on-device resampling of one sensor's stream to its target rate */
+	private final class ResampledStream implements LinearResampler.SampleCallback {
+		private final SensorType sensorType;
+		private final float rateHz;
+		private volatile LinearResampler resampler = null;
+		private int dimensions;
+		// resampled samples are written here, so resampling does not allocate
+		private float[] outSample;
+
+		ResampledStream(SensorType sensorType, float rateHz) {
+			this.sensorType = sensorType;
+			this.rateHz = rateHz;
 		}
 
+		void push(final long timestamp, final float[] values, final int count) {
+			LinearResampler resampler = this.resampler; // reset from onResume(), on another thread
+			if (resampler == null || dimensions != count) { // dimensions are only known with the first event
+				// synchronized to 0, so all streams with the same rate share the same time grid
+				resampler = this.resampler = new LinearResampler(count, rateHz, 0);
+				dimensions = count;
+				outSample = new float[count];
+			}
+			resampler.pushSample(timestamp, values, outSample, this);
+		}
+
+		@Override
+		public void onSample(long timestampNs, float[] sample) {
+			sensorDataInterface.onData(timestampNs, sensorType, sample, dimensions);
+		}
 	}
 
     @Override
@@ -266,39 +294,104 @@ public class PhoneSensors extends ASensor implements SensorEventListener {
 		// nothing to-do here
     }
 
+	@Override
+	public void onFlushCompleted(Sensor sensor) {
+		// all samples buffered before onPause() were delivered -> unregister
+		synchronized (this) {
+			if(pendingFlushCnt == 0) { return; }
+			pendingFlushCnt -= 1;
+			if(pendingFlushCnt > 0) { return; }
+			notifyAll(); // onPause() may be waiting
+		}
+		sensorManager.unregisterListener(this);
+	}
+
     @Override
     public void onResume(final Activity act) {
+		synchronized (this) {
+			if(pendingFlushCnt > 0) { // previous pause still flushing
+				pendingFlushCnt = 0;
+				sensorManager.unregisterListener(this);
+			}
+			registeredSensorCnt = 0;
+		}
+		for (ResampledStream resampledStream : resampledStreams) {
+			if (resampledStream != null) { resampledStream.resampler = null; }
+		}
+		hasGravity = false;
+		hasGeomagnetic = false;
+		nextOrientationTs = 0;
 		// attach as listener to each of the available sensors
-        registerIfPresent(acc, SensorManager.SENSOR_DELAY_FASTEST);
-      	registerIfPresent(grav, SensorManager.SENSOR_DELAY_FASTEST);
-       	registerIfPresent(gyro, SensorManager.SENSOR_DELAY_FASTEST);
-        registerIfPresent(lin_acc, SensorManager.SENSOR_DELAY_FASTEST);
-        registerIfPresent(magnet, SensorManager.SENSOR_DELAY_FASTEST);
-        registerIfPresent(press, SensorManager.SENSOR_DELAY_FASTEST);
-		registerIfPresent(ori, SensorManager.SENSOR_DELAY_FASTEST);
-		//registerIfPresent(heart, SensorManager.SENSOR_DELAY_FASTEST);
-		registerIfPresent(humidity, SensorManager.SENSOR_DELAY_FASTEST);
-		registerIfPresent(rotationVector, SensorManager.SENSOR_DELAY_FASTEST);
-		registerIfPresent(light, SensorManager.SENSOR_DELAY_FASTEST);
-		registerIfPresent(temperature, SensorManager.SENSOR_DELAY_FASTEST);
-		registerIfPresent(gameRotationVector, SensorManager.SENSOR_DELAY_FASTEST);
+		for (SensorRoute route : routes) {
+			register(route);
+		}
     }
 
-	private void registerIfPresent(final Sensor sens, final int delay) {
-		if (sens != null) {
-			sensorManager.registerListener(this, sens, delay);
-			Log.d("PhoneSensors", "added sensor " + sens.toString());
+	private void register(final SensorRoute route) {
+		final Sensor sens = route.sensor;
+		final int delay = samplingPeriodsUs[route.sensorType.ordinal()];
+		if (maxReportLatencyUs > 0 && sens.getFifoMaxEventCount() > 0) {
+			sensorManager.registerListener(this, sens, delay, maxReportLatencyUs, callbackHandler);
+			Log.d("PhoneSensors", "added sensor " + sens.toString() + " (batched, fifo: " + sens.getFifoMaxEventCount() + " events)");
 		} else {
-			Log.d("PhoneSensors", "sensor not present. skipping");
+			sensorManager.registerListener(this, sens, delay, callbackHandler);
+			Log.d("PhoneSensors", "added sensor " + sens.toString());
 		}
+		synchronized (this) { registeredSensorCnt += 1; }
 	}
 
     @Override
     public void onPause(final Activity act) {
+		if (maxReportLatencyUs > 0) {
+			// deliver samples still buffered in the FIFOs first, unregister in onFlushCompleted()
+			final int flushCnt;
+			final int generation;
+			synchronized (this) {
+				flushCnt = pendingFlushCnt = registeredSensorCnt;
+				generation = ++flushGeneration;
+			}
+			if (flushCnt > 0 && sensorManager.flush(this)) {
+				final Looper callbackLooper = (callbackHandler != null) ? callbackHandler.getLooper() : Looper.getMainLooper();
+				if (Looper.myLooper() == callbackLooper) {
+					// waiting would block the delivery of the flushed samples, unregister later at the latest
+					new Handler(callbackLooper).postDelayed(() -> flushTimedOut(generation), FLUSH_TIMEOUT_MS);
+					return;
+				}
+				if (awaitFlush(FLUSH_TIMEOUT_MS)) { return; } // unregistered by onFlushCompleted()
+				Log.w("PhoneSensors", "flushing the sensor FIFOs timed out, unregistering anyway");
+			}
+			synchronized (this) { pendingFlushCnt = 0; }
+		}
 		// detach from all events
 		sensorManager.unregisterListener(this);
     }
 
+	/** @return true if the running flush completed within timeoutMs */
+	private synchronized boolean awaitFlush(final long timeoutMs) {
+		final long deadlineMs = SystemClock.elapsedRealtime() + timeoutMs;
+		while (pendingFlushCnt > 0) {
+			final long remainingMs = deadlineMs - SystemClock.elapsedRealtime();
+			if (remainingMs <= 0) { return false; }
+			try {
+				wait(remainingMs);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void flushTimedOut(final int generation) {
+		synchronized (this) {
+			// flush completed, or resumed / paused again in the meantime
+			if (pendingFlushCnt == 0 || generation != flushGeneration) { return; }
+			pendingFlushCnt = 0;
+		}
+		Log.w("PhoneSensors", "flushing the sensor FIFOs timed out, unregistering anyway");
+		sensorManager.unregisterListener(this);
+	}
+
 
 
 
@@ -333,6 +426,8 @@ public class PhoneSensors extends ASensor implements SensorEventListener {
 		sensorInfo.set("Power", sensor.getPower());
 		sensorInfo.set("ReportingMode", sensor.getReportingMode());
 		sensorInfo.set("Resolution", sensor.getResolution());
+		sensorInfo.set("FifoMaxEventCount", sensor.getFifoMaxEventCount());
+		sensorInfo.set("FifoReservedEventCount", sensor.getFifoReservedEventCount());
 		sensorInfo.set("Type", sensor.getType());
 	}
 }
@@ -0,0 +1,107 @@
+package de.fhws.indoor.libsmartphonesensors.io;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.Random;
+
+import de.fhws.indoor.libsmartphonesensors.SensorType;
+import de.fhws.indoor.libsmartphonesensors.loggers.Logger;
+import de.fhws.indoor.libsmartphonesensors.loggers.TimedOrderedLogger;
+
+public class BinaryRecordingTest {
+
+    private static final long START_TS = 1000;
+    private static final String REMARK = "first remark line\nsecond remark line";
+
+    private static File record(RecordingFormat format, Logger.FileMetadata metadata, long seed) throws Exception {
+        File file = File.createTempFile("binaryRecording", format.fileExtension());
+        RecordingSession session = RecordingSession.create(START_TS, file, format);
+        TimedOrderedLogger logger = new TimedOrderedLogger(null);
+        logger.start(session, metadata);
+
+        Random random = new Random(seed);
+        float[] values = new float[3];
+        // 60 seconds of 100Hz IMU data, plus some slower sensors
+        for(long ts = START_TS + 10_000_000; ts < START_TS + 60_000_000_000L; ts += 10_000_000) {
+            for(SensorType sensor : new SensorType[]{SensorType.ACCELEROMETER, SensorType.GYROSCOPE, SensorType.MAGNETIC_FIELD}) {
+                for(int i = 0; i < values.length; ++i) { values[i] = (random.nextFloat() - 0.5f) * 20; }
+                logger.addFloats(sensor, ts + random.nextInt(1000), values, values.length);
+            }
+            if(ts % 100_000_000 == START_TS) {
+                logger.addFloat(SensorType.PRESSURE, ts, 950 + random.nextFloat() * 100);
+            }
+            if(ts % 500_000_000 == START_TS) {
+                logger.addLong(SensorType.PEDESTRIAN_ACTIVITY, ts, random.nextInt(4) - 1);
+                logger.addLongs(SensorType.STEP_DETECTOR, ts, new long[]{ts, Long.MIN_VALUE, Long.MAX_VALUE}, 3);
+            }
+            if(ts % 3_000_000_000L == START_TS) {
+                logger.addCSV(SensorType.WIFI, ts, "0123456789ab;-" + (40 + random.nextInt(50)) + ";2412;5");
+            }
+        }
+        logger.stop();
+        session.closeWithRemark(REMARK);
+        return file;
+    }
+
+    @Test
+    public void convertedBinaryRecordingEqualsCsvRecording() throws Exception {
+        Logger.FileMetadata metadata = new Logger.FileMetadata("person", "comment", new Date(0));
+        File csvFile = record(RecordingFormat.CSV, metadata, 42);
+        File binFile = record(RecordingFormat.BINARY, metadata, 42);
+
+        ByteArrayOutputStream converted = new ByteArrayOutputStream();
+        String binRecordingId;
+        try(FileInputStream binStream = new FileInputStream(binFile)) {
+            BinaryRecordingReader.convertToCsv(binStream, converted);
+        }
+        try(BinaryRecordingReader reader = new BinaryRecordingReader(new FileInputStream(binFile))) {
+            binRecordingId = reader.getRecordingId().toString();
+            assertEquals(SensorType.values().length, reader.getSensorTable().size());
+        }
+
+        String csv = new String(Files.readAllBytes(csvFile.toPath()), "UTF-8");
+        String csvRecordingId = csv.split("\n")[1].split(";")[2];
+        String convertedCsv = new String(converted.toByteArray(), "UTF-8").replace(binRecordingId, csvRecordingId);
+        assertEquals(csv, convertedCsv);
+
+        assertTrue("csv=" + csvFile.length() + " bytes, binary=" + binFile.length() + " bytes",
+                binFile.length() * 2 < csvFile.length());
+        csvFile.delete();
+        binFile.delete();
+    }
+
+    @Test
+    public void readerDecodesPrimitivePayloads() throws Exception {
+        File binFile = record(RecordingFormat.BINARY, new Logger.FileMetadata("person", "comment"), 7);
+        try(BinaryRecordingReader reader = new BinaryRecordingReader(new FileInputStream(binFile))) {
+            long lastTs = 0;
+            int stepCnt = 0;
+            while(reader.next()) {
+                if(reader.getPayloadType() == BinaryRecordEncoder.TYPE_REMARK) {
+                    assertEquals(REMARK, reader.getText());
+                    continue;
+                }
+                assertTrue(reader.getTimestamp() >= lastTs);
+                lastTs = reader.getTimestamp();
+                if(reader.getSensorId() == SensorType.STEP_DETECTOR.id()) {
+                    assertEquals(BinaryRecordEncoder.TYPE_INT64, reader.getPayloadType());
+                    assertEquals(3, reader.getValueCount());
+                    assertEquals(reader.getTimestamp() + START_TS, reader.getLong(0));
+                    assertEquals(Long.MIN_VALUE, reader.getLong(1));
+                    assertEquals(Long.MAX_VALUE, reader.getLong(2));
+                    stepCnt += 1;
+                }
+            }
+            assertEquals(119, stepCnt);
+        }
+        binFile.delete();
+    }
+
+}
@@ -0,0 +1,101 @@
+package de.fhws.indoor.libsmartphonesensors.io;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import de.fhws.indoor.libsmartphonesensors.SensorDataInterface;
+import de.fhws.indoor.libsmartphonesensors.SensorType;
+import de.fhws.indoor.libsmartphonesensors.loggers.Logger;
+import de.fhws.indoor.libsmartphonesensors.loggers.TimedOrderedLogger;
+
+public class RecordingReplayerTest {
+
+    private static final long START_TS = 123456789;
+
+    /** Writes a sorted recording spanning the given duration, returns its entry lines (without metadata) */
+    private static List<String> writeRecording(File file, long durationNs) throws Exception {
+        Random random = new Random(5);
+        List<String> entries = new ArrayList<>();
+        StringBuilder content = new StringBuilder("0;-2;2020-01-01T00:00:00.000Z;person;comment\n0;-3;recording\n");
+        for(long ts = 1_000_000; ts < durationNs; ts += 5_000_000) {
+            entries.add(ts + ";" + SensorType.ACCELEROMETER.id() + ";" + random.nextFloat() + ";" + random.nextFloat() + ";" + random.nextFloat());
+            if(random.nextInt(20) == 0) {
+                entries.add(ts + ";" + SensorType.WIFI.id() + ";0123456789ab;-" + random.nextInt(100) + ";2412");
+            }
+        }
+        for(String entry : entries) { content.append(entry).append('\n'); }
+        Files.write(file.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+        return entries;
+    }
+
+    private static class LoggingSensorDataInterface implements SensorDataInterface {
+        private final Logger logger;
+        LoggingSensorDataInterface(Logger logger) { this.logger = logger; }
+        @Override public long getStartTimestamp() { return START_TS; }
+        @Override public void onData(long timestamp, SensorType id, String csv) { logger.addCSV(id, timestamp, csv); }
+        @Override public void onData(long timestamp, SensorType id, float[] values, int count) { logger.addFloats(id, timestamp, values, count); }
+        @Override public void onData(long timestamp, SensorType id, long[] values, int count) { logger.addLongs(id, timestamp, values, count); }
+        @Override public OutputStream requestAuxiliaryChannel(String id) { throw new UnsupportedOperationException(); }
+    }
+
+    @Test
+    public void replayIntoLoggerReproducesRecording() throws Exception {
+        File source = File.createTempFile("replaySource", ".csv");
+        File target = File.createTempFile("replayTarget", ".csv");
+        List<String> entries = writeRecording(source, 60_000_000_000L);
+
+        RecordingSession session = RecordingSession.create(START_TS, target);
+        TimedOrderedLogger logger = new TimedOrderedLogger(null);
+        logger.start(session, new Logger.FileMetadata("person", "comment"));
+        try(RecordingReader reader = RecordingReader.open(source)) {
+            assertEquals(entries.size(), new RecordingReplayer(reader, RecordingReplayer.AS_FAST_AS_POSSIBLE).replay(new LoggingSensorDataInterface(logger)));
+        }
+        logger.stop();
+        session.close();
+
+        List<String> replayed = Files.readAllLines(target.toPath(), StandardCharsets.UTF_8);
+        assertEquals(entries, replayed.subList(2, replayed.size()));
+        source.delete();
+        target.delete();
+        RecordingIndex.indexFileFor(source).delete();
+    }
+
+    @Test
+    public void replayIsPacedBySpeedFactor() throws Exception {
+        File source = File.createTempFile("replaySource", ".csv");
+        writeRecording(source, 2_000_000_000L);
+        try(RecordingReader reader = RecordingReader.open(source)) {
+            final long[] lastTs = {Long.MIN_VALUE};
+            RecordingReplayer replayer = new RecordingReplayer(reader, 10);
+            long startTs = System.nanoTime();
+            replayer.replay(new RecordingReplayer.EntryListener() {
+                @Override public void onEntry(RecordingReader entry) {
+                    assertTrue(entry.getTimestamp() >= lastTs[0]);
+                    lastTs[0] = entry.getTimestamp();
+                }
+            });
+            long durationMs = (System.nanoTime() - startTs) / 1000000;
+            // 2s of recording at 10x
+            assertTrue("took " + durationMs + "ms", durationMs >= 195 && durationMs < 1000);
+
+            reader.selectAll();
+            startTs = System.nanoTime();
+            new RecordingReplayer(reader, RecordingReplayer.AS_FAST_AS_POSSIBLE).replay(new RecordingReplayer.EntryListener() {
+                @Override public void onEntry(RecordingReader entry) {}
+            });
+            assertTrue((System.nanoTime() - startTs) / 1000000 < 150);
+        }
+        source.delete();
+        RecordingIndex.indexFileFor(source).delete();
+    }
+
+}
@@ -0,0 +1,157 @@
+package de.fhws.indoor.libsmartphonesensors.loggers;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import de.fhws.indoor.libsmartphonesensors.SensorType;
+import de.fhws.indoor.libsmartphonesensors.io.RecordingSession;
+
+public class LoggerTest {
+
+    private static final long START_TS = 123456789L;
+
+    /** Logger that keeps all logged lines in memory */
+    private static class CapturingLogger extends Logger {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        boolean capture = true;
+
+        public CapturingLogger() { super(null); }
+        @Override protected void onStart() {}
+        @Override protected void onStop() {}
+        @Override protected void log(LogEntry logEntry) {
+            if(capture) { output.write(logEntry.line, 0, logEntry.length); }
+            recycle(logEntry);
+        }
+        @Override public long getEntriesCached() { return 0; }
+        @Override public float getCacheLevel() { return 0; }
+    }
+
+    private File file;
+    private RecordingSession session;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("loggerTest", ".csv");
+        session = RecordingSession.create(START_TS, file);
+    }
+
+    @After
+    public void tearDown() {
+        session.abort();
+    }
+
+    private CapturingLogger startLogger() {
+        CapturingLogger logger = new CapturingLogger();
+        logger.start(session, new Logger.FileMetadata("person", "comment"));
+        logger.output.reset();
+        return logger;
+    }
+
+    @Test
+    public void primitivePathIsByteIdenticalToCsvPath() throws Exception {
+        CapturingLogger csvLogger = startLogger();
+        CapturingLogger primitiveLogger = startLogger();
+
+        float[] specials = new float[]{0.0f, -0.0f, 1.0f, -1.0f, 0.1f, 9.81f, 1e-3f, 9.99e-4f, 1e7f, 9999999.0f,
+                1.17549435E-38f, Float.MIN_VALUE, Float.MAX_VALUE, Float.NaN, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY};
+        Random rnd = new Random(1337);
+        float[] values = new float[4];
+        for(int i = 0; i < 20000; ++i) {
+            long ts = START_TS + i * 1000L + rnd.nextInt(1000);
+            int cnt = 1 + rnd.nextInt(values.length);
+            for(int v = 0; v < cnt; ++v) {
+                switch(rnd.nextInt(3)) {
+                    case 0: values[v] = specials[rnd.nextInt(specials.length)]; break;
+                    case 1: values[v] = (rnd.nextFloat() - 0.5f) * 40.0f; break;
+                    default: values[v] = Float.intBitsToFloat(rnd.nextInt()); break;
+                }
+            }
+            StringBuilder csv = new StringBuilder();
+            for(int v = 0; v < cnt; ++v) {
+                if(v != 0) { csv.append(';'); }
+                csv.append(Float.toString(values[v]));
+            }
+            csvLogger.addCSV(SensorType.ACCELEROMETER, ts, csv.toString());
+            primitiveLogger.addFloats(SensorType.ACCELEROMETER, ts, values, cnt);
+
+            long lv = rnd.nextLong();
+            csvLogger.addCSV(SensorType.PEDESTRIAN_ACTIVITY, ts, Long.toString(lv));
+            primitiveLogger.addLong(SensorType.PEDESTRIAN_ACTIVITY, ts, lv);
+        }
+        csvLogger.addCSV(SensorType.GROUND_TRUTH_PATH, Logger.BEGINNING_TS, Long.toString(Long.MIN_VALUE) + ";" + Long.MAX_VALUE);
+        primitiveLogger.addLongs(SensorType.GROUND_TRUTH_PATH, Logger.BEGINNING_TS, new long[]{Long.MIN_VALUE, Long.MAX_VALUE}, 2);
+
+        assertArrayEquals(csvLogger.output.toByteArray(), primitiveLogger.output.toByteArray());
+        assertEquals(csvLogger.getEventCnt(), primitiveLogger.getEventCnt());
+        assertEquals(csvLogger.getSizeTotal(), primitiveLogger.getSizeTotal());
+    }
+
+    @Test
+    public void primitivePathDropsEventsBeforeStart() throws Exception {
+        CapturingLogger logger = startLogger();
+        logger.addFloat(SensorType.LIGHT, START_TS - 1, 1.0f);
+        assertEquals(0, logger.output.size());
+        logger.addFloat(SensorType.LIGHT, START_TS, 1.0f);
+        assertEquals("0;13;1.0\n", logger.output.toString());
+    }
+
+    @Test
+    public void steadyStateLoggingReusesPooledEntries() throws Exception {
+        CapturingLogger logger = startLogger();
+        float[] values = new float[]{1.0f, 2.0f, 3.0f};
+        for(int i = 0; i < 10000; ++i) {
+            logger.addFloats(SensorType.ACCELEROMETER, START_TS + i, values, 3);
+            logger.addCSV(SensorType.WIFI, START_TS + i, "0123456789ab;-50;2412");
+        }
+        // every entry is recycled immediately, so only the very first one (metadata) was allocated
+        assertEquals(1, logger.getEntryPoolMissCount());
+        assertEquals(logger.getEventCnt() - 1, logger.getEntryPoolHitCount());
+    }
+
+    /**
+     * Micro-benchmark comparing the per-event heap allocation of addCSV() (including the
+     * Float.toString() based formatting done by the sensors) against addFloats().
+     */
+    @Test
+    public void primitivePathAllocatesLess() throws Exception {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+        final long threadId = Thread.currentThread().getId();
+        final int iterations = 200000;
+        final float[] values = new float[]{0.0173f, 9.80665f, -0.27f};
+
+        CapturingLogger logger = startLogger();
+        logger.capture = false;
+        for(int warmup = 0; warmup < 2; ++warmup) {
+            long csvStart = threadMXBean.getThreadAllocatedBytes(threadId);
+            for(int i = 0; i < iterations; ++i) {
+                logger.addCSV(SensorType.ACCELEROMETER, START_TS + i,
+                        Float.toString(values[0]) + ";" + Float.toString(values[1]) + ";" + Float.toString(values[2]));
+            }
+            long csvBytes = threadMXBean.getThreadAllocatedBytes(threadId) - csvStart;
+
+            long primitiveStart = threadMXBean.getThreadAllocatedBytes(threadId);
+            for(int i = 0; i < iterations; ++i) {
+                logger.addFloats(SensorType.ACCELEROMETER, START_TS + i, values, 3);
+            }
+            long primitiveBytes = threadMXBean.getThreadAllocatedBytes(threadId) - primitiveStart;
+
+            if(warmup == 1) {
+                assertTrue("bytes/event addCSV=" + (csvBytes / iterations) + " addFloats=" + (primitiveBytes / iterations),
+                        primitiveBytes * 4 < csvBytes);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,86 @@
+package de.fhws.indoor.libsmartphonesensors.loggers;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+
+import de.fhws.indoor.libsmartphonesensors.SensorType;
+import de.fhws.indoor.libsmartphonesensors.io.RecordingSession;
+
+public class TimedOrderedLoggerTest {
+
+    private static final long START_TS = 1000;
+
+    @Test
+    public void concurrentProducersAreWrittenCompletelyAndOrdered() throws Exception {
+        final int producerCnt = 4;
+        final int eventsPerProducer = 50000;
+        final SensorType[] sensors = {SensorType.ACCELEROMETER, SensorType.GYROSCOPE, SensorType.WIFI, SensorType.DECAWAVE_UWB};
+
+        File file = File.createTempFile("timedOrderedLogger", ".csv");
+        RecordingSession session = RecordingSession.create(START_TS, file);
+        final TimedOrderedLogger logger = new TimedOrderedLogger(null);
+        logger.start(session, new Logger.FileMetadata("person", "comment"));
+
+        // producers progress in lockstep (1s of sensor time per round), like real sensors would
+        final CyclicBarrier barrier = new CyclicBarrier(producerCnt);
+        List<Thread> producers = new ArrayList<>();
+        for(int p = 0; p < producerCnt; ++p) {
+            final int producerIdx = p;
+            producers.add(new Thread(() -> {
+                try {
+                    for(int i = 0; i < eventsPerProducer; ++i) {
+                        if(i % 1000 == 0) { barrier.await(); }
+                        logger.addLong(sensors[producerIdx], START_TS + i * 1000000L + producerIdx * 250000L, i);
+                    }
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }));
+        }
+        for(Thread producer : producers) { producer.start(); }
+        for(Thread producer : producers) { producer.join(); }
+        logger.stop();
+        session.close();
+
+        assertEquals(producerCnt * eventsPerProducer + 2, logger.getEventCnt());
+        assertTrue(logger.getMaxProducerStallNs() > 0);
+        assertTrue(logger.getProducerContentionCount() >= 0);
+        assertEquals(0, logger.getEntriesCached());
+        // only entries in-flight (ingest ring + reorder window) at the same time require allocations
+        assertEquals(logger.getEventCnt(), logger.getEntryPoolHitCount() + logger.getEntryPoolMissCount());
+        // ingest ring (16384) + ~7s reorder window of 1kHz producers
+        assertTrue("entry pool misses=" + logger.getEntryPoolMissCount(), logger.getEntryPoolMissCount() <= 16384 + producerCnt * 8000);
+
+        long lineCnt = 0;
+        long lastTs = Long.MIN_VALUE;
+        long[] lastValuePerSensor = new long[producerCnt];
+        java.util.Arrays.fill(lastValuePerSensor, -1);
+        try(BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            for(String line = reader.readLine(); line != null; line = reader.readLine()) {
+                String[] parts = line.split(";");
+                long ts = Long.parseLong(parts[0]);
+                assertTrue("order violation at line " + lineCnt, ts >= lastTs);
+                lastTs = ts;
+                for(int p = 0; p < producerCnt; ++p) {
+                    if(Integer.parseInt(parts[1]) == sensors[p].id()) {
+                        long value = Long.parseLong(parts[2]);
+                        assertEquals(lastValuePerSensor[p] + 1, value);
+                        lastValuePerSensor[p] = value;
+                    }
+                }
+                lineCnt += 1;
+            }
+        }
+        assertEquals(producerCnt * eventsPerProducer + 2, lineCnt);
+        file.delete();
+    }
+
+}
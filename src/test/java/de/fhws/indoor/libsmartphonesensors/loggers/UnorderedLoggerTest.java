@@ -0,0 +1,102 @@
+package de.fhws.indoor.libsmartphonesensors.loggers;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import de.fhws.indoor.libsmartphonesensors.SensorType;
+import de.fhws.indoor.libsmartphonesensors.io.RecordingSession;
+
+public class UnorderedLoggerTest {
+
+    private static final long START_TS = 1000;
+    private static final SensorType[] SENSORS = {SensorType.ACCELEROMETER, SensorType.GYROSCOPE, SensorType.MAGNETIC_FIELD};
+
+    private static long countLines(File file) throws Exception {
+        long lineCnt = 0;
+        try(BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            for(String line = reader.readLine(); line != null; line = reader.readLine()) {
+                assertTrue(line.split(";").length >= 3);
+                lineCnt += 1;
+            }
+        }
+        return lineCnt;
+    }
+
+    private static File record(final UnorderedLogger logger, final int eventsPerProducer) throws Exception {
+        File file = File.createTempFile("unorderedLogger", ".csv");
+        RecordingSession session = RecordingSession.create(START_TS, file);
+        logger.start(session, new Logger.FileMetadata("person", "comment"));
+        List<Thread> producers = new ArrayList<>();
+        for(final SensorType sensor : SENSORS) {
+            producers.add(new Thread(() -> {
+                for(int i = 0; i < eventsPerProducer; ++i) {
+                    logger.addLong(sensor, START_TS + i, i);
+                }
+            }));
+        }
+        for(Thread producer : producers) { producer.start(); }
+        for(Thread producer : producers) { producer.join(); }
+        logger.stop();
+        session.close();
+        return file;
+    }
+
+    @Test
+    public void losslessPoliciesWriteEverything() throws Exception {
+        for(UnorderedLogger.BackPressurePolicy policy : new UnorderedLogger.BackPressurePolicy[]{
+                UnorderedLogger.BackPressurePolicy.BLOCK, UnorderedLogger.BackPressurePolicy.GROW}) {
+            UnorderedLogger logger = new UnorderedLogger(null, policy);
+            File file = record(logger, 100000);
+            assertEquals(SENSORS.length * 100000 + 2, countLines(file));
+            assertEquals(0, logger.getDroppedTotal());
+            assertEquals(0, logger.getEntriesCached());
+            file.delete();
+        }
+    }
+
+    @Test
+    public void droppingPoliciesAccountForEveryEntry() throws Exception {
+        for(UnorderedLogger.BackPressurePolicy policy : new UnorderedLogger.BackPressurePolicy[]{
+                UnorderedLogger.BackPressurePolicy.DROP_NEWEST, UnorderedLogger.BackPressurePolicy.DROP_OLDEST}) {
+            UnorderedLogger logger = new UnorderedLogger(null, policy);
+            File file = record(logger, 100000);
+            long droppedPerSensor = 0;
+            for(SensorType sensor : SENSORS) { droppedPerSensor += logger.getDroppedCount(sensor); }
+            assertEquals(logger.getDroppedTotal(), droppedPerSensor);
+            assertEquals(logger.getEventCnt(), countLines(file) + logger.getDroppedTotal());
+            file.delete();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void blockingPolicyDoesNotHangWhenWritingFails() throws Exception {
+        UnorderedLogger logger = new UnorderedLogger(null, UnorderedLogger.BackPressurePolicy.BLOCK);
+        File file = File.createTempFile("unorderedLogger", ".csv");
+        RecordingSession session = RecordingSession.create(START_TS, file);
+        logger.start(session, new Logger.FileMetadata("person", "comment"));
+        session.stream().close(); // every following write of the worker fails
+        Thread producer = new Thread(() -> {
+            for(int i = 0; i < 100000; ++i) {
+                logger.addLong(SensorType.ACCELEROMETER, START_TS + i, i);
+            }
+        });
+        producer.start();
+        producer.join();
+        try {
+            logger.stop();
+            fail("write error not reported");
+        } catch (LoggerException expected) {
+            assertTrue(expected.getCause() instanceof java.io.IOException);
+        }
+        assertTrue(logger.getDroppedTotal() > 0);
+        file.delete();
+    }
+
+}